@@ -25,22 +25,31 @@ package org.cytoscape.network.merge.internal;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyRow;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.network.merge.internal.model.AttributeMapping;
+import org.cytoscape.network.merge.internal.util.DisjointSet;
+import org.cytoscape.network.merge.internal.util.LongIntHashMap;
+import org.cytoscape.network.merge.internal.util.MatchedGroups;
 import org.cytoscape.work.TaskMonitor;
 
 /**
@@ -49,41 +58,176 @@ import org.cytoscape.work.TaskMonitor;
 public abstract class AbstractNetworkMerge implements NetworkMerge {
 
 	protected boolean withinNetworkMerge = false;
+	// smallest number of networks of the merged nodes/edges for Operation.QUORUM,
+	// 0 for more than half of the networks
+	protected int quorum = 0;
+	// true if the merge is kept up to date by an IncrementalNetworkMerge
+	protected boolean incremental = false;
 	protected final TaskMonitor taskMonitor;
 	//Maps a node and its position in the match list
 	protected Map<CyNode,Integer> mapNodesIndex;
-	//There are two different maps to differentiate directed and undirected edges
-	//Each map does a first map based on type of interactions and then a second map that maps
-	//a Long index made of combination of two integer indexes from the two nodes and the
-	//index of that edge in the matched list
-	//There is also a second set of maps for the case when the edges do not have a value
-	//in the interaction column. This would be a special case that needs to be considered too
-	protected Map<String,Map<Long,Integer>> mapEdgeDirectedInteractions;
-	protected Map<String,Map<Long,Integer>> mapEdgeInteractions;
-	protected Map<Long,Integer> mapEdgeNoInteractions;
-	protected Map<Long,Integer> mapEdgeDirectedNoInteractions;
+	//Maps an interaction to its id in the edge keys, the id 0 is kept for the edges
+	//that do not have a value in the interaction column
+	protected Map<String,Integer> mapInteractionIds;
+	//The edge keys pack the interaction id, the directedness and the indexes of the two
+	//nodes, using this number of bits for each node index. If the key does not fit in a
+	//long, the edges are keyed by the two node indexes in one map per interaction id and
+	//directedness instead
+	private int nodeIndexBits;
+
+	// Smallest number of edges worth matching in a separate partition
+	private static final int MIN_EDGES_PER_SHARD = 16384;
+
+	// Smallest number of nodes worth reading the matching keys of in a separate task
+	private static final int MIN_NODES_PER_TASK = 16384;
+
+	// Number of nodes, edges or attribute values between two progress reports in a step
+	private static final int PROGRESS_INTERVAL = 4096;
+
+	// Progress at the start and at the end of the current step of the merge
+	private double stepStart;
+	private double stepEnd;
 
 	// For canceling task
 	private volatile boolean interrupted;
 
+	// The provenance of the last merge: the groups of matched nodes/edges, and
+	// the merged node/edge of each group in the order they were created
+	private MatchedGroups<CyNode> mergedNodeList;
+	private int[] mergedNodeGroups;
+	private CyNode[] mergedNodes;
+	private MatchedGroups<CyEdge> mergedEdgeList;
+	private int[] mergedEdgeGroups;
+	private CyEdge[] mergedEdges;
+
 	public AbstractNetworkMerge(final TaskMonitor taskMonitor) {
 		this.taskMonitor = taskMonitor;
 		interrupted = false;
 		mapNodesIndex = new HashMap<CyNode,Integer>();
-		mapEdgeDirectedInteractions = new HashMap<String,Map<Long,Integer>>();
-		mapEdgeInteractions = new HashMap<String,Map<Long,Integer>>();
-		mapEdgeNoInteractions = new HashMap<Long,Integer>();
-		mapEdgeDirectedNoInteractions = new HashMap<Long,Integer>();
+		mapInteractionIds = new HashMap<String,Integer>();
 	}
 
 	public void setWithinNetworkMerge(boolean withinNetworkMerge) {
 		this.withinNetworkMerge = withinNetworkMerge;
 	}
 
+	/**
+	 * @param quorum
+	 *            the number of networks a node or edge must be in to be
+	 *            merged by Operation.QUORUM, 0 for more than half of them
+	 */
+	public void setQuorum(int quorum) {
+		if (quorum < 0)
+			throw new IllegalArgumentException("The quorum cannot be negative");
+		this.quorum = quorum;
+	}
+
+	/**
+	 * @param incremental
+	 *            true if the merge is to be kept up to date by an
+	 *            IncrementalNetworkMerge, its merged nodes and edges being
+	 *            merged again as the source networks change
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
 	public void interrupt() {
 		interrupted = true;
 	}
 
+	/**
+	 * @param networks
+	 *            the networks to be merged
+	 * @param op
+	 *            the operation
+	 * @return true if the merge of the networks can be kept up to date by an
+	 *         IncrementalNetworkMerge: the union of networks whose nodes match
+	 *         on a single exact key
+	 */
+	public boolean isIncrementalMergeSupported(final List<CyNetwork> networks, final Operation op) {
+		return op == Operation.UNION && isNodeMatchingKeyExact(networks) && !hasMultipleNodeMatchingKeys(networks);
+	}
+
+	/**
+	 * Release the provenance of the last merge, once an
+	 * IncrementalNetworkMerge has indexed it.
+	 */
+	public void releaseMatches() {
+		mergedNodeList = null;
+		mergedNodeGroups = null;
+		mergedNodes = null;
+		mergedEdgeList = null;
+		mergedEdgeGroups = null;
+		mergedEdges = null;
+	}
+
+	/**
+	 * @return the groups of matched nodes of the last incremental merge, or
+	 *         null
+	 */
+	public MatchedGroups<CyNode> getMatchedNodes() {
+		return mergedNodeList;
+	}
+
+	/**
+	 * @return the number of nodes created by the last merge
+	 */
+	public int getMergedNodeCount() {
+		return mergedNodes == null ? 0 : mergedNodes.length;
+	}
+
+	/**
+	 * @param i
+	 * @return the group of matched nodes of the i-th node created by the last merge
+	 */
+	public int getMergedNodeGroup(final int i) {
+		return mergedNodeGroups[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the i-th node created by the last merge
+	 */
+	public CyNode getMergedNode(final int i) {
+		return mergedNodes[i];
+	}
+
+	/**
+	 * @return the groups of matched edges of the last incremental merge, or
+	 *         null
+	 */
+	public MatchedGroups<CyEdge> getMatchedEdges() {
+		return mergedEdgeList;
+	}
+
+	/**
+	 * @return the number of edges created by the last merge
+	 */
+	public int getMergedEdgeCount() {
+		return mergedEdges == null ? 0 : mergedEdges.length;
+	}
+
+	/**
+	 * @param i
+	 * @return the group of matched edges of the i-th edge created by the last merge
+	 */
+	public int getMergedEdgeGroup(final int i) {
+		return mergedEdgeGroups[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the i-th edge created by the last merge
+	 */
+	public CyEdge getMergedEdge(final int i) {
+		return mergedEdges[i];
+	}
+
 	/**
 	 * Check whether two nodes match
 	 *
@@ -94,15 +238,162 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 	 */
 	protected abstract boolean matchNode(CyNetwork net1, CyNode n1, CyNetwork net2, CyNode n2);
 
+	/**
+	 * Get the blocking keys used for hash based node matching. Two nodes can
+	 * only match if they are the same node or if they share at least one key,
+	 * which must be consistent with matchNode.
+	 *
+	 * @param net
+	 *            the network the nodes belong to
+	 * @param nodes
+	 *            the nodes of the network
+	 *
+	 * @return the keys of each node in the order of nodes, or null if the
+	 *         nodes can only be matched pairwise with matchNode
+	 */
+	protected Collection<?>[] getNodeMatchingKeys(CyNetwork net, List<CyNode> nodes) {
+		return null;
+	}
+
+	/**
+	 * Check whether sharing a key is enough for nodes of the networks to
+	 * match, so that the candidates found through the keys do not need to be
+	 * checked with matchNode
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 *
+	 * @return true if the keys are exact
+	 */
+	protected boolean isNodeMatchingKeyExact(List<CyNetwork> networks) {
+		return false;
+	}
+
+	/**
+	 * Check whether nodes of the networks can have more than one matching key,
+	 * as for list values. Nodes with exact keys are then grouped with all the
+	 * nodes they share a key with, directly or through other nodes.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 *
+	 * @return true if a node can have several keys
+	 */
+	protected boolean hasMultipleNodeMatchingKeys(List<CyNetwork> networks) {
+		return false;
+	}
+
+	/**
+	 * Check whether nodes of the networks match on the equality of integral
+	 * values of the same type, so that their keys can be indexed as primitive
+	 * longs with getNodeMatchingLongKeys
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 *
+	 * @return true if the keys are Integer or Long values
+	 */
+	protected boolean hasLongNodeMatchingKeys(List<CyNetwork> networks) {
+		return false;
+	}
+
+	/**
+	 * Check whether the nodes/edges merged as they are can be added by
+	 * reference to a merged network sharing the root network of the networks
+	 * to be merged, the merged values being written to their rows
+	 *
+	 * @param type
+	 *            CyNode.class or CyEdge.class
+	 *
+	 * @return true if no merged value is written to the shared rows of the
+	 *         networks to be merged
+	 */
+	protected boolean isAddedByReference(Class<? extends CyIdentifiable> type) {
+		return true;
+	}
+
+	/**
+	 * Get the integral keys used for hash based node matching. Two nodes match
+	 * if they are the same node or if they both have a key and their keys are
+	 * equal.
+	 *
+	 * @param net
+	 *            the network the nodes belong to
+	 * @param nodes
+	 *            the nodes of the network
+	 * @param missing
+	 *            set with the positions of the nodes without key
+	 *
+	 * @return the keys in the order of nodes, or null if the nodes have to
+	 *         be matched on their keys of getNodeMatchingKeys
+	 */
+	protected long[] getNodeMatchingLongKeys(CyNetwork net, List<CyNode> nodes, BitSet missing) {
+		return null;
+	}
+
 	/**
 	 * Merge (matched) nodes into one
 	 *
-	 * @param mapNetNode
-	 *            map of network to node, node in the network to be merged
+	 * @param matchedNodes
+	 *            groups of matched nodes
+	 * @param group
+	 *            the index of the group of nodes to be merged
 	 * @param newNode
 	 *            merge data to this new node
 	 */
-	protected abstract void mergeNode(Map<CyNetwork, Set<CyNode>> mapNetNode, CyNode newNode, CyNetwork newNetwork);
+	protected abstract void mergeNode(MatchedGroups<CyNode> matchedNodes, int group, CyNode newNode, CyNetwork newNetwork);
+
+	/**
+	 * Merge groups of matched nodes into nodes already created in the new
+	 * network. By default the nodes are merged one by one with mergeNode,
+	 * implementations can merge them one attribute at a time instead.
+	 *
+	 * @param matchedNodes
+	 *            groups of matched nodes
+	 * @param groups
+	 *            the index of the group of each new node
+	 * @param newNodes
+	 *            merge data to these new nodes
+	 * @param count
+	 *            the number of new nodes
+	 */
+	protected void mergeNodes(MatchedGroups<CyNode> matchedNodes, int[] groups, CyNode[] newNodes, int count,
+			CyNetwork newNetwork) {
+		for (int i = 0; i < count && !interrupted; i++) {
+			setStepProgress(i, count);
+			mergeNode(matchedNodes, groups[i], newNodes[i], newNetwork);
+		}
+	}
+
+	/**
+	 * Merge groups of matched nodes into all the nodes created in the new
+	 * network: the nodes of the selected groups, then the nodes of the first
+	 * network created for the edges of a difference. By default each of them
+	 * is merged with mergeNodes.
+	 *
+	 * @param matchedNodes
+	 *            groups of matched nodes
+	 * @param groups
+	 *            the index of the group of each new node
+	 * @param newNodes
+	 *            merge data to these new nodes
+	 * @param count
+	 *            the number of new nodes
+	 * @param differenceNodes
+	 *            the groups of the nodes of the first network, null if the
+	 *            operation is not a difference
+	 * @param differenceGroups
+	 *            the index of the group of each new node of the first network
+	 * @param newDifferenceNodes
+	 *            merge data to these new nodes of the first network
+	 */
+	protected void mergeNodes(MatchedGroups<CyNode> matchedNodes, int[] groups, CyNode[] newNodes, int count,
+			MatchedGroups<CyNode> differenceNodes, int[] differenceGroups, CyNode[] newDifferenceNodes,
+			CyNetwork newNetwork) {
+		mergeNodes(matchedNodes, groups, newNodes, count, newNetwork);
+		if (differenceGroups.length > 0 && !interrupted)
+			mergeNodes(differenceNodes, differenceGroups, newDifferenceNodes, differenceGroups.length, newNetwork);
+	}
 
 	/**
 	 * Merge (matched) networks into one
@@ -118,121 +409,113 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 	 * Merge (matched) nodes into one. This method will be refactored in
 	 * Cytoscape3
 	 *
-	 * @param mapNetEdge
-	 *            map from network to Edge, Edge in the network to be merged
+	 * @param matchedEdges
+	 *            groups of matched edges
+	 * @param group
+	 *            the index of the group of edges to be merged
 	 * @param newEdge
 	 *            merge data to this edge
 	 *
 	 * @return merged Edge
 	 */
-	protected abstract void mergeEdge(Map<CyNetwork, Set<CyEdge>> mapNetEdge, CyEdge newEdge, CyNetwork newNetwork);
+	protected abstract void mergeEdge(MatchedGroups<CyEdge> matchedEdges, int group, CyEdge newEdge, CyNetwork newNetwork);
 
 	/**
-	 * Check whether an edge match the other edges already considered, if so it will
-	 * return the position in the match list
-	 *
-	 * @param network1 The source network of the edge to evaluate
-	 * @param e1 The edge to check if it has a match
-	 * @param position The position in the match list that the new edge belong if no match is found
+	 * Merge groups of matched edges into edges already created in the new
+	 * network. By default the edges are merged one by one with mergeEdge,
+	 * implementations can merge them one attribute at a time instead.
 	 *
-	 * @return the index in the match list where this edge has found a match or -1 if no match found
+	 * @param matchedEdges
+	 *            groups of matched edges
+	 * @param groups
+	 *            the index of the group of each new edge
+	 * @param newEdges
+	 *            merge data to these new edges
+	 * @param count
+	 *            the number of new edges
 	 */
-	protected int matchEdge( CyNetwork network1, CyEdge e1, int position) {
-
-		int index = -1;
-		long id1, id2 = 0;
-		Map<Long,Integer> mapNodesEdges = null;
-		Map<Long,Integer> mapNodesDirectedEdges = null;
-		if (e1 == null ) {
-			throw new NullPointerException();
-		}
-
-		String i1 = network1.getRow(e1).get(CyEdge.INTERACTION, String.class);
-
-
-		CyNode source = e1.getSource();
-		CyNode target = e1.getTarget();
-
-		if (source == null || target == null ) {
-			throw new NullPointerException();
+	protected void mergeEdges(MatchedGroups<CyEdge> matchedEdges, int[] groups, CyEdge[] newEdges, int count,
+			CyNetwork newNetwork) {
+		for (int i = 0; i < count && !interrupted; i++) {
+			setStepProgress(i, count);
+			mergeEdge(matchedEdges, groups[i], newEdges[i], newNetwork);
 		}
+	}
 
-		int iSource = mapNodesIndex.get(source);
+	/**
+	 * Report the progress of the current step of the merge, once every
+	 * PROGRESS_INTERVAL nodes, edges or attribute values so that long loops
+	 * can report it at every iteration.
+	 *
+	 * @param done
+	 *            the number of nodes, edges or values done in this step
+	 * @param total
+	 *            the number of nodes, edges or values of this step
+	 */
+	protected void setStepProgress(final long done, final long total) {
+		if (done % PROGRESS_INTERVAL == 0 && total > 0 && stepEnd > stepStart)
+			taskMonitor.setProgress(stepStart + (stepEnd - stepStart) * done / total);
+	}
 
-		int iTarget = mapNodesIndex.get(target);
+	/**
+	 * Start a step of the merge, whose progress goes from start to end
+	 */
+	private void startProgressStep(final double start, final double end) {
+		stepStart = start;
+		stepEnd = end;
+		taskMonitor.setProgress(start);
+	}
 
-		if (e1.isDirected())
-		{
-			if(i1 == null)
-				mapNodesDirectedEdges = mapEdgeDirectedNoInteractions;
-			else
-				mapNodesDirectedEdges = mapEdgeDirectedInteractions.get(i1);
-			id1 = getUniqueIdNumber(iSource, iTarget);
-			if( mapNodesDirectedEdges != null)
-			{
-				//System.out.println("same interaction directed edge: " + i1);
-				if(mapNodesDirectedEdges.get(id1) != null)
-					index = mapNodesDirectedEdges.get(id1);
-			}
+	/**
+	 * @return true if the merge has been interrupted
+	 */
+	protected boolean isInterrupted() {
+		return interrupted;
+	}
 
-		}
-		else
-		{
-			if(i1 == null)
-				mapNodesEdges = mapEdgeNoInteractions;
-			else
-				mapNodesEdges = mapEdgeInteractions.get(i1);
-			id1 = getUniqueIdNumber(iSource, iTarget);
-			id2 = getUniqueIdNumber(iTarget,iSource);
-			if(mapNodesEdges != null)
-			{
-				//System.out.println("same interaction edge: " + i1);
-				if(mapNodesEdges.get(id1) != null && mapNodesEdges.get(id2) != null && mapNodesEdges.get(id1).equals(mapNodesEdges.get(id2)))
-					index = mapNodesEdges.get(id1);
-			}
+	/**
+	 * Check whether an edge match the other edges already considered, if so it will
+	 * return the position in the match list
+	 *
+	 * @param maps The edge index mapping the edge keys to their position in the match list
+	 * @param type The interaction id of the edge shifted left by one, plus one if the edge is directed
+	 * @param iSource The index of the source node in the node match list
+	 * @param iTarget The index of the target node in the node match list
+	 * @param position The position in the match list that the new edge belong if no match is found
+	 *
+	 * @return the index in the match list where this edge has found a match or -1 if no match found
+	 */
+	protected int matchEdge(LongIntHashMap[] maps, int type, int iSource, int iTarget, int position) {
+		// undirected edges are keyed by their node indexes in increasing order
+		if ((type & 1) == 0 && iSource > iTarget) {
+			final int tmp = iSource;
+			iSource = iTarget;
+			iTarget = tmp;
 		}
 
-
-		if(index == -1)
-		{
-			if (e1.isDirected())
-			{
-				if( mapNodesDirectedEdges != null)
-					mapNodesDirectedEdges.put(id1, position);
-				else
-				{
-					mapNodesDirectedEdges = new HashMap<Long,Integer>();
-					mapNodesDirectedEdges.put(id1, position);
-					mapEdgeDirectedInteractions.put(i1, mapNodesDirectedEdges);
-				}
-			}
-			else
-			{
-				if( mapNodesEdges != null)
-				{
-					mapNodesEdges.put(id1, position);
-					mapNodesEdges.put(id2, position);
-				}
-				else
-				{
-					mapNodesEdges = new HashMap<Long,Integer>();
-					mapNodesEdges.put(id1, position);
-					mapNodesEdges.put(id2, position);
-					mapEdgeInteractions.put(i1, mapNodesEdges);
-				}
-
-			}
+		if (maps.length == 1) {
+			final long prefix = (long) type << (nodeIndexBits << 1);
+			return maps[0].putIfAbsent(prefix | getUniqueIdNumber(iSource, iTarget, nodeIndexBits), position);
 		}
-
-		return index;
+		return maps[type].putIfAbsent(getUniqueIdNumber(iSource, iTarget, 32), position);
 	}
 
-	private long getUniqueIdNumber(int a, int b)
+	private static long getUniqueIdNumber(int a, int b, int bits)
 	{
-		return ((long) a << 32) | b ;
+		return ((long) a << bits) | b ;
 	}
 
-	protected abstract void proprocess(CyNetwork toNetwork);
+	/**
+	 * Prepare the merged network before merging, and anything that depends
+	 * only on the networks to be merged
+	 *
+	 * @param toNetwork
+	 *            the merged network
+	 * @param fromNetworks
+	 *            the networks to be merged, in the order of their network
+	 *            indexes in the matched groups
+	 */
+	protected abstract void proprocess(CyNetwork toNetwork, List<CyNetwork> fromNetworks);
 
 	/**
 	 * {@inheritDoc}
@@ -254,129 +537,132 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 		}
 
 		//long startTime = System.currentTimeMillis();
-		proprocess(mergedNetwork);
+		releaseMatches();
+
+		proprocess(mergedNetwork, fromNetworks);
 
 		mapNodesIndex.clear();
-		mapEdgeDirectedInteractions.clear();
-		mapEdgeInteractions.clear();
-		mapEdgeDirectedNoInteractions.clear();
-		mapEdgeNoInteractions.clear();
+		mapInteractionIds.clear();
 		// get node matching list
-		List<Map<CyNetwork, Set<CyNode>>> matchedNodeList = getMatchedList(fromNetworks, true);
-		List<Map<CyNetwork, Set<CyNode>>> differenceNodeList = null;
-		if(op == Operation.DIFFERENCE && subtractOnlyUnconnectedNodes) {
-			differenceNodeList = matchedNodeList;
-		}
+		startProgressStep(0.0d, 0.2d);
+		final MatchedGroups<CyNode> matchedNodeList = getMatchedNodeList(fromNetworks, op);
 
 		// Check cancel status
-		if(interrupted) {
+		if(matchedNodeList == null || interrupted) {
 			return null;
 		}
 
-		matchedNodeList = selectMatchedGOList(matchedNodeList, op, fromNetworks);
+		final BitSet selectedNodes = selectMatchedGOList(matchedNodeList, op);
 
-		Map<CyNode, Map<CyNetwork, Set<CyNode>>> differenceNodeMap = null;
-		if(differenceNodeList != null) {
-			differenceNodeList.removeAll(matchedNodeList);
-			differenceNodeMap = new HashMap<CyNode, Map<CyNetwork, Set<CyNode>>>();
-			for(Map<CyNetwork, Set<CyNode>> mapNetNode: differenceNodeList) {
-				Set<CyNode> nodes = mapNetNode.get(fromNetworks.get(0));
-				if(nodes != null) {
-					//remove networks besides the first
-					for(int i=1; i<fromNetworks.size(); i++)
-						mapNetNode.remove(fromNetworks.get(i));
-
-					for(CyNode node: nodes)
-						differenceNodeMap.put(node, mapNetNode);
-				}
+		// nodes of the first network that are not in the difference, only
+		// merged if they are needed by an edge
+		MatchedGroups<CyNode> differenceNodeList = null;
+		Map<CyNode, Integer> differenceNodeMap = null;
+		if(op == Operation.DIFFERENCE && subtractOnlyUnconnectedNodes) {
+			// the same groups without the members of the other networks
+			differenceNodeList = matchedNodeList.getNetworkGroups(0);
+			differenceNodeMap = new HashMap<CyNode, Integer>();
+			for (int i = selectedNodes.nextClearBit(0); i < differenceNodeList.size(); i = selectedNodes.nextClearBit(i + 1)) {
+				for (int m = differenceNodeList.getMemberStart(i); m < differenceNodeList.getMemberEnd(i); m++)
+					differenceNodeMap.put(differenceNodeList.getMember(m), i);
 			}
 		}
 		final Map<CyNode, CyNode> mapNN = new HashMap<CyNode, CyNode>();
 
-		// merge nodes in the list
+		// subnetworks of the same root network share their nodes and edges,
+		// which are added by reference to a merged network of that root,
+		// unless merged values would be written to their shared rows
+		final CySubNetwork sharedRootNetwork = getSharedRootNetwork(mergedNetwork, fromNetworks);
+		final CySubNetwork nodeRootNetwork = isAddedByReference(CyNode.class) ? sharedRootNetwork : null;
+		final CySubNetwork edgeRootNetwork = isAddedByReference(CyEdge.class) ? sharedRootNetwork : null;
+
+		// create the merged nodes first, their attributes are merged with
+		// those of the nodes created for the edges of a difference
 		taskMonitor.setStatusMessage("Merging nodes...");
-		final long nNode = matchedNodeList.size();
-		for (int i = 0; i < nNode; i++) {
+		startProgressStep(0.2d, 0.3d);
+		final int nNode = selectedNodes.cardinality();
+		final int[] nodeGroups = new int[nNode];
+		final CyNode[] newNodes = new CyNode[nNode];
+		int nMergedNode = 0;
+		for (int i = selectedNodes.nextSetBit(0); i >= 0; i = selectedNodes.nextSetBit(i + 1)) {
 			if (interrupted)
 				return null;
+			setStepProgress(nMergedNode, nNode);
 
-			taskMonitor.setProgress(((double)(i + 1)/ nNode)*0.5d);
-
-			final Map<CyNetwork, Set<CyNode>> mapNetNode = matchedNodeList.get(i);
-			if (mapNetNode == null || mapNetNode.isEmpty())
+			if (matchedNodeList.getMemberStart(i) == matchedNodeList.getMemberEnd(i))
 				continue;
 
-			CyNode node = mergedNetwork.addNode();
-			mergeNode(mapNetNode, node, mergedNetwork);
+			CyNode node = addNode(mergedNetwork, nodeRootNetwork, matchedNodeList, i);
+			nodeGroups[nMergedNode] = i;
+			newNodes[nMergedNode++] = node;
 
-			for (Set<CyNode> nodes_ori: mapNetNode.values()) {
-				for (CyNode node_ori: nodes_ori) {
-					mapNN.put(node_ori, node);
-				}
-			}
+			for (int m = matchedNodeList.getMemberStart(i); m < matchedNodeList.getMemberEnd(i); m++)
+				mapNN.put(matchedNodeList.getMember(m), node);
 		}
 
-		// match edges
+		// match edges, only between nodes that can be merged: the nodes of the
+		// selected groups, and the nodes of the first network for the difference.
+		// The edges are matched on the groups in mapNodesIndex, so an edge is
+		// left out with all the edges it could match
 		taskMonitor.setStatusMessage("Merging edges...");
-		List<Map<CyNetwork, Set<CyEdge>>> matchedEdgeList = getMatchedList(fromNetworks, false);
+		startProgressStep(0.3d, 0.4d);
+		final BitSet edgeNodeGroups = new BitSet(matchedNodeList.size());
+		for (CyNode node: mapNN.keySet())
+			edgeNodeGroups.set(mapNodesIndex.get(node));
+		if (differenceNodeMap != null) {
+			for (CyNode node: differenceNodeMap.keySet())
+				edgeNodeGroups.set(mapNodesIndex.get(node));
+		}
+		final MatchedGroups<CyEdge> matchedEdgeList = getMatchedEdgeList(fromNetworks, edgeNodeGroups);
 
 		// Check cancel status
-		if(interrupted) {
+		if(matchedEdgeList == null || interrupted) {
 			return null;
 		}
 
     // if nodesOnly is true, treat all operations as union operation
-		if(nodesOnly){
-		matchedEdgeList = selectMatchedGOList(matchedEdgeList, Operation.UNION, fromNetworks);
-		} else {
-		matchedEdgeList = selectMatchedGOList(matchedEdgeList, op, fromNetworks);
-		}
-
-		// merge edges
-		final double nEdge = matchedEdgeList.size();
-
-		for (int i = 0; i < nEdge; i++) {
+		final BitSet selectedEdges = selectMatchedGOList(matchedEdgeList, nodesOnly ? Operation.UNION : op);
+
+		// create the merged edges first, then merge their attributes
+		startProgressStep(0.4d, 0.5d);
+		final int nEdge = selectedEdges.cardinality();
+		final int[] edgeGroups = new int[nEdge];
+		final CyEdge[] newEdges = new CyEdge[nEdge];
+		int nMergedEdge = 0;
+		// nodes of the first network created for edges of the difference
+		final List<Integer> differenceNodeGroups = new ArrayList<Integer>();
+		final List<CyNode> newDifferenceNodes = new ArrayList<CyNode>();
+
+		for (int i = selectedEdges.nextSetBit(0); i >= 0; i = selectedEdges.nextSetBit(i + 1)) {
 			if (interrupted)
 				return null;
+			setStepProgress(nMergedEdge, nEdge);
 
-			taskMonitor.setProgress(((double)(i + 1) / nEdge)*0.5d + 0.5d);
-
-			final Map<CyNetwork, Set<CyEdge>> mapNetEdge = matchedEdgeList.get(i);
-			if (mapNetEdge == null || mapNetEdge.isEmpty())
+			if (matchedEdgeList.getMemberStart(i) == matchedEdgeList.getMemberEnd(i))
 				continue;
 
 			// get the source and target nodes in merged network
-			final Iterator<Set<CyEdge>> itEdges = mapNetEdge.values().iterator();
-
-			final Set<CyEdge> edgeSet = itEdges.next();
-			if (edgeSet == null || edgeSet.isEmpty()) {
-				throw new IllegalStateException("Null or empty edge set");
-			}
-
-			final CyEdge originalEdge = edgeSet.iterator().next();
+			final CyEdge originalEdge = matchedEdgeList.getMember(matchedEdgeList.getMemberStart(i));
 			CyNode source = mapNN.get(originalEdge.getSource());
 			CyNode target = mapNN.get(originalEdge.getTarget());
 
 			if(differenceNodeMap != null) {
 				// For difference, need to create nodes if necessary.
+				final Integer sourceGroup = source == null ? differenceNodeMap.get(originalEdge.getSource()) : null;
+				final Integer targetGroup = target == null ? differenceNodeMap.get(originalEdge.getTarget()) : null;
+				// the nodes of the other networks are not created, when
+				// merging nodes only the edges are those of all the networks
+				if ((source == null && sourceGroup == null) || (target == null && targetGroup == null))
+					continue;
 
 				if(source == null) {
-					CyNode originalSource = originalEdge.getSource();
-					source = mergedNetwork.addNode();
-					Map<CyNetwork, Set<CyNode>> mapNetNode = differenceNodeMap.get(originalSource);
-					mergeNode(mapNetNode, source, mergedNetwork);
-					for(Set<CyNode> nodes: mapNetNode.values())
-						for(CyNode node: nodes)
-							mapNN.put(node, source);
+					source = addDifferenceNode(differenceNodeList, sourceGroup,
+							mergedNetwork, nodeRootNetwork, mapNN, differenceNodeGroups, newDifferenceNodes);
 				}
-				if(target == null) {
-					CyNode originalTarget = originalEdge.getTarget();
-					target = mergedNetwork.addNode();
-					Map<CyNetwork, Set<CyNode>> mapNetNode = differenceNodeMap.get(originalTarget);
-					mergeNode(mapNetNode, target, mergedNetwork);
-					for(Set<CyNode> nodes: mapNetNode.values())
-						for(CyNode node: nodes)
-							mapNN.put(node, target);
+				// the target may just have been created as the source
+				if(target == null && (target = mapNN.get(originalEdge.getTarget())) == null) {
+					target = addDifferenceNode(differenceNodeList, targetGroup,
+							mergedNetwork, nodeRootNetwork, mapNN, differenceNodeGroups, newDifferenceNodes);
 				}
 			}
 			else if (source == null || target == null) { // some of the node may be
@@ -387,8 +673,51 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 
 			final boolean directed = originalEdge.isDirected();
 
-			CyEdge edge = mergedNetwork.addEdge(source, target, directed);
-			mergeEdge(mapNetEdge, edge, mergedNetwork);
+			final CyEdge sharedEdge = edgeRootNetwork == null ? null : matchedEdgeList.getSingleMember(i);
+			CyEdge edge;
+			if (sharedEdge != null && sharedEdge.getSource() == source && sharedEdge.getTarget() == target
+					&& edgeRootNetwork.addEdge(sharedEdge))
+				edge = sharedEdge;
+			else
+				edge = mergedNetwork.addEdge(source, target, directed);
+			edgeGroups[nMergedEdge] = i;
+			newEdges[nMergedEdge++] = edge;
+		}
+
+		// then merge the attributes of all the nodes, once created
+		taskMonitor.setStatusMessage("Merging nodes...");
+		startProgressStep(0.5d, 0.7d);
+		final int[] differenceGroups = new int[differenceNodeGroups.size()];
+		for (int i = 0; i < differenceGroups.length; i++)
+			differenceGroups[i] = differenceNodeGroups.get(i);
+		mergeNodes(matchedNodeList, nodeGroups, newNodes, nMergedNode, differenceNodeList, differenceGroups,
+				newDifferenceNodes.toArray(new CyNode[differenceGroups.length]), mergedNetwork);
+		if (interrupted)
+			return null;
+
+		taskMonitor.setStatusMessage("Merging edges...");
+		startProgressStep(0.7d, 1.0d);
+		mergeEdges(matchedEdgeList, edgeGroups, newEdges, nMergedEdge, mergedNetwork);
+		if (interrupted)
+			return null;
+		startProgressStep(1.0d, 1.0d);
+
+		// the provenance is only kept for an IncrementalNetworkMerge, which
+		// releases it once indexed, and the node indexes are not needed anymore
+		mapNodesIndex = new HashMap<CyNode,Integer>();
+		if (incremental) {
+			// the nodes of the difference groups are members of the same groups
+			final int nDifferenceNode = newDifferenceNodes.size();
+			mergedNodeList = matchedNodeList;
+			mergedNodeGroups = Arrays.copyOf(nodeGroups, nMergedNode + nDifferenceNode);
+			mergedNodes = Arrays.copyOf(newNodes, nMergedNode + nDifferenceNode);
+			for (int i = 0; i < nDifferenceNode; i++) {
+				mergedNodeGroups[nMergedNode + i] = differenceNodeGroups.get(i);
+				mergedNodes[nMergedNode + i] = newDifferenceNodes.get(i);
+			}
+			mergedEdgeList = matchedEdgeList;
+			mergedEdgeGroups = Arrays.copyOf(edgeGroups, nMergedEdge);
+			mergedEdges = Arrays.copyOf(newEdges, nMergedEdge);
 		}
 
 		// Last step -- merge the network attributes
@@ -400,19 +729,67 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 	}
 
 	/**
-	 * Get a list of matched nodes/edges
+	 * @return the merged network if it is a subnetwork of the root network
+	 *         of all the networks to merge, null otherwise
+	 */
+	protected static CySubNetwork getSharedRootNetwork(final CyNetwork mergedNetwork, final List<CyNetwork> networks) {
+		if (!(mergedNetwork instanceof CySubNetwork))
+			return null;
+
+		final CyRootNetwork root = ((CySubNetwork) mergedNetwork).getRootNetwork();
+		for (final CyNetwork net : networks) {
+			if (!(net instanceof CySubNetwork) || ((CySubNetwork) net).getRootNetwork() != root)
+				return null;
+		}
+		return (CySubNetwork) mergedNetwork;
+	}
+
+	/**
+	 * Add the node of a group to the merged network: the node itself if all
+	 * the members of the group are the same node of the shared root network,
+	 * a new node otherwise.
+	 */
+	private static CyNode addNode(final CyNetwork mergedNetwork, final CySubNetwork sharedRootNetwork,
+			final MatchedGroups<CyNode> matchedNodeList, final int group) {
+		if (sharedRootNetwork != null) {
+			final CyNode node = matchedNodeList.getSingleMember(group);
+			if (node != null && sharedRootNetwork.addNode(node))
+				return node;
+		}
+		return mergedNetwork.addNode();
+	}
+
+	/**
+	 * Create the node of a group of nodes of the first network that are not
+	 * in the difference, for an edge of the difference. Its attributes are
+	 * merged with those of the other merged nodes.
+	 *
+	 * @return the new node
+	 */
+	private CyNode addDifferenceNode(final MatchedGroups<CyNode> differenceNodeList, final Integer group,
+			final CyNetwork mergedNetwork, final CySubNetwork sharedRootNetwork, final Map<CyNode, CyNode> mapNN,
+			final List<Integer> groups, final List<CyNode> newNodes) {
+		final CyNode node = addNode(mergedNetwork, sharedRootNetwork, differenceNodeList, group);
+		for (int m = differenceNodeList.getMemberStart(group); m < differenceNodeList.getMemberEnd(group); m++)
+			mapNN.put(differenceNodeList.getMember(m), node);
+		groups.add(group);
+		newNodes.add(node);
+		return node;
+	}
+
+	/**
+	 * Get the groups of matched nodes
 	 *
 	 * @param networks
 	 *            Networks to be merged
-	 * @param isNode
-	 *            true if for node
+	 * @param op
+	 *            the operation, for which the nodes that cannot be selected
+	 *            may be left out of the groups
 	 *
 	 *
-	 * @return list of map from network to node/edge
+	 * @return groups of matched nodes
 	 */
-	private <T extends CyIdentifiable> List<Map<CyNetwork, Set<T>>> getMatchedList(final List<CyNetwork> networks,
-			final boolean isNode) {
-		int index = 0;
+	private MatchedGroups<CyNode> getMatchedNodeList(final List<CyNetwork> networks, final Operation op) {
 		if (networks == null)
 			throw new NullPointerException();
 
@@ -420,137 +797,1001 @@ public abstract class AbstractNetworkMerge implements NetworkMerge {
 			throw new IllegalArgumentException("No merging network");
 		}
 
-		final List<Map<CyNetwork, Set<T>>> matchedList = new ArrayList<Map<CyNetwork, Set<T>>>();
+		// the nodes of an intersection are in groups of nodes sharing a key, so
+		// the nodes whose key is not in all the networks can be left out before
+		// matching, unless the networks share nodes that join groups as well
+		final boolean semiJoin = op == Operation.INTERSECTION && networks.size() > 1
+				&& hasDistinctRootNetworks(networks);
+
+		if (hasLongNodeMatchingKeys(networks)) {
+			final List<long[]> keys = new ArrayList<long[]>(networks.size());
+			final List<BitSet> missing = new ArrayList<BitSet>(networks.size());
+			if (!getNodeMatchingLongKeys(networks, keys, missing))
+				return null;
+			if (!keys.isEmpty()) {
+				final List<BitSet> discarded = semiJoin ? getDiscardedLongKeyNodes(keys, missing) : null;
+				return getLongMatchedNodeList(networks, keys, missing, discarded);
+			}
+		}
+
+		final List<Collection<?>[]> keys = new ArrayList<Collection<?>[]>(networks.size());
+		if (!getNodeMatchingKeys(networks, keys))
+			return null;
+		if (!keys.isEmpty()) {
+			final boolean exact = isNodeMatchingKeyExact(networks);
+			if (exact && hasMultipleNodeMatchingKeys(networks))
+				return getConnectedMatchedNodeList(networks, keys);
+			final List<BitSet> discarded = semiJoin ? getDiscardedKeyNodes(keys) : null;
+			return getIndexedMatchedNodeList(networks, keys, exact, discarded);
+		}
+
+		final MatchedGroups.Builder<CyNode> matchedList = new MatchedGroups.Builder<CyNode>(networks);
 		final int nNet = networks.size();
+		final int nNode = getNodeCount(networks);
+		int done = 0;
 
 		for (int i = 0; i < nNet; i++) {
 			final CyNetwork net1 = networks.get(i);
-			final List<T> graphObjectList;
-			if (isNode)
-				graphObjectList = (List<T>) net1.getNodeList();
-			else
-				graphObjectList = (List<T>) net1.getEdgeList();
 
-			for(T go1: graphObjectList) {
+			for (CyNode node1: net1.getNodeList()) {
 				if (interrupted)
 					return null;
+				setStepProgress(done++, nNode);
 
-				// chech whether any nodes in the matchedNodeList match with
-				// this node if yes, add to the list, else add a new map to the list
-				boolean matched = false;
+				// chech whether any nodes in the matched groups match with
+				// this node if yes, add to the group, else add a new group
+				int index = -1;
 				final int n = matchedList.size();
-				//The search for a match has been split for nodes and edges. Edges don't need to go through the loop
-				//since they can take advantage of node's information in the previous found node match list
-				if(isNode)
-				{
-
-					int j = 0;
-					for (; j < n; j++) {
-						final Map<CyNetwork, Set<T>> matchedGO = matchedList.get(j);
-						for (CyNetwork net2: matchedGO.keySet()) {
-							// if (net1==net2) continue; // assume the same network
-							// don't have nodes match to each other
-							if (!withinNetworkMerge && net1 == net2)
-								continue;
-
-							for (CyIdentifiable go2: matchedGO.get(net2)) {
-								matched = matchNode(net1, (CyNode) go1, net2, (CyNode) go2);
-
-								if (matched) {
-									index = j;
-									mapNodesIndex.put((CyNode) go1, index);
-									break;
-								}
-							}
-						}
-						if (matched) {
+				for (int j = 0; j < n && index == -1; j++) {
+					for (int m = matchedList.getFirstMember(j); m != -1; m = matchedList.getNextMember(m)) {
+						final int i2 = matchedList.getNetworkIndex(m);
+						// don't have nodes of the same network match to each other
+						if (!withinNetworkMerge && i == i2)
+							continue;
+
+						if (matchNode(net1, node1, networks.get(i2), matchedList.getMember(m))) {
+							index = j;
 							break;
 						}
 					}
 				}
-				else
-				{
-					index = matchEdge(net1,(CyEdge) go1,n);
-					if(index >= 0)
-					{
-						//check if the edge belongs to the same network
-						//if so, the match is not valid
-						if(matchedList.get(index).containsKey(net1) && matchedList.get(index).keySet().size() == 1 && !withinNetworkMerge)
-							matched = false;
-						else
-							matched = true;
+				addMatchedNode(matchedList, index, i, node1);
+			}
+		}
+		return matchedList.build();
+	}
+
+	/**
+	 * @return the number of nodes of all the networks
+	 */
+	private static int getNodeCount(final List<CyNetwork> networks) {
+		int nNode = 0;
+		for (CyNetwork net: networks)
+			nNode += net.getNodeCount();
+		return nNode;
+	}
+
+	/**
+	 * @return true if the networks are subnetworks of different root
+	 *         networks, which cannot share nodes
+	 */
+	private static boolean hasDistinctRootNetworks(final List<CyNetwork> networks) {
+		final Set<CyRootNetwork> roots = new HashSet<CyRootNetwork>();
+		for (CyNetwork net: networks) {
+			if (!(net instanceof CySubNetwork) || !roots.add(((CySubNetwork) net).getRootNetwork()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the indexes of the networks from the smallest to the largest
+	 */
+	private static int[] getIncreasingSizeOrder(final int[] sizes) {
+		final Integer[] order = new Integer[sizes.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (i1, i2) -> Integer.compare(sizes[i1], sizes[i2]));
+
+		final int[] result = new int[order.length];
+		for (int i = 0; i < order.length; i++)
+			result[i] = order[i];
+		return result;
+	}
+
+	/**
+	 * Semi-join of the integral keys of the networks, for an intersection:
+	 * the keys of the smallest network are probed in the other networks, from
+	 * the smallest to the largest, and only the keys found in all of them are
+	 * kept, so that no map ever holds more keys than the smallest network.
+	 *
+	 * @return the positions of the nodes of each network without a kept key,
+	 *         or null if the task was interrupted
+	 */
+	private List<BitSet> getDiscardedLongKeyNodes(final List<long[]> keys, final List<BitSet> missing) {
+		final int nNet = keys.size();
+		final int[] sizes = new int[nNet];
+		for (int i = 0; i < nNet; i++)
+			sizes[i] = keys.get(i).length;
+		final int[] order = getIncreasingSizeOrder(sizes);
+
+		// number of networks, in the probing order, found holding each key
+		final long[] smallestKeys = keys.get(order[0]);
+		final BitSet smallestMissing = missing.get(order[0]);
+		final LongIntHashMap keyCounts = new LongIntHashMap(smallestKeys.length, 0);
+		for (int j = 0; j < smallestKeys.length; j++) {
+			if (!smallestMissing.get(j))
+				keyCounts.put(smallestKeys[j], 1);
+		}
+		for (int r = 1; r < nNet; r++) {
+			final long[] netKeys = keys.get(order[r]);
+			final BitSet netMissing = missing.get(order[r]);
+			for (int j = 0; j < netKeys.length; j++) {
+				if (interrupted)
+					return null;
+				if (!netMissing.get(j) && keyCounts.get(netKeys[j]) == r)
+					keyCounts.put(netKeys[j], r + 1);
+			}
+		}
+
+		final List<BitSet> discarded = new ArrayList<BitSet>(nNet);
+		for (int i = 0; i < nNet; i++) {
+			final long[] netKeys = keys.get(i);
+			final BitSet netMissing = missing.get(i);
+			final BitSet netDiscarded = new BitSet(netKeys.length);
+			for (int j = 0; j < netKeys.length; j++) {
+				if (netMissing.get(j) || keyCounts.get(netKeys[j]) != nNet)
+					netDiscarded.set(j);
+			}
+			discarded.add(netDiscarded);
+		}
+		return discarded;
+	}
+
+	/**
+	 * Same as getDiscardedLongKeyNodes for nodes with at most one key each.
+	 * Nodes with several keys join groups through any of them, so that none
+	 * of the nodes can be discarded.
+	 *
+	 * @return the positions of the nodes of each network without a kept key,
+	 *         or null if the nodes cannot be discarded or the task was
+	 *         interrupted
+	 */
+	private List<BitSet> getDiscardedKeyNodes(final List<Collection<?>[]> keys) {
+		final int nNet = keys.size();
+		final int[] sizes = new int[nNet];
+		for (int i = 0; i < nNet; i++)
+			sizes[i] = keys.get(i).length;
+		final int[] order = getIncreasingSizeOrder(sizes);
+
+		// number of networks, in the probing order, found holding each key
+		final Map<Object,Integer> keyCounts = new HashMap<Object,Integer>();
+		for (Collection<?> nodeKeys: keys.get(order[0])) {
+			if (nodeKeys == null)
+				continue;
+			if (nodeKeys.size() > 1)
+				return null;
+			for (Object key: nodeKeys)
+				keyCounts.put(key, 1);
+		}
+		for (int r = 1; r < nNet; r++) {
+			for (Collection<?> nodeKeys: keys.get(order[r])) {
+				if (interrupted)
+					return null;
+				if (nodeKeys == null)
+					continue;
+				if (nodeKeys.size() > 1)
+					return null;
+				for (Object key: nodeKeys) {
+					final Integer count = keyCounts.get(key);
+					if (count != null && count == r)
+						keyCounts.put(key, r + 1);
+				}
+			}
+		}
+
+		final List<BitSet> discarded = new ArrayList<BitSet>(nNet);
+		for (int i = 0; i < nNet; i++) {
+			final Collection<?>[] netKeys = keys.get(i);
+			final BitSet netDiscarded = new BitSet(netKeys.length);
+			for (int j = 0; j < netKeys.length; j++) {
+				final Integer count = netKeys[j] == null || netKeys[j].isEmpty() ? null
+						: keyCounts.get(netKeys[j].iterator().next());
+				if (count == null || count != nNet)
+					netDiscarded.set(j);
+			}
+			discarded.add(netDiscarded);
+		}
+		return discarded;
+	}
+
+	/**
+	 * Read the matching keys of the nodes of all the networks before matching.
+	 * The nodes are split in ranges of each network that are read in parallel.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 * @param keys
+	 *            filled with the keys of the nodes of each network, in the
+	 *            order of their node list, or left empty if the nodes can only
+	 *            be matched pairwise
+	 *
+	 * @return false if the task was interrupted
+	 */
+	private boolean getNodeMatchingKeys(final List<CyNetwork> networks, final List<Collection<?>[]> keys) {
+		final List<NodeRange> ranges = getNodeRanges(networks);
+		final Collection<?>[][] rangeKeys = new Collection<?>[ranges.size()][];
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(ranges.size());
+		for (int r = 0; r < ranges.size(); r++) {
+			final int index = r;
+			final NodeRange range = ranges.get(r);
+			tasks.add(() -> {
+				rangeKeys[index] = getNodeMatchingKeys(range.network, range.getNodes());
+				return null;
+			});
+		}
+		if (!invokeAll(tasks))
+			return false;
+
+		for (int r = 0; r < ranges.size(); r++) {
+			final NodeRange range = ranges.get(r);
+			if (rangeKeys[r] == null) {
+				keys.clear();
+				return true;
+			}
+			if (range.from == 0)
+				keys.add(new Collection<?>[range.nodes.size()]);
+			System.arraycopy(rangeKeys[r], 0, keys.get(keys.size() - 1), range.from, rangeKeys[r].length);
+		}
+		return true;
+	}
+
+	/**
+	 * Read the long matching keys of the nodes of all the networks before
+	 * matching. The nodes are split in ranges of each network that are read in
+	 * parallel. The keys and missing nodes are left empty if the nodes have
+	 * to be matched on their keys of getNodeMatchingKeys.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 * @param keys
+	 *            filled with the keys of the nodes of each network, in the
+	 *            order of their node list
+	 * @param missing
+	 *            filled with the nodes without key of each network
+	 *
+	 * @return false if the task was interrupted
+	 */
+	private boolean getNodeMatchingLongKeys(final List<CyNetwork> networks, final List<long[]> keys,
+			final List<BitSet> missing) {
+		final List<NodeRange> ranges = getNodeRanges(networks);
+		final long[][] rangeKeys = new long[ranges.size()][];
+		final BitSet[] rangeMissing = new BitSet[ranges.size()];
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(ranges.size());
+		for (int r = 0; r < ranges.size(); r++) {
+			final int index = r;
+			final NodeRange range = ranges.get(r);
+			tasks.add(() -> {
+				rangeMissing[index] = new BitSet();
+				rangeKeys[index] = getNodeMatchingLongKeys(range.network, range.getNodes(), rangeMissing[index]);
+				return null;
+			});
+		}
+		if (!invokeAll(tasks))
+			return false;
+
+		for (int r = 0; r < ranges.size(); r++) {
+			final NodeRange range = ranges.get(r);
+			if (rangeKeys[r] == null) {
+				keys.clear();
+				missing.clear();
+				return true;
+			}
+			if (range.from == 0) {
+				keys.add(new long[range.nodes.size()]);
+				missing.add(new BitSet());
+			}
+			System.arraycopy(rangeKeys[r], 0, keys.get(keys.size() - 1), range.from, rangeKeys[r].length);
+			final BitSet netMissing = missing.get(missing.size() - 1);
+			for (int i = rangeMissing[r].nextSetBit(0); i >= 0; i = rangeMissing[r].nextSetBit(i + 1))
+				netMissing.set(range.from + i);
+		}
+		return true;
+	}
+
+	/**
+	 * Split the nodes of the networks in ranges to be read in parallel. Every
+	 * network has at least one range, and the ranges are in the order of the
+	 * networks and of their node lists.
+	 */
+	private static List<NodeRange> getNodeRanges(final List<CyNetwork> networks) {
+		final List<List<CyNode>> nodeLists = new ArrayList<List<CyNode>>(networks.size());
+		int nNodes = 0;
+		for (CyNetwork net: networks) {
+			final List<CyNode> nodes = net.getNodeList();
+			nodeLists.add(nodes);
+			nNodes += nodes.size();
+		}
+
+		final int nTasks = Math.min(ForkJoinPool.getCommonPoolParallelism(), nNodes / MIN_NODES_PER_TASK);
+		final int rangeSize = nTasks <= 1 ? Integer.MAX_VALUE : (nNodes + nTasks - 1) / nTasks;
+		final List<NodeRange> ranges = new ArrayList<NodeRange>();
+		for (int i = 0; i < networks.size(); i++) {
+			final List<CyNode> nodes = nodeLists.get(i);
+			int from = 0;
+			do {
+				final int to = (int) Math.min(nodes.size(), (long) from + rangeSize);
+				ranges.add(new NodeRange(networks.get(i), nodes, from, to));
+				from = to;
+			} while (from < nodes.size());
+		}
+		return ranges;
+	}
+
+	/**
+	 * Run the tasks on the common fork/join pool, or on the calling thread if
+	 * there is only one.
+	 *
+	 * @return false if the task was interrupted
+	 */
+	private boolean invokeAll(final List<Callable<Void>> tasks) {
+		try {
+			if (tasks.size() == 1) {
+				tasks.get(0).call();
+			} else {
+				for (Future<Void> future: ForkJoinPool.commonPool().invokeAll(tasks))
+					future.get();
+			}
+		} catch (InterruptedException e) {
+			// cancel the merge, and keep the interrupt status for the caller
+			interrupted = true;
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return !interrupted;
+	}
+
+	/**
+	 * Get a list of matched edges. Edges don't need to be compared with each
+	 * other since they can take advantage of the node match list: two edges
+	 * match if they have the same interaction, directedness and matched end
+	 * nodes. The interactions are encoded into ids in a first pass, then the
+	 * edges are partitioned by the index of their first node in the key so
+	 * that matching edges always fall in the same partition. The partitions
+	 * are matched in parallel, each with its own edge index, and their groups
+	 * are put back in the order in which a sequential matching creates them.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 * @param nodeGroups
+	 *            the groups of the nodes whose edges are matched, the edges of
+	 *            the other nodes are left out, or null for all the nodes
+	 *
+	 * @return groups of matched edges
+	 */
+	private MatchedGroups<CyEdge> getMatchedEdgeList(final List<CyNetwork> networks, final BitSet nodeGroups) {
+		final int nNet = networks.size();
+		final List<List<CyEdge>> edgeLists = new ArrayList<List<CyEdge>>(nNet);
+		int nEdges = 0;
+		for (CyNetwork net: networks) {
+			final List<CyEdge> edges = net.getEdgeList();
+			edgeLists.add(edges);
+			nEdges += edges.size();
+		}
+
+		final CyEdge[] edges = new CyEdge[nEdges];
+		final int[] netIndexes = new int[nEdges];
+		final int[] types = new int[nEdges];
+		final int[] sources = new int[nEdges];
+		final int[] targets = new int[nEdges];
+		int maxNodeIndex = 0;
+		int ordinal = 0;
+		for (int i = 0; i < nNet; i++) {
+			final CyNetwork net = networks.get(i);
+			for (CyEdge edge: edgeLists.get(i)) {
+				if (edge.getSource() == null || edge.getTarget() == null)
+					throw new NullPointerException();
+				// the nodes left out of the groups are not merged, nor their edges
+				final Integer source = mapNodesIndex.get(edge.getSource());
+				final Integer target = mapNodesIndex.get(edge.getTarget());
+				if (source == null || target == null
+						|| (nodeGroups != null && !(nodeGroups.get(source) && nodeGroups.get(target))))
+					continue;
+
+				final String interaction = net.getRow(edge).get(CyEdge.INTERACTION, String.class);
+				int id = 0;
+				if (interaction != null) {
+					Integer interactionId = mapInteractionIds.get(interaction);
+					if (interactionId == null) {
+						interactionId = mapInteractionIds.size() + 1;
+						mapInteractionIds.put(interaction, interactionId);
 					}
-					else
-						matched = false;
+					id = interactionId;
 				}
-				if (!matched) {
-					// no matched node/edge found, add new map to the list
-					final Map<CyNetwork, Set<T>> matchedGO = new LinkedHashMap<CyNetwork, Set<T>>();
-					Set<T> gos1 = new HashSet<T>();
-					gos1.add(go1);
-					matchedGO.put(net1, gos1);
-					if(isNode)
-						mapNodesIndex.put((CyNode) go1, n);
-					matchedList.add(matchedGO);
+
+				edges[ordinal] = edge;
+				netIndexes[ordinal] = i;
+				types[ordinal] = edge.isDirected() ? (id << 1) | 1 : id << 1;
+				sources[ordinal] = source;
+				targets[ordinal] = target;
+				maxNodeIndex = Math.max(maxNodeIndex, Math.max(sources[ordinal], targets[ordinal]));
+				ordinal++;
+			}
+		}
+		nEdges = ordinal;
+
+		final int nTypes = (mapInteractionIds.size() + 1) << 1;
+		nodeIndexBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxNodeIndex));
+		final int typeBits = 32 - Integer.numberOfLeadingZeros(nTypes - 1);
+		final boolean packed = typeBits + (nodeIndexBits << 1) <= 64;
+
+		// partition the edges, keeping the edges of each partition in order
+		final int nShards = nEdges < MIN_EDGES_PER_SHARD << 1 ? 1
+				: Math.min(ForkJoinPool.getCommonPoolParallelism(), nEdges / MIN_EDGES_PER_SHARD);
+		final int[] shards = new int[nEdges];
+		final int[] shardSizes = new int[nShards];
+		for (int k = 0; k < nEdges; k++) {
+			final int first = (types[k] & 1) == 1 ? sources[k] : Math.min(sources[k], targets[k]);
+			shards[k] = first % nShards;
+			shardSizes[shards[k]]++;
+		}
+		final int[][] shardEdges = new int[nShards][];
+		final LongIntHashMap[][] shardMaps = new LongIntHashMap[nShards][];
+		for (int shard = 0; shard < nShards; shard++) {
+			shardEdges[shard] = new int[shardSizes[shard]];
+			shardMaps[shard] = new LongIntHashMap[packed ? 1 : nTypes];
+		}
+		final int[][] typeCounts = new int[nShards][packed ? 1 : nTypes];
+		Arrays.fill(shardSizes, 0);
+		for (int k = 0; k < nEdges; k++) {
+			final int shard = shards[k];
+			shardEdges[shard][shardSizes[shard]++] = k;
+			typeCounts[shard][packed ? 0 : types[k]]++;
+		}
+		for (int shard = 0; shard < nShards; shard++) {
+			for (int m = 0; m < shardMaps[shard].length; m++)
+				shardMaps[shard][m] = new LongIntHashMap(typeCounts[shard][m]);
+		}
+
+		// the groups are identified by the position of the edge that created them
+		final int[] groups = new int[nEdges];
+		final int[] groupNetworks = new int[nEdges];
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(nShards);
+		for (int shard = 0; shard < nShards; shard++) {
+			final int[] ordinals = shardEdges[shard];
+			final LongIntHashMap[] maps = shardMaps[shard];
+			tasks.add(() -> {
+				matchEdges(netIndexes, types, sources, targets, ordinals, maps, groups, groupNetworks);
+				return null;
+			});
+		}
+		if (!invokeAll(tasks))
+			return null;
+
+		final MatchedGroups.Builder<CyEdge> matchedList = new MatchedGroups.Builder<CyEdge>(networks, nEdges);
+		for (int k = 0; k < nEdges; k++) {
+			setStepProgress(k, nEdges);
+			// the edge creating a group comes before the other edges of the group
+			if (groups[k] == k)
+				groups[k] = matchedList.newGroup();
+			else
+				groups[k] = groups[groups[k]];
+			matchedList.add(groups[k], netIndexes[k], edges[k]);
+		}
+		return matchedList.build();
+	}
+
+	/**
+	 * Match the edges of one partition. The edges are identified by their
+	 * position in the edge arrays and must be given in increasing order. Each
+	 * edge gets in groups the position of the edge that created its group, and
+	 * the edges creating a group get in groupNetworks the index of the network
+	 * of the group, or -1 once edges from several networks joined it.
+	 */
+	private void matchEdges(final int[] netIndexes, final int[] types, final int[] sources, final int[] targets,
+			final int[] ordinals, final LongIntHashMap[] maps, final int[] groups, final int[] groupNetworks) {
+		for (int k: ordinals) {
+			if (interrupted)
+				return;
+
+			final int index = matchEdge(maps, types[k], sources[k], targets[k], k);
+			//check if the edge belongs to the same network
+			//if so, the match is not valid
+			final boolean matched = index >= 0 && !(groupNetworks[index] == netIndexes[k] && !withinNetworkMerge);
+			if (!matched) {
+				// no matched edge found, create a new group
+				groups[k] = k;
+				groupNetworks[k] = netIndexes[k];
+			}
+			else
+			{
+				groups[k] = index;
+				if (groupNetworks[index] != netIndexes[k])
+					groupNetworks[index] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Get a list of matched nodes by looking up the candidate matches of each
+	 * node through its matching keys, instead of comparing it with all the
+	 * nodes already matched. The groups and mapNodesIndex are the same as the
+	 * ones of the pairwise search: a node joins the first group holding a node
+	 * that matches it from another network (or from any network for within
+	 * network merge), or the group of the same node in another network.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 * @param keys
+	 *            matching keys of the nodes of each network
+	 * @param exact
+	 *            true if sharing a key is enough to match
+	 * @param discarded
+	 *            positions of the nodes of each network left out of the
+	 *            groups, or null
+	 *
+	 * @return groups of matched nodes
+	 */
+	private MatchedGroups<CyNode> getIndexedMatchedNodeList(final List<CyNetwork> networks,
+			final List<Collection<?>[]> keys, final boolean exact, final List<BitSet> discarded) {
+		final MatchedGroups.Builder<CyNode> matchedList = new MatchedGroups.Builder<CyNode>(networks);
+		// with exact keys, only the first groups holding each key are needed,
+		// otherwise all the nodes holding the key are candidates to check
+		final Map<Object,KeyGroups> mapKeyGroups = new HashMap<Object,KeyGroups>();
+		final Map<Object,List<KeyCandidate>> mapKeyCandidates = new HashMap<Object,List<KeyCandidate>>();
+
+		final int nNet = networks.size();
+		final int nNode = getNodeCount(networks);
+		int done = 0;
+		for (int i = 0; i < nNet; i++) {
+			final CyNetwork net = networks.get(i);
+			final List<CyNode> nodes = net.getNodeList();
+			final Collection<?>[] netKeys = keys.get(i);
+			final BitSet netDiscarded = discarded == null ? null : discarded.get(i);
+
+			for (int j = 0; j < netKeys.length; j++) {
+				if (interrupted)
+					return null;
+				setStepProgress(done++, nNode);
+				if (netDiscarded != null && netDiscarded.get(j))
+					continue;
+
+				final CyNode node = nodes.get(j);
+				final Collection<?> nodeKeys = netKeys[j] == null ? Collections.emptySet() : netKeys[j];
+
+				int index = exact ? getExactKeyGroup(mapKeyGroups, nodeKeys, net)
+						: getCandidateKeyGroup(mapKeyCandidates, nodeKeys, net, node);
+
+				// the same node shared by several networks always matches
+				final Integer sameNodeIndex = mapNodesIndex.get(node);
+				if (sameNodeIndex != null && (index == -1 || sameNodeIndex < index))
+					index = sameNodeIndex;
+
+				index = addMatchedNode(matchedList, index, i, node);
+
+				for (Object key: nodeKeys) {
+					if (exact) {
+						final KeyGroups keyGroups = mapKeyGroups.get(key);
+						if (keyGroups == null)
+							mapKeyGroups.put(key, new KeyGroups(index, net));
+						else
+							keyGroups.add(index, net);
+					} else {
+						List<KeyCandidate> candidates = mapKeyCandidates.get(key);
+						if (candidates == null) {
+							candidates = new ArrayList<KeyCandidate>(1);
+							mapKeyCandidates.put(key, candidates);
+						}
+						candidates.add(new KeyCandidate(net, node, index));
+					}
 				}
-				else
-				{
-					Set<T> gos1 = matchedList.get(index).get(net1);
-					if (gos1 == null) {
-						gos1 = new HashSet<T>();
-						matchedList.get(index).put(net1, gos1);
+			}
+		}
+
+		return matchedList.build();
+	}
+
+	/**
+	 * Get a list of matched nodes by grouping the nodes on their integral
+	 * keys. Same as getIndexedMatchedNodeList with exact keys, but the keys
+	 * and the groups holding them are kept in primitive arrays and maps.
+	 *
+	 * @param networks
+	 *            Networks to be merged
+	 * @param keys
+	 *            matching keys of the nodes of each network
+	 * @param missing
+	 *            positions of the nodes without key in each network
+	 * @param discarded
+	 *            positions of the nodes of each network left out of the
+	 *            groups, or null
+	 *
+	 * @return groups of matched nodes
+	 */
+	private MatchedGroups<CyNode> getLongMatchedNodeList(final List<CyNetwork> networks,
+			final List<long[]> keys, final List<BitSet> missing, final List<BitSet> discarded) {
+		final int nNet = networks.size();
+		int nNode = 0;
+		for (int i = 0; i < nNet; i++)
+			nNode += keys.get(i).length - (discarded == null ? 0 : discarded.get(i).cardinality());
+		final MatchedGroups.Builder<CyNode> matchedList = new MatchedGroups.Builder<CyNode>(networks, nNode);
+
+		// for each key: lowest group holding it, the network it came from in
+		// that group, and lowest group holding it from any other network
+		final LongIntHashMap mapKeySlot = new LongIntHashMap(nNode);
+		int[] first = new int[16];
+		int[] firstNetwork = new int[16];
+		int[] other = new int[16];
+		int nSlot = 0;
+
+		final int nAllNode = getNodeCount(networks);
+		int done = 0;
+		for (int i = 0; i < nNet; i++) {
+			final CyNetwork net = networks.get(i);
+			final List<CyNode> nodes = net.getNodeList();
+			final long[] netKeys = keys.get(i);
+			final BitSet netMissing = missing.get(i);
+			final BitSet netDiscarded = discarded == null ? null : discarded.get(i);
+
+			for (int j = 0; j < netKeys.length; j++) {
+				if (interrupted)
+					return null;
+				setStepProgress(done++, nAllNode);
+				if (netDiscarded != null && netDiscarded.get(j))
+					continue;
+
+				final CyNode node = nodes.get(j);
+				final boolean hasKey = !netMissing.get(j);
+				final int slot = hasKey ? mapKeySlot.get(netKeys[j]) : -1;
+
+				int index = -1;
+				if (slot != -1)
+					index = withinNetworkMerge || firstNetwork[slot] != i ? first[slot] : other[slot];
+
+				// the same node shared by several networks always matches
+				final Integer sameNodeIndex = mapNodesIndex.get(node);
+				if (sameNodeIndex != null && (index == -1 || sameNodeIndex < index))
+					index = sameNodeIndex;
+
+				index = addMatchedNode(matchedList, index, i, node);
+
+				if (!hasKey)
+					continue;
+
+				if (slot == -1) {
+					if (nSlot == first.length) {
+						first = Arrays.copyOf(first, nSlot * 2);
+						firstNetwork = Arrays.copyOf(firstNetwork, nSlot * 2);
+						other = Arrays.copyOf(other, nSlot * 2);
+					}
+					first[nSlot] = index;
+					firstNetwork[nSlot] = i;
+					other[nSlot] = -1;
+					mapKeySlot.put(netKeys[j], nSlot++);
+				} else if (index < first[slot]) {
+					if (i != firstNetwork[slot]) {
+						other[slot] = first[slot];
+						firstNetwork[slot] = i;
 					}
-					gos1.add(go1);
+					first[slot] = index;
+				} else if (i != firstNetwork[slot] && (other[slot] == -1 || index < other[slot])) {
+					other[slot] = index;
 				}
 			}
 		}
-		return matchedList;
+
+		return matchedList.build();
 	}
 
+	/**
+	 * Add a node to a group of the matched list, or to a new group
+	 *
+	 * @param index
+	 *            the index of the group, or -1 for a new group
+	 * @param networkIndex
+	 *            the index of the network of the node
+	 *
+	 * @return the index of the group
+	 */
+	private int addMatchedNode(final MatchedGroups.Builder<CyNode> matchedList, int index,
+			final int networkIndex, final CyNode node) {
+		index = matchedList.add(index, networkIndex, node);
+		mapNodesIndex.put(node, index);
+		return index;
+	}
 
 	/**
-	 * Select nodes for merge according to different op
+	 * Get a list of matched nodes for nodes with several exact keys: an
+	 * inverted index from each key to the nodes holding it joins the nodes
+	 * sharing a key from different networks (or from any network for within
+	 * network merge) into disjoint sets, which are the groups. Matching is
+	 * transitive, and the groups are ordered by their first node in the order
+	 * of the networks and of their nodes.
 	 *
 	 * @param networks
 	 *            Networks to be merged
+	 * @param keys
+	 *            matching keys of the nodes of each network
+	 *
+	 * @return groups of matched nodes
+	 */
+	private MatchedGroups<CyNode> getConnectedMatchedNodeList(final List<CyNetwork> networks,
+			final List<Collection<?>[]> keys) {
+		final int nNet = networks.size();
+		final List<List<CyNode>> nodeLists = new ArrayList<List<CyNode>>(nNet);
+		// nodes of all the networks are numbered in order, starting at offsets[i] for network i
+		final int[] offsets = new int[nNet + 1];
+		for (int i = 0; i < nNet; i++) {
+			final List<CyNode> nodes = networks.get(i).getNodeList();
+			nodeLists.add(nodes);
+			offsets[i + 1] = offsets[i] + keys.get(i).length;
+		}
+
+		final Map<Object,KeyNodes> mapKeyNodes = new HashMap<Object,KeyNodes>();
+		final Map<CyNode,Integer> mapSameNode = new HashMap<CyNode,Integer>();
+		final DisjointSet sets = new DisjointSet(offsets[nNet]);
+		for (int i = 0; i < nNet; i++) {
+			final Collection<?>[] netKeys = keys.get(i);
+			final List<CyNode> nodes = nodeLists.get(i);
+			for (int j = 0; j < netKeys.length; j++) {
+				if (interrupted)
+					return null;
+
+				final int id = offsets[i] + j;
+				setStepProgress(id, offsets[nNet]);
+				// the same node shared by several networks always matches
+				final Integer sameNode = mapSameNode.putIfAbsent(nodes.get(j), id);
+				if (sameNode != null)
+					sets.union(sameNode, id);
+
+				if (netKeys[j] == null)
+					continue;
+
+				for (Object key: netKeys[j]) {
+					KeyNodes keyNodes = mapKeyNodes.get(key);
+					if (keyNodes == null) {
+						keyNodes = new KeyNodes(i);
+						mapKeyNodes.put(key, keyNodes);
+					}
+					keyNodes.add(id, i);
+				}
+			}
+		}
+
+		for (KeyNodes keyNodes: mapKeyNodes.values()) {
+			if (interrupted)
+				return null;
+
+			if (withinNetworkMerge || keyNodes.multipleNetworks) {
+				for (int k = 1; k < keyNodes.size; k++)
+					sets.union(keyNodes.ids[0], keyNodes.ids[k]);
+			}
+		}
+
+		final MatchedGroups.Builder<CyNode> matchedList = new MatchedGroups.Builder<CyNode>(networks, offsets[nNet]);
+		final int[] groups = new int[offsets[nNet]];
+		for (int i = 0; i < nNet; i++) {
+			final List<CyNode> nodes = nodeLists.get(i);
+			for (int id = offsets[i]; id < offsets[i + 1]; id++) {
+				final int first = sets.find(id);
+				groups[id] = addMatchedNode(matchedList, first == id ? -1 : groups[first], i,
+						nodes.get(id - offsets[i]));
+			}
+		}
+
+		return matchedList.build();
+	}
+
+	/**
+	 * Get the first group holding any of the keys from another network (or
+	 * from any network for within network merge)
+	 *
+	 * @return the index of the group or -1 if none
+	 */
+	private int getExactKeyGroup(final Map<Object,KeyGroups> mapKeyGroups, final Collection<?> nodeKeys,
+			final CyNetwork net) {
+		int index = -1;
+		for (Object key: nodeKeys) {
+			final KeyGroups keyGroups = mapKeyGroups.get(key);
+			if (keyGroups == null)
+				continue;
+
+			final int group = keyGroups.getGroup(net, withinNetworkMerge);
+			if (group != -1 && (index == -1 || group < index))
+				index = group;
+		}
+		return index;
+	}
+
+	/**
+	 * Get the first group holding a node sharing a key with the node that
+	 * matches it, checking the candidates with matchNode
+	 *
+	 * @return the index of the group or -1 if none
+	 */
+	private int getCandidateKeyGroup(final Map<Object,List<KeyCandidate>> mapKeyCandidates,
+			final Collection<?> nodeKeys, final CyNetwork net, final CyNode node) {
+		final List<KeyCandidate> candidates = new ArrayList<KeyCandidate>();
+		for (Object key: nodeKeys) {
+			final List<KeyCandidate> keyCandidates = mapKeyCandidates.get(key);
+			if (keyCandidates == null)
+				continue;
+
+			for (KeyCandidate candidate: keyCandidates) {
+				if (withinNetworkMerge || candidate.network != net)
+					candidates.add(candidate);
+			}
+		}
+
+		if (candidates.isEmpty())
+			return -1;
+
+		Collections.sort(candidates);
+		final Set<CyNode> checked = new HashSet<CyNode>();
+		for (KeyCandidate candidate: candidates) {
+			if (checked.add(candidate.node) && matchNode(net, node, candidate.network, candidate.node))
+				return candidate.group;
+		}
+		return -1;
+	}
+
+	/**
+	 * The groups holding nodes with a given exact matching key that new nodes
+	 * with this key can join
+	 */
+	private static final class KeyGroups {
+		// lowest group holding the key, and the network the key came from
+		private int first;
+		private CyNetwork firstNetwork;
+		// lowest group holding the key from a network other than firstNetwork
+		private int other = -1;
+
+		KeyGroups(final int group, final CyNetwork net) {
+			first = group;
+			firstNetwork = net;
+		}
+
+		int getGroup(final CyNetwork net, final boolean withinNetworkMerge) {
+			if (withinNetworkMerge || net != firstNetwork)
+				return first;
+			return other;
+		}
+
+		void add(final int group, final CyNetwork net) {
+			if (group < first) {
+				if (net != firstNetwork) {
+					other = first;
+					firstNetwork = net;
+				}
+				first = group;
+			} else if (net != firstNetwork && (other == -1 || group < other)) {
+				other = group;
+			}
+		}
+	}
+
+	/**
+	 * The nodes holding a given key, numbered across all the networks
+	 */
+	private static final class KeyNodes {
+		private final int firstNetwork;
+		private boolean multipleNetworks;
+		private int[] ids = new int[2];
+		private int size;
+
+		KeyNodes(final int net) {
+			firstNetwork = net;
+		}
+
+		void add(final int id, final int net) {
+			// the same key may be listed twice for a node
+			if (size > 0 && ids[size - 1] == id)
+				return;
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+			if (net != firstNetwork)
+				multipleNetworks = true;
+		}
+	}
+
+	/**
+	 * A node holding a blocking key, to be checked with matchNode
+	 */
+	private static final class KeyCandidate implements Comparable<KeyCandidate> {
+		final CyNetwork network;
+		final CyNode node;
+		final int group;
+
+		KeyCandidate(final CyNetwork network, final CyNode node, final int group) {
+			this.network = network;
+			this.node = node;
+			this.group = group;
+		}
+
+		@Override
+		public int compareTo(final KeyCandidate other) {
+			return Integer.compare(group, other.group);
+		}
+	}
+
+	/**
+	 * A range of the node list of a network whose matching keys are read
+	 * together
+	 */
+	private static final class NodeRange {
+		final CyNetwork network;
+		final List<CyNode> nodes;
+		final int from;
+		final int to;
+
+		NodeRange(final CyNetwork network, final List<CyNode> nodes, final int from, final int to) {
+			this.network = network;
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+		}
+
+		List<CyNode> getNodes() {
+			return from == 0 && to == nodes.size() ? nodes : nodes.subList(from, to);
+		}
+	}
+
+	/**
+	 * Select nodes for merge according to different op
+	 *
+	 * @param matchedGOList
+	 *            groups of matched nodes/edges
 	 * @param op
 	 *            Operation
-	 * @param size
-	 *            Number of networks
 	 *
-	 * @return list of matched nodes
+	 * @return the indexes of the selected groups
 	 */
-	private <T extends CyIdentifiable> List<Map<CyNetwork, Set<T>>> selectMatchedGOList(
-			final List<Map<CyNetwork, Set<T>>> matchedGOList, final Operation op, final List<CyNetwork> networks) {
+	private BitSet selectMatchedGOList(final MatchedGroups<?> matchedGOList, final Operation op) {
 		if (matchedGOList == null || op == null)
 			throw new NullPointerException();
 
-		int nnet = networks.size();
+		final int nnet = matchedGOList.getNetworks().size();
+		final int n = matchedGOList.size();
+		final BitSet selected = new BitSet(n);
 
 		if (op == Operation.UNION) {
-			return matchedGOList;
+			selected.set(0, n);
 		} else if (op == Operation.INTERSECTION) {
-			List<Map<CyNetwork, Set<T>>> list = new ArrayList<Map<CyNetwork, Set<T>>>();
-			for (Map<CyNetwork, Set<T>> map : matchedGOList) {
-				if (map.size() == nnet) {// if contained in all the networks
-					list.add(map);
+			for (int i = 0; i < n; i++) {
+				if (matchedGOList.getNetworkCount(i) == nnet) {// if contained in all the networks
+					selected.set(i);
 				}
 			}
-			return list;
+		} else if (op == Operation.SYMMETRIC_DIFFERENCE) {
+			for (int i = 0; i < n; i++) {
+				if ((matchedGOList.getNetworkCount(i) & 1) != 0)
+					selected.set(i);
+			}
+		} else if (op == Operation.QUORUM) {
+			final int minNetworks = quorum > 0 ? quorum : nnet / 2 + 1;
+			for (int i = 0; i < n; i++) {
+				if (matchedGOList.getNetworkCount(i) >= minNetworks)
+					selected.set(i);
+			}
 		} else {
-			// For Operation.DIFFERENCE
-			final List<Map<CyNetwork, Set<T>>> list = new ArrayList<Map<CyNetwork, Set<T>>>();
+			// For Operation.DIFFERENCE, subtract all the other networks from the first
 			if (nnet < 2)
-				return list;
+				return selected;
 
-			final CyNetwork net1 = networks.get(0);
-			final CyNetwork net2 = networks.get(1);
-			for (Map<CyNetwork, Set<T>> map : matchedGOList) {
-				if ((map.containsKey(net1) && !map.containsKey(net2)))
-					list.add(map);
+			for (int i = 0; i < n; i++) {
+				if (matchedGOList.containsNetwork(i, 0) && matchedGOList.getNetworkCount(i) == 1)
+					selected.set(i);
 			}
-
-			return list;
 		}
+		return selected;
 	}
 }
@@ -24,7 +24,12 @@ package org.cytoscape.network.merge.internal;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -36,13 +41,19 @@ import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
 import org.cytoscape.model.CyTable;
+import org.cytoscape.model.VirtualColumnInfo;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.model.AttributeMapping;
 import org.cytoscape.network.merge.internal.model.MatchingAttribute;
 import org.cytoscape.network.merge.internal.util.AttributeMerger;
 import org.cytoscape.network.merge.internal.util.AttributeValueMatcher;
+import org.cytoscape.network.merge.internal.util.ColumnMergePlan;
 import org.cytoscape.network.merge.internal.util.ColumnType;
 import org.cytoscape.network.merge.internal.util.DefaultAttributeValueMatcher;
+import org.cytoscape.network.merge.internal.util.KeyedAttributeValueMatcher;
+import org.cytoscape.network.merge.internal.util.MatchedGroups;
 import org.cytoscape.work.TaskMonitor;
 
 /**
@@ -58,6 +69,17 @@ public class AttributeBasedNetworkMerge extends AbstractNetworkMerge {
 	private final AttributeMapping networkAttributeMapping;
 	private final AttributeValueMatcher attributeValueMatcher;
 	private final AttributeMerger attributeMerger;
+	// the node and edge attribute mappings resolved for the current merge
+	private List<ColumnMergePlan> nodeMergePlans;
+	private List<ColumnMergePlan> edgeMergePlans;
+	// new merged columns that may be virtual columns of their single source
+	// column, decided when their nodes/edges are merged
+	private Set<ColumnMergePlan> virtualColumnCandidates;
+	// the plans of the merged columns turned into virtual columns, not copied
+	private Set<ColumnMergePlan> virtualColumnPlans;
+	// whether the nodes/edges merged as they are can be added by reference
+	private boolean nodesAddedByReference;
+	private boolean edgesAddedByReference;
 
 	/**
 	 * 
@@ -120,13 +142,195 @@ public class AttributeBasedNetworkMerge extends AbstractNetworkMerge {
 	}
 
 	@Override
-	protected void proprocess(CyNetwork toNetwork) {
-		setAttributeTypes(toNetwork.getDefaultNodeTable(), nodeAttributeMapping);
-		setAttributeTypes(toNetwork.getDefaultEdgeTable(), edgeAttributeMapping);
+	protected Collection<?>[] getNodeMatchingKeys(final CyNetwork net, final List<CyNode> nodes) {
+		// matchers without keys can only be compared pairwise
+		if (!(attributeValueMatcher instanceof KeyedAttributeValueMatcher))
+			return null;
+
+		final KeyedAttributeValueMatcher keyedMatcher = (KeyedAttributeValueMatcher) attributeValueMatcher;
+		final CyColumn attr = getAttributeForMatching(net);
+		final Collection<?>[] keys = new Collection<?>[nodes.size()];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = keyedMatcher.getMatchingKeys(nodes.get(i), attr);
+
+		return keys;
+	}
+
+	@Override
+	protected boolean isNodeMatchingKeyExact(final List<CyNetwork> networks) {
+		if (!(attributeValueMatcher instanceof KeyedAttributeValueMatcher))
+			return false;
+
+		final KeyedAttributeValueMatcher keyedMatcher = (KeyedAttributeValueMatcher) attributeValueMatcher;
+		for (CyNetwork net1 : networks) {
+			for (CyNetwork net2 : networks) {
+				if (!keyedMatcher.isKeyMatchExact(getAttributeForMatching(net1), getAttributeForMatching(net2)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean hasMultipleNodeMatchingKeys(final List<CyNetwork> networks) {
+		for (CyNetwork net : networks) {
+			if (List.class.isAssignableFrom(getAttributeForMatching(net).getType()))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean hasLongNodeMatchingKeys(final List<CyNetwork> networks) {
+		// the keys of the default matcher are the values themselves,
+		// which only match values of the same type
+		if (attributeValueMatcher.getClass() != DefaultAttributeValueMatcher.class)
+			return false;
+
+		ColumnType keyType = null;
+		for (CyNetwork net : networks) {
+			final ColumnType type = ColumnType.getType(getAttributeForMatching(net));
+			if (type != ColumnType.INTEGER && type != ColumnType.LONG)
+				return false;
+			if (keyType != null && type != keyType)
+				return false;
+			keyType = type;
+		}
+		return keyType != null;
+	}
+
+	@Override
+	protected long[] getNodeMatchingLongKeys(final CyNetwork net, final List<CyNode> nodes, final BitSet missing) {
+		final CyColumn attr = getAttributeForMatching(net);
+		final CyTable table = attr.getTable();
+		final String name = attr.getName();
+		final long[] keys = new long[nodes.size()];
+
+		if (attr.getType() == Integer.class) {
+			for (int i = 0; i < keys.length; i++) {
+				final Integer value = table.getRow(nodes.get(i).getSUID()).get(name, Integer.class);
+				if (value == null)
+					missing.set(i);
+				else
+					keys[i] = value.intValue();
+			}
+		} else {
+			for (int i = 0; i < keys.length; i++) {
+				final Long value = table.getRow(nodes.get(i).getSUID()).get(name, Long.class);
+				if (value == null)
+					missing.set(i);
+				else
+					keys[i] = value.longValue();
+			}
+		}
+		return keys;
+	}
+
+	private CyColumn getAttributeForMatching(final CyNetwork net) {
+		final CyColumn attr = matchingAttribute.getAttributeForMatching(net);
+		if (attr == null)
+			throw new IllegalArgumentException("Please specify the matching table column first");
+		return attr;
+	}
+
+	@Override
+	protected boolean isAddedByReference(final Class<? extends CyIdentifiable> type) {
+		return type == CyNode.class ? nodesAddedByReference : edgesAddedByReference;
+	}
+
+	@Override
+	protected void proprocess(CyNetwork toNetwork, List<CyNetwork> fromNetworks) {
+		// the nodes and edges added by reference to a subnetwork of the root
+		// network of the source networks keep their shared rows, so the new
+		// merged columns are local columns of the merged network
+		final boolean sharedRoot = getSharedRootNetwork(toNetwork, fromNetworks) != null;
+		final Set<String> newNodeColumns = setAttributeTypes(sharedRoot ? toNetwork.getTable(CyNode.class,
+				CyNetwork.LOCAL_ATTRS) : toNetwork.getDefaultNodeTable(), nodeAttributeMapping);
+		final Set<String> newEdgeColumns = setAttributeTypes(sharedRoot ? toNetwork.getTable(CyEdge.class,
+				CyNetwork.LOCAL_ATTRS) : toNetwork.getDefaultEdgeTable(), edgeAttributeMapping);
 		setAttributeTypes(toNetwork.getDefaultNetworkTable(), networkAttributeMapping);
+
+		nodeMergePlans = getMergePlans(toNetwork.getDefaultNodeTable(), nodeAttributeMapping, fromNetworks);
+		edgeMergePlans = getMergePlans(toNetwork.getDefaultEdgeTable(), edgeAttributeMapping, fromNetworks);
+		nodesAddedByReference = !hasSharedMergedColumn(nodeMergePlans);
+		edgesAddedByReference = !hasSharedMergedColumn(edgeMergePlans);
+
+		// the nodes and edges of subnetworks of the same root network can be
+		// joined to the rows of a source table by their SUID. A virtual column
+		// is immutable, so it cannot be replaced by a plain column when the
+		// nodes/edges of an incremental merge are merged again.
+		virtualColumnCandidates = new HashSet<ColumnMergePlan>();
+		virtualColumnPlans = new HashSet<ColumnMergePlan>();
+		if (!incremental && getSharedRootNetwork(toNetwork, fromNetworks) != null) {
+			addVirtualColumnCandidates(nodeMergePlans, newNodeColumns);
+			addVirtualColumnCandidates(edgeMergePlans, newEdgeColumns);
+		}
+	}
+
+	/*
+	 * true if a merged column already in the merged network is a shared
+	 * column of the root network, but not the column merged from the source
+	 * networks, so that merged values would be written to their shared rows
+	 */
+	private static boolean hasSharedMergedColumn(final List<ColumnMergePlan> plans) {
+		for (ColumnMergePlan plan : plans) {
+			final VirtualColumnInfo info = plan.getColumn().getVirtualColumnInfo();
+			if (info != null && info.isVirtual() && !plan.isShared())
+				return true;
+		}
+		return false;
 	}
 
-	private void setAttributeTypes(final CyTable table, AttributeMapping attributeMapping) {
+	/*
+	 * a new merged column with a single source column of the same simple
+	 * type only holds the values of that column, lists are deduplicated
+	 */
+	private void addVirtualColumnCandidates(final List<ColumnMergePlan> plans, final Set<String> newColumns) {
+		for (ColumnMergePlan plan : plans) {
+			final int source = plan.getSingleSource();
+			if (source == -1 || !newColumns.contains(plan.getColumn().getName()))
+				continue;
+
+			final CyColumn fromColumn = plan.getFromColumn(source);
+			final VirtualColumnInfo info = fromColumn.getVirtualColumnInfo();
+			if (fromColumn.isPrimaryKey() || (info != null && info.isVirtual()) || plan.getType().isList()
+					|| plan.getFromType(source) != plan.getType() || !plan.getStrategy().keepsSingleValue())
+				continue;
+
+			virtualColumnCandidates.add(plan);
+		}
+	}
+
+	/*
+	 * resolve the target column and the source column of each network for
+	 * each merged attribute
+	 */
+	private List<ColumnMergePlan> getMergePlans(final CyTable table, final AttributeMapping attributeMapping,
+			final List<CyNetwork> networks) {
+		final int nattr = attributeMapping.getSizeMergedAttributes();
+		final List<ColumnMergePlan> plans = new ArrayList<ColumnMergePlan>(nattr);
+		for (int i = 0; i < nattr; i++) {
+			final CyColumn attr_merged = table.getColumn(attributeMapping.getMergedAttribute(i));
+			if (attr_merged == null)
+				continue;
+
+			final CyColumn[] fromColumns = new CyColumn[networks.size()];
+			for (int j = 0; j < fromColumns.length; j++) {
+				final CyNetwork net = networks.get(j);
+				final String attrName = attributeMapping.getOriginalAttribute(net, i);
+				if (attrName != null)
+					fromColumns[j] = attributeMapping.getCyTable(net).getColumn(attrName);
+			}
+			plans.add(new ColumnMergePlan(attr_merged, fromColumns, attributeMapping.getMergedAttributeStrategy(i)));
+		}
+		return plans;
+	}
+
+	/*
+	 * create the missing merged columns, return the names of the new columns
+	 */
+	private Set<String> setAttributeTypes(final CyTable table, AttributeMapping attributeMapping) {
+		final Set<String> newColumns = new HashSet<String>();
 		int n = attributeMapping.getSizeMergedAttributes();
 		for (int i = 0; i < n; i++) {
 			String attr = attributeMapping.getMergedAttribute(i);
@@ -137,11 +341,18 @@ public class AttributeBasedNetworkMerge extends AbstractNetworkMerge {
 			// TODO: immutability?
 			final ColumnType type = attributeMapping.getMergedAttributeType(i);
 			final boolean isImmutable = attributeMapping.getMergedAttributeMutability(i);
-			if (type.isList()) {
-				table.createListColumn(attr, type.getType(), isImmutable);
-			} else {
-				table.createColumn(attr, type.getType(), isImmutable);
-			}
+			createColumn(table, attr, type, isImmutable);
+			newColumns.add(attr);
+		}
+		return newColumns;
+	}
+
+	private static void createColumn(final CyTable table, final String attr, final ColumnType type,
+			final boolean isImmutable) {
+		if (type.isList()) {
+			table.createListColumn(attr, type.getType(), isImmutable);
+		} else {
+			table.createColumn(attr, type.getType(), isImmutable);
 		}
 	}
 
@@ -158,31 +369,32 @@ public class AttributeBasedNetworkMerge extends AbstractNetworkMerge {
 	}
 
 	@Override
-	protected void mergeNode(final Map<CyNetwork, Set<CyNode>> mapNetNode, CyNode newNode, CyNetwork newNetwork) {
+	protected void mergeNode(final MatchedGroups<CyNode> matchedNodes, final int group, CyNode newNode, CyNetwork newNetwork) {
 		// TODO: refactor in Cytoscape3,
 		// in 2.x node with the same identifier be the same node
 		// and different nodes must have different identifier.
 		// Is this true in 3.0?
-		if (mapNetNode == null || mapNetNode.isEmpty())
+		if (matchedNodes == null || matchedNodes.getMemberStart(group) == matchedNodes.getMemberEnd(group))
 			return;
 
 		// for attribute confilict handling, introduce a conflict node here?
 
 		// set other attributes as indicated in attributeMapping
-		setAttribute(newNetwork, newNode, mapNetNode, nodeAttributeMapping);
+		setAttribute(newNetwork, newNode, matchedNodes, group, nodeMergePlans);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void mergeEdge(final Map<CyNetwork, Set<CyEdge>> mapNetEdge, CyEdge newEdge, CyNetwork newNetwork) {
-		if (mapNetEdge == null || mapNetEdge.isEmpty() || newEdge == null) {
+	public void mergeEdge(final MatchedGroups<CyEdge> matchedEdges, final int group, CyEdge newEdge, CyNetwork newNetwork) {
+		if (matchedEdges == null || matchedEdges.getMemberStart(group) == matchedEdges.getMemberEnd(group)
+				|| newEdge == null) {
 			throw new IllegalArgumentException();
 		}
 
 		// set other attributes as indicated in attributeMapping
-		setAttribute(newNetwork, newEdge, mapNetEdge, edgeAttributeMapping);
+		setAttribute(newNetwork, newEdge, matchedEdges, group, edgeMergePlans);
 	}
 
 	/*
@@ -216,7 +428,270 @@ public class AttributeBasedNetworkMerge extends AbstractNetworkMerge {
 			}
 
 			try {
-				attributeMerger.mergeAttribute(mapGOAttr, toEntry, attr_merged, newNetwork);
+				attributeMerger.mergeAttribute(mapGOAttr, toEntry, attr_merged, newNetwork,
+						attributeMapping.getMergedAttributeStrategy(i));
+			} catch (Exception e) {
+				// e.printStackTrace();
+				continue;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void mergeNodes(final MatchedGroups<CyNode> matchedNodes, final int[] groups, final CyNode[] newNodes,
+			final int count, final CyNetwork newNetwork) {
+		setAttributes(newNetwork, newNodes, matchedNodes, groups, count,
+				getCopiedPlans(nodeMergePlans, matchedNodes, groups, newNodes, count));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void mergeNodes(final MatchedGroups<CyNode> matchedNodes, final int[] groups, final CyNode[] newNodes,
+			final int count, final MatchedGroups<CyNode> differenceNodes, final int[] differenceGroups,
+			final CyNode[] newDifferenceNodes, final CyNetwork newNetwork) {
+		// a column is only virtual if all the merged nodes are joined to its source
+		addVirtualColumns(nodeMergePlans, matchedNodes, groups, newNodes, count, differenceNodes, differenceGroups,
+				newDifferenceNodes);
+		super.mergeNodes(matchedNodes, groups, newNodes, count, differenceNodes, differenceGroups, newDifferenceNodes,
+				newNetwork);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void mergeEdges(final MatchedGroups<CyEdge> matchedEdges, final int[] groups, final CyEdge[] newEdges,
+			final int count, final CyNetwork newNetwork) {
+		setAttributes(newNetwork, newEdges, matchedEdges, groups, count,
+				getCopiedPlans(edgeMergePlans, matchedEdges, groups, newEdges, count));
+	}
+
+	/**
+	 * Merge again the attributes of nodes already merged, from their groups
+	 * of matched nodes, replacing the values they hold.
+	 *
+	 * @param matchedNodes
+	 *            groups of matched nodes
+	 * @param groups
+	 *            the index of the group of each node
+	 * @param nodes
+	 *            the merged nodes
+	 * @param count
+	 *            the number of nodes
+	 */
+	public void remergeNodes(final MatchedGroups<CyNode> matchedNodes, final int[] groups, final CyNode[] nodes,
+			final int count, final CyNetwork newNetwork) {
+		final List<ColumnMergePlan> plans = getCopiedPlans(nodeMergePlans, matchedNodes, groups, nodes, count);
+		clearAttributes(newNetwork, nodes, matchedNodes, groups, count, plans);
+		setAttributes(newNetwork, nodes, matchedNodes, groups, count, plans);
+	}
+
+	/**
+	 * Merge again the attributes of edges already merged, from their groups
+	 * of matched edges, replacing the values they hold.
+	 *
+	 * @param matchedEdges
+	 *            groups of matched edges
+	 * @param groups
+	 *            the index of the group of each edge
+	 * @param edges
+	 *            the merged edges
+	 * @param count
+	 *            the number of edges
+	 */
+	public void remergeEdges(final MatchedGroups<CyEdge> matchedEdges, final int[] groups, final CyEdge[] edges,
+			final int count, final CyNetwork newNetwork) {
+		final List<ColumnMergePlan> plans = getCopiedPlans(edgeMergePlans, matchedEdges, groups, edges, count);
+		clearAttributes(newNetwork, edges, matchedEdges, groups, count, plans);
+		setAttributes(newNetwork, edges, matchedEdges, groups, count, plans);
+	}
+
+	/**
+	 * @param net
+	 *            a merged network
+	 * @param column
+	 *            the name of a node column of the network
+	 * @return true if the values of the column are merged into the nodes
+	 */
+	public boolean isNodeColumnMerged(final CyNetwork net, final String column) {
+		return isColumnMerged(nodeAttributeMapping, net, column);
+	}
+
+	/**
+	 * @param net
+	 *            a merged network
+	 * @param column
+	 *            the name of an edge column of the network
+	 * @return true if the values of the column are merged into the edges
+	 */
+	public boolean isEdgeColumnMerged(final CyNetwork net, final String column) {
+		return isColumnMerged(edgeAttributeMapping, net, column);
+	}
+
+	private static boolean isColumnMerged(final AttributeMapping attributeMapping, final CyNetwork net,
+			final String column) {
+		for (int i = 0; i < attributeMapping.getSizeMergedAttributes(); i++) {
+			if (column.equals(attributeMapping.getOriginalAttribute(net, i)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the conflict strategy of each merged node and edge column of
+	 *         the last merge
+	 */
+	public Map<CyColumn, ConflictStrategy> getConflictStrategies() {
+		final Map<CyColumn, ConflictStrategy> strategies = new HashMap<CyColumn, ConflictStrategy>();
+		for (ColumnMergePlan plan : nodeMergePlans)
+			strategies.put(plan.getColumn(), plan.getStrategy());
+		for (ColumnMergePlan plan : edgeMergePlans)
+			strategies.put(plan.getColumn(), plan.getStrategy());
+		return strategies;
+	}
+
+	/*
+	 * Return the plans of the columns whose values have to be copied to the
+	 * merged nodes/edges, the candidate columns being turned into virtual
+	 * columns first if they are joined
+	 */
+	private <T extends CyIdentifiable> List<ColumnMergePlan> getCopiedPlans(final List<ColumnMergePlan> plans,
+			final MatchedGroups<T> matchedGOs, final int[] groups, final T[] toEntries, final int count) {
+		addVirtualColumns(plans, matchedGOs, groups, toEntries, count, null, new int[0], null);
+		if (virtualColumnPlans.isEmpty())
+			return plans;
+
+		final List<ColumnMergePlan> copiedPlans = new ArrayList<ColumnMergePlan>(plans.size());
+		for (ColumnMergePlan plan : plans) {
+			if (!virtualColumnPlans.contains(plan))
+				copiedPlans.add(plan);
+		}
+		return copiedPlans;
+	}
+
+	/*
+	 * Turn the candidate columns into virtual columns of their source column
+	 * if all the merged nodes/edges, of both groups of matched nodes/edges,
+	 * are joined to the right rows of the source table. The merge plans are
+	 * left as they are, the plans of the virtual columns being recorded.
+	 */
+	private <T extends CyIdentifiable> void addVirtualColumns(final List<ColumnMergePlan> plans,
+			final MatchedGroups<T> matchedGOs, final int[] groups, final T[] toEntries, final int count,
+			final MatchedGroups<T> otherGOs, final int[] otherGroups, final T[] otherEntries) {
+		if (virtualColumnCandidates.isEmpty())
+			return;
+
+		final Map<Integer, Boolean> joinedSources = new HashMap<Integer, Boolean>();
+		for (ColumnMergePlan plan : plans) {
+			if (!virtualColumnCandidates.remove(plan))
+				continue;
+
+			final int source = plan.getSingleSource();
+			Boolean joined = joinedSources.get(source);
+			if (joined == null) {
+				final CyTable sourceTable = plan.getFromColumn(source).getTable();
+				joined = isJoined(matchedGOs, groups, toEntries, count, source, sourceTable)
+						&& isJoined(otherGOs, otherGroups, otherEntries, otherGroups.length, source, sourceTable);
+				joinedSources.put(source, joined);
+			}
+
+			if (joined) {
+				addVirtualColumn(plan);
+				virtualColumnPlans.add(plan);
+			}
+		}
+	}
+
+	/*
+	 * true if each merged node/edge has the row of its source node/edge in the
+	 * source table: it is the only member of its group in the source network,
+	 * or it has no row at all if its group has no member there
+	 */
+	private static <T extends CyIdentifiable> boolean isJoined(final MatchedGroups<T> matchedGOs, final int[] groups,
+			final T[] toEntries, final int count, final int source, final CyTable sourceTable) {
+		for (int i = 0; i < count; i++) {
+			final int group = groups[i];
+			boolean merged = false;
+			for (int m = matchedGOs.getMemberStart(group); m < matchedGOs.getMemberEnd(group) && !merged; m++)
+				merged = matchedGOs.getNetworkIndex(m) == source;
+
+			if (merged ? matchedGOs.getSingleMember(group) != toEntries[i]
+					: sourceTable.rowExists(toEntries[i].getSUID()))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Replace the new, still empty, merged column by a virtual column of its
+	 * source column, joined by SUID. The virtual column is created immutable
+	 * whatever the mutability of the merged column: its values are those of
+	 * the source column, so it only goes away with the merged network.
+	 */
+	private static void addVirtualColumn(final ColumnMergePlan plan) {
+		final CyColumn column = plan.getColumn();
+		final CyTable table = column.getTable();
+		final CyColumn fromColumn = plan.getFromColumn(plan.getSingleSource());
+		final String attr = column.getName();
+
+		table.deleteColumn(attr);
+		table.addVirtualColumn(attr, fromColumn.getName(), fromColumn.getTable(), CyIdentifiable.SUID, true);
+	}
+
+	/*
+	 * clear the values of merged nodes/edges in the copied columns, but the
+	 * values of a shared column held by the nodes/edges merged as they are
+	 */
+	private static <T extends CyIdentifiable> void clearAttributes(CyNetwork newNetwork, T[] toEntries,
+			final MatchedGroups<T> matchedGOs, final int[] groups, final int count, final List<ColumnMergePlan> plans) {
+		for (int i = 0; i < count; i++) {
+			final CyRow row = newNetwork.getRow(toEntries[i]);
+			for (ColumnMergePlan plan: plans) {
+				if (plan.isShared() && matchedGOs.getSingleMember(groups[i]) == toEntries[i])
+					continue;
+				row.set(plan.getColumn().getName(), null);
+			}
+		}
+	}
+
+	/*
+	 * set attributes for merged nodes/edges from their groups of matched
+	 * nodes/edges, one merged column at a time
+	 */
+	private <T extends CyIdentifiable> void setAttributes(CyNetwork newNetwork, T[] toEntries,
+			final MatchedGroups<T> matchedGOs, final int[] groups, final int count, final List<ColumnMergePlan> plans) {
+		final long nValue = (long) plans.size() * count;
+		long done = 0;
+		for (ColumnMergePlan plan: plans) {
+			if (isInterrupted())
+				return;
+
+			for (int i = 0; i < count; i++) {
+				setStepProgress(done++, nValue);
+				try {
+					attributeMerger.mergeAttribute(matchedGOs, groups[i], plan, toEntries[i], newNetwork);
+				} catch (Exception e) {
+					// e.printStackTrace();
+					continue;
+				}
+			}
+		}
+	}
+
+	/*
+	 * set attribute for the merge node/edge from a group of matched nodes/edges
+	 * according to the merge plans
+	 */
+	protected <T extends CyIdentifiable> void setAttribute(CyNetwork newNetwork, T toEntry,
+			final MatchedGroups<T> matchedGOs, final int group, final List<ColumnMergePlan> plans) {
+		for (ColumnMergePlan plan: plans) {
+			try {
+				attributeMerger.mergeAttribute(matchedGOs, group, plan, toEntry, newNetwork);
 			} catch (Exception e) {
 				// e.printStackTrace();
 				continue;
@@ -0,0 +1,1243 @@
+package org.cytoscape.network.merge.internal;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.AddedNodesListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RemovedNodesListener;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.model.events.RowsSetListener;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.network.merge.internal.conflict.AggregateAttributeConflictHandler;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictHandler;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictManager;
+import org.cytoscape.network.merge.internal.conflict.DefaultAttributeConflictHandler;
+import org.cytoscape.network.merge.internal.util.MatchedGroups;
+import org.cytoscape.service.util.CyServiceRegistrar;
+
+/**
+ * Keeps the union of networks merged by an AttributeBasedNetworkMerge up to
+ * date as nodes and edges are added to or removed from the source networks,
+ * or as their rows are set. The groups of matched nodes and edges of the
+ * merge, and the merged node or edge of each group, are indexed once, then
+ * only the nodes and edges touched by a change are matched again, so that an
+ * update costs in proportion to the change.
+ *
+ * The nodes to match again are the nodes added or whose key changed, with
+ * the nodes they match or matched: the nodes of the same keys, the same nodes
+ * in the other networks and the other members of their groups. They are
+ * matched as a merge of all the nodes matches them, in the order of their
+ * networks and of the node lists, so that the groups are split, joined or
+ * keyed again as the matching attributes change. The edges of the nodes that
+ * changed group are then keyed again, on the groups of their nodes in the
+ * last networks holding them, and the edges of the changed keys grouped
+ * again as the merge groups them.
+ *
+ * The changes are indexed as their events are received, and the merged
+ * network is updated on a background thread, each update applying all the
+ * changes indexed since the last one. The listener is registered before the
+ * networks are merged, the changes received until start being applied once
+ * the merge is indexed.
+ */
+public class IncrementalNetworkMerge implements AddedNodesListener, AddedEdgesListener, RemovedNodesListener,
+		RemovedEdgesListener, RowsSetListener, NetworkAboutToBeDestroyedListener {
+
+	private final AttributeBasedNetworkMerge networkMerge;
+	private final CyNetwork mergedNetwork;
+	private final List<CyNetwork> networks;
+	private final AttributeConflictCollector conflictCollector;
+	private final CyServiceRegistrar serviceRegistrar;
+	// the executor the merged network is updated by, one update at a time
+	private final Executor executor;
+	// the merged network if it is a subnetwork of the root network of all the
+	// source networks, which nodes and edges are added to as they are
+	private final CySubNetwork sharedRootNetwork;
+
+	private final Map<CyNetwork, Integer> networkIndexes;
+	private final Map<CyTable, Integer> nodeTableIndexes;
+	private final Map<CyTable, Integer> edgeTableIndexes;
+	// the member of each node/edge of each network, by SUID
+	private final List<Map<Long, Member<CyNode>>> nodeMembers;
+	private final List<Map<Long, Member<CyEdge>>> edgeMembers;
+	// the nodes of each matching key, and the edges of each edge key
+	private final Map<Object, Set<Member<CyNode>>> keyNodes;
+	private final Map<EdgeKey, Set<Member<CyEdge>>> keyEdges;
+	private int nNodeGroup;
+
+	// the ordinal of the next node/edge added to each network, added ones
+	// being appended to the lists of the networks
+	private final int[] nodeOrdinals;
+	private final int[] edgeOrdinals;
+	private final Comparator<Member<?>> memberOrder = this::compareMembers;
+
+	// the nodes to match again, the edges to key again and the keys whose
+	// edges are to be grouped again at the next update
+	private final Set<Member<CyNode>> dirtyNodes;
+	private final Set<Member<CyEdge>> dirtyEdges;
+	private final Set<EdgeKey> dirtyEdgeKeys;
+	// the groups changed since the merged network was last updated
+	private final Set<NodeGroup> changedNodeGroups;
+	private final Set<EdgeGroup> changedEdgeGroups;
+
+	// the changes received before start
+	private final List<Runnable> pendingChanges;
+	private boolean started;
+	private boolean updateScheduled;
+	private boolean disposed;
+
+	/**
+	 * Create the incremental merge of networks to be merged by a network
+	 * merge. It is to be registered as a listener before the networks are
+	 * merged, so that no change is missed, then started once they are.
+	 *
+	 * @param networkMerge
+	 *            the incremental network merge merging the networks
+	 * @param mergedNetwork
+	 *            the merged network
+	 * @param networks
+	 *            the merged networks, in the order they are merged
+	 * @param conflictCollector
+	 *            the conflict collector of the attribute merger of the
+	 *            network merge
+	 * @param serviceRegistrar
+	 *            the registrar this is registered to as a listener
+	 */
+	public IncrementalNetworkMerge(final AttributeBasedNetworkMerge networkMerge, final CyNetwork mergedNetwork,
+			final List<CyNetwork> networks, final AttributeConflictCollector conflictCollector,
+			final CyServiceRegistrar serviceRegistrar) {
+		this(networkMerge, mergedNetwork, networks, conflictCollector, serviceRegistrar,
+				Executors.newSingleThreadExecutor(r -> {
+					final Thread thread = new Thread(r, "Incremental network merge");
+					thread.setDaemon(true);
+					return thread;
+				}));
+	}
+
+	/**
+	 * @param executor
+	 *            the executor the merged network is updated by
+	 */
+	IncrementalNetworkMerge(final AttributeBasedNetworkMerge networkMerge, final CyNetwork mergedNetwork,
+			final List<CyNetwork> networks, final AttributeConflictCollector conflictCollector,
+			final CyServiceRegistrar serviceRegistrar, final Executor executor) {
+		if (networkMerge == null || mergedNetwork == null || networks == null || conflictCollector == null
+				|| serviceRegistrar == null || executor == null)
+			throw new NullPointerException();
+		if (!networkMerge.isIncremental())
+			throw new IllegalArgumentException("The networks are not merged incrementally");
+
+		this.networkMerge = networkMerge;
+		this.mergedNetwork = mergedNetwork;
+		this.networks = new ArrayList<CyNetwork>(networks);
+		this.conflictCollector = conflictCollector;
+		this.serviceRegistrar = serviceRegistrar;
+		this.executor = executor;
+		sharedRootNetwork = AbstractNetworkMerge.getSharedRootNetwork(mergedNetwork, networks);
+
+		final int nNet = networks.size();
+		networkIndexes = new HashMap<CyNetwork, Integer>(nNet);
+		nodeTableIndexes = new HashMap<CyTable, Integer>(nNet);
+		edgeTableIndexes = new HashMap<CyTable, Integer>(nNet);
+		nodeMembers = new ArrayList<Map<Long, Member<CyNode>>>(nNet);
+		edgeMembers = new ArrayList<Map<Long, Member<CyEdge>>>(nNet);
+		nodeOrdinals = new int[nNet];
+		edgeOrdinals = new int[nNet];
+		for (int i = 0; i < nNet; i++) {
+			final CyNetwork net = networks.get(i);
+			networkIndexes.put(net, i);
+			nodeTableIndexes.put(net.getDefaultNodeTable(), i);
+			edgeTableIndexes.put(net.getDefaultEdgeTable(), i);
+			nodeMembers.add(new HashMap<Long, Member<CyNode>>(net.getNodeCount() * 2));
+			edgeMembers.add(new HashMap<Long, Member<CyEdge>>(net.getEdgeCount() * 2));
+		}
+		keyNodes = new HashMap<Object, Set<Member<CyNode>>>();
+		keyEdges = new HashMap<EdgeKey, Set<Member<CyEdge>>>();
+		dirtyNodes = new LinkedHashSet<Member<CyNode>>();
+		dirtyEdges = new LinkedHashSet<Member<CyEdge>>();
+		dirtyEdgeKeys = new LinkedHashSet<EdgeKey>();
+		changedNodeGroups = new LinkedHashSet<NodeGroup>();
+		changedEdgeGroups = new LinkedHashSet<EdgeGroup>();
+		pendingChanges = new ArrayList<Runnable>();
+	}
+
+	/**
+	 * Index the groups of the merge of the networks, which the network merge
+	 * then releases, and apply the changes received since this was registered.
+	 */
+	public synchronized void start() {
+		if (started || disposed)
+			return;
+		if (networkMerge.getMatchedNodes() == null || networkMerge.getMatchedEdges() == null)
+			throw new IllegalStateException("The networks have not been merged");
+
+		indexNodeGroups();
+		indexEdgeGroups();
+		networkMerge.releaseMatches();
+		started = true;
+
+		for (Runnable change : pendingChanges)
+			change.run();
+		pendingChanges.clear();
+		scheduleUpdate();
+	}
+
+	/*
+	 * index the merged nodes by the nodes and the keys of their groups
+	 */
+	private void indexNodeGroups() {
+		final MatchedGroups<CyNode> matchedNodes = networkMerge.getMatchedNodes();
+		final List<Map<Long, Integer>> positions = getPositions(true, nodeOrdinals);
+		for (int i = 0; i < networkMerge.getMergedNodeCount(); i++) {
+			final int group = networkMerge.getMergedNodeGroup(i);
+			final NodeGroup nodeGroup = newNodeGroup();
+			nodeGroup.node = networkMerge.getMergedNode(i);
+			for (int m = matchedNodes.getMemberStart(group); m < matchedNodes.getMemberEnd(group); m++) {
+				final int netIndex = matchedNodes.getNetworkIndex(m);
+				final CyNode node = matchedNodes.getMember(m);
+				addMember(nodeGroup, newNodeMember(netIndex, node, getPosition(positions, netIndex, node)));
+			}
+		}
+	}
+
+	/*
+	 * index the merged edges by the edges and the keys of their groups
+	 */
+	private void indexEdgeGroups() {
+		final MatchedGroups<CyEdge> matchedEdges = networkMerge.getMatchedEdges();
+		final List<Map<Long, Integer>> positions = getPositions(false, edgeOrdinals);
+		for (int i = 0; i < networkMerge.getMergedEdgeCount(); i++) {
+			final int group = networkMerge.getMergedEdgeGroup(i);
+			final int start = matchedEdges.getMemberStart(group);
+			final EdgeKey key = getEdgeKey(matchedEdges.getNetworkIndex(start), matchedEdges.getMember(start));
+			if (key == null)
+				continue;
+
+			final EdgeGroup edgeGroup = newEdgeGroup(key);
+			edgeGroup.edge = networkMerge.getMergedEdge(i);
+			for (int m = start; m < matchedEdges.getMemberEnd(group); m++) {
+				final int netIndex = matchedEdges.getNetworkIndex(m);
+				final CyEdge edge = matchedEdges.getMember(m);
+				final Member<CyEdge> member = newEdgeMember(netIndex, edge, getPosition(positions, netIndex, edge));
+				setEdgeKey(member, key);
+				addMember(edgeGroup, member);
+			}
+		}
+	}
+
+	/*
+	 * the position of each node/edge in the list of its network, read once
+	 * to order the members indexed, the next ordinals following them
+	 */
+	private List<Map<Long, Integer>> getPositions(final boolean nodes, final int[] ordinals) {
+		final List<Map<Long, Integer>> positions = new ArrayList<Map<Long, Integer>>(networks.size());
+		for (int i = 0; i < networks.size(); i++) {
+			final CyNetwork net = networks.get(i);
+			final List<? extends CyIdentifiable> elements = nodes ? net.getNodeList() : net.getEdgeList();
+			final Map<Long, Integer> netPositions = new HashMap<Long, Integer>(elements.size() * 2);
+			for (int j = 0; j < elements.size(); j++)
+				netPositions.put(elements.get(j).getSUID(), j);
+			positions.add(netPositions);
+			ordinals[i] = elements.size();
+		}
+		return positions;
+	}
+
+	/*
+	 * the position of a member indexed, the last one if it is already gone
+	 * from its network, to be removed with the changes received before start
+	 */
+	private static int getPosition(final List<Map<Long, Integer>> positions, final int netIndex,
+			final CyIdentifiable element) {
+		final Integer position = positions.get(netIndex).get(element.getSUID());
+		return position == null ? Integer.MAX_VALUE : position;
+	}
+
+	@Override
+	public synchronized void handleEvent(final AddedNodesEvent e) {
+		final Integer netIndex = networkIndexes.get(e.getSource());
+		if (netIndex != null)
+			apply(() -> addNodes(netIndex, e.getPayloadCollection()));
+	}
+
+	@Override
+	public synchronized void handleEvent(final AddedEdgesEvent e) {
+		final Integer netIndex = networkIndexes.get(e.getSource());
+		if (netIndex != null)
+			apply(() -> addEdges(netIndex, e.getPayloadCollection()));
+	}
+
+	@Override
+	public synchronized void handleEvent(final RemovedNodesEvent e) {
+		final Integer netIndex = networkIndexes.get(e.getSource());
+		if (netIndex != null) {
+			apply(() -> {
+				for (Long suid : e.getPayloadCollection())
+					removeNode(netIndex, suid);
+			});
+		}
+	}
+
+	@Override
+	public synchronized void handleEvent(final RemovedEdgesEvent e) {
+		final Integer netIndex = networkIndexes.get(e.getSource());
+		if (netIndex != null) {
+			apply(() -> {
+				for (Long suid : e.getPayloadCollection())
+					removeEdge(netIndex, suid);
+			});
+		}
+	}
+
+	@Override
+	public synchronized void handleEvent(final RowsSetEvent e) {
+		final Integer nodeNetIndex = nodeTableIndexes.get(e.getSource());
+		final Integer edgeNetIndex = edgeTableIndexes.get(e.getSource());
+		if (nodeNetIndex == null && edgeNetIndex == null)
+			return;
+
+		apply(() -> {
+			for (RowSetRecord record : e.getPayloadCollection()) {
+				final Long suid = record.getRow().get(CyIdentifiable.SUID, Long.class);
+				if (nodeNetIndex != null)
+					setNodeRow(nodeNetIndex, suid, record.getColumn());
+				else
+					setEdgeRow(edgeNetIndex, suid, record.getColumn());
+			}
+		});
+	}
+
+	@Override
+	public synchronized void handleEvent(final NetworkAboutToBeDestroyedEvent e) {
+		if (e.getNetwork() == mergedNetwork || networkIndexes.containsKey(e.getNetwork()))
+			dispose();
+	}
+
+	/**
+	 * Stop updating the merged network
+	 */
+	public synchronized void dispose() {
+		if (disposed)
+			return;
+
+		disposed = true;
+		serviceRegistrar.unregisterAllServices(this);
+		pendingChanges.clear();
+		dirtyNodes.clear();
+		dirtyEdges.clear();
+		dirtyEdgeKeys.clear();
+		changedNodeGroups.clear();
+		changedEdgeGroups.clear();
+		if (executor instanceof ExecutorService)
+			((ExecutorService) executor).shutdown();
+	}
+
+	/*
+	 * index a change and update the merged network, or keep the change until
+	 * the merge is indexed
+	 */
+	private void apply(final Runnable change) {
+		if (disposed)
+			return;
+
+		if (started) {
+			change.run();
+			scheduleUpdate();
+		} else {
+			pendingChanges.add(change);
+		}
+	}
+
+	/*
+	 * update the merged network once for all the changes indexed until the
+	 * update runs
+	 */
+	private void scheduleUpdate() {
+		if (updateScheduled || (dirtyNodes.isEmpty() && dirtyEdges.isEmpty() && dirtyEdgeKeys.isEmpty()
+				&& changedNodeGroups.isEmpty() && changedEdgeGroups.isEmpty()))
+			return;
+
+		updateScheduled = true;
+		executor.execute(this::runUpdate);
+	}
+
+	private synchronized void runUpdate() {
+		updateScheduled = false;
+		if (!disposed)
+			update();
+	}
+
+	private void addNodes(final int netIndex, final Collection<CyNode> nodes) {
+		final CyNetwork net = networks.get(netIndex);
+		for (CyNode node : nodes) {
+			// the node may already be gone when the event is delivered
+			if (net.containsNode(node))
+				addNode(netIndex, node);
+		}
+	}
+
+	private void addNode(final int netIndex, final CyNode node) {
+		if (!nodeMembers.get(netIndex).containsKey(node.getSUID()))
+			dirtyNodes.add(newNodeMember(netIndex, node, nodeOrdinals[netIndex]++));
+	}
+
+	private Member<CyNode> newNodeMember(final int netIndex, final CyNode node, final int ordinal) {
+		final Member<CyNode> member = new Member<CyNode>(netIndex, node, ordinal);
+		nodeMembers.get(netIndex).put(node.getSUID(), member);
+		setNodeKey(member, getNodeKey(netIndex, node));
+		return member;
+	}
+
+	private void setNodeKey(final Member<CyNode> member, final Object key) {
+		member.key = key;
+		if (key == null)
+			return;
+
+		Set<Member<CyNode>> members = keyNodes.get(key);
+		if (members == null) {
+			members = new LinkedHashSet<Member<CyNode>>(2);
+			keyNodes.put(key, members);
+		}
+		members.add(member);
+	}
+
+	/*
+	 * remove a node from the nodes of its key, which are matched again
+	 * without it
+	 */
+	private void removeNodeKey(final Member<CyNode> member) {
+		if (member.key == null)
+			return;
+
+		final Set<Member<CyNode>> members = keyNodes.get(member.key);
+		members.remove(member);
+		if (members.isEmpty())
+			keyNodes.remove(member.key);
+		else
+			dirtyNodes.addAll(members);
+	}
+
+	/*
+	 * remove a node from its group, with its edges, the nodes it matched
+	 * being matched again without it
+	 */
+	private void removeNode(final int netIndex, final Long suid) {
+		final Member<CyNode> member = nodeMembers.get(netIndex).remove(suid);
+		if (member == null)
+			return;
+
+		dirtyNodes.remove(member);
+		removeNodeKey(member);
+
+		// the edges of the node may be keyed on its group in another network
+		final Set<EdgeGroup> edgeGroups = new LinkedHashSet<EdgeGroup>();
+		if (member.group != null)
+			edgeGroups.addAll(((NodeGroup) member.group).edgeGroups);
+		for (Map<Long, Member<CyNode>> members : nodeMembers) {
+			final Member<CyNode> same = members.get(suid);
+			if (same != null) {
+				dirtyNodes.add(same);
+				if (same.group != null)
+					edgeGroups.addAll(((NodeGroup) same.group).edgeGroups);
+			}
+		}
+		for (EdgeGroup edgeGroup : edgeGroups) {
+			for (Member<CyEdge> edge : new ArrayList<Member<CyEdge>>(edgeGroup.members)) {
+				if (edge.network == netIndex && (edge.element.getSource().getSUID().equals(suid)
+						|| edge.element.getTarget().getSUID().equals(suid)))
+					removeEdge(netIndex, edge.element.getSUID());
+			}
+		}
+		// and the edges of the node in the other networks may be keyed on it
+		addDirtyEdges(member.element);
+
+		final NodeGroup nodeGroup = (NodeGroup) member.group;
+		if (nodeGroup == null)
+			return;
+
+		removeMember(member);
+		dirtyNodes.addAll(nodeGroup.members);
+		changedNodeGroups.add(nodeGroup);
+	}
+
+	/*
+	 * match a node again if its key changed, and merge its group again if
+	 * one of its merged columns was set
+	 */
+	private void setNodeRow(final int netIndex, final Long suid, final String column) {
+		final Member<CyNode> member = nodeMembers.get(netIndex).get(suid);
+		if (member == null)
+			return;
+
+		final CyNetwork net = networks.get(netIndex);
+		final CyNode node = net.getNode(suid);
+		if (node == null)
+			return;
+
+		final Object key = getNodeKey(netIndex, node);
+		if (!Objects.equals(member.key, key)) {
+			removeNodeKey(member);
+			setNodeKey(member, key);
+			dirtyNodes.add(member);
+		}
+		if (member.group != null && networkMerge.isNodeColumnMerged(net, column))
+			changedNodeGroups.add((NodeGroup) member.group);
+	}
+
+	private void addEdges(final int netIndex, final Collection<CyEdge> edges) {
+		final CyNetwork net = networks.get(netIndex);
+		for (CyEdge edge : edges) {
+			if (net.containsEdge(edge))
+				addEdge(netIndex, edge);
+		}
+	}
+
+	/*
+	 * add an edge to be keyed once its nodes are matched
+	 */
+	private void addEdge(final int netIndex, final CyEdge edge) {
+		if (edgeMembers.get(netIndex).containsKey(edge.getSUID()))
+			return;
+
+		// the nodes of the edge may be added after it
+		addNode(netIndex, edge.getSource());
+		addNode(netIndex, edge.getTarget());
+		dirtyEdges.add(newEdgeMember(netIndex, edge, edgeOrdinals[netIndex]++));
+	}
+
+	private Member<CyEdge> newEdgeMember(final int netIndex, final CyEdge edge, final int ordinal) {
+		final Member<CyEdge> member = new Member<CyEdge>(netIndex, edge, ordinal);
+		edgeMembers.get(netIndex).put(edge.getSUID(), member);
+		return member;
+	}
+
+	private void setEdgeKey(final Member<CyEdge> member, final EdgeKey key) {
+		member.key = key;
+		Set<Member<CyEdge>> members = keyEdges.get(key);
+		if (members == null) {
+			members = new LinkedHashSet<Member<CyEdge>>(2);
+			keyEdges.put(key, members);
+		}
+		members.add(member);
+	}
+
+	/*
+	 * remove an edge from the edges of its key, which are grouped again
+	 * without it
+	 */
+	private void removeEdgeKey(final Member<CyEdge> member) {
+		if (member.key == null)
+			return;
+
+		final Set<Member<CyEdge>> members = keyEdges.get(member.key);
+		members.remove(member);
+		if (members.isEmpty())
+			keyEdges.remove(member.key);
+		else
+			dirtyEdgeKeys.add((EdgeKey) member.key);
+		member.key = null;
+	}
+
+	private void removeEdge(final int netIndex, final Long suid) {
+		final Member<CyEdge> member = edgeMembers.get(netIndex).remove(suid);
+		if (member == null)
+			return;
+
+		dirtyEdges.remove(member);
+		removeEdgeKey(member);
+		if (member.group != null) {
+			changedEdgeGroups.add((EdgeGroup) member.group);
+			removeMember(member);
+		}
+	}
+
+	/*
+	 * key an edge again if its interaction was set, and merge its group
+	 * again if one of its merged columns was set
+	 */
+	private void setEdgeRow(final int netIndex, final Long suid, final String column) {
+		final Member<CyEdge> member = edgeMembers.get(netIndex).get(suid);
+		if (member == null)
+			return;
+
+		final CyNetwork net = networks.get(netIndex);
+		if (net.getEdge(suid) == null)
+			return;
+
+		if (CyEdge.INTERACTION.equals(column))
+			dirtyEdges.add(member);
+		if (member.group != null && networkMerge.isEdgeColumnMerged(net, column))
+			changedEdgeGroups.add((EdgeGroup) member.group);
+	}
+
+	/*
+	 * Match the dirty nodes again and group their edges again, then apply
+	 * the changed groups to the merged network: remove the nodes and edges of
+	 * the groups left empty, add the nodes and edges of the new groups, merge
+	 * the attributes of the changed groups again and resolve their conflicts.
+	 */
+	private void update() {
+		regroupNodes();
+		rekeyEdges();
+		regroupEdges();
+		if (changedNodeGroups.isEmpty() && changedEdgeGroups.isEmpty())
+			return;
+
+		// the edges of the removed nodes are removed with them
+		final List<CyEdge> removedEdges = new ArrayList<CyEdge>();
+		for (Iterator<EdgeGroup> it = changedEdgeGroups.iterator(); it.hasNext();) {
+			final EdgeGroup edgeGroup = it.next();
+			if (!edgeGroup.members.isEmpty())
+				continue;
+
+			edgeGroup.key.source.edgeGroups.remove(edgeGroup);
+			edgeGroup.key.target.edgeGroups.remove(edgeGroup);
+			if (edgeGroup.edge != null)
+				removedEdges.add(edgeGroup.edge);
+			it.remove();
+		}
+		if (!removedEdges.isEmpty())
+			mergedNetwork.removeEdges(removedEdges);
+
+		final List<CyNode> removedNodes = new ArrayList<CyNode>();
+		for (Iterator<NodeGroup> it = changedNodeGroups.iterator(); it.hasNext();) {
+			final NodeGroup nodeGroup = it.next();
+			if (nodeGroup.members.isEmpty()) {
+				if (nodeGroup.node != null)
+					removedNodes.add(nodeGroup.node);
+				it.remove();
+			} else if (nodeGroup.node == null) {
+				nodeGroup.node = addNode(nodeGroup);
+			} else if (isMemberReplaced(nodeGroup.node, nodeGroup.members)) {
+				// the values of the shared columns of the node merged as it is
+				// are those of the node in the source networks
+				removedNodes.add(nodeGroup.node);
+				nodeGroup.node = mergedNetwork.addNode();
+				for (EdgeGroup edgeGroup : nodeGroup.edgeGroups) {
+					edgeGroup.edge = null;
+					changedEdgeGroups.add(edgeGroup);
+				}
+			}
+		}
+		if (!removedNodes.isEmpty())
+			mergedNetwork.removeNodes(removedNodes);
+
+		removedEdges.clear();
+		for (EdgeGroup edgeGroup : changedEdgeGroups) {
+			if (edgeGroup.edge != null && (isMemberReplaced(edgeGroup.edge, edgeGroup.members)
+					|| !isMergedEdgeBetween(edgeGroup))) {
+				removedEdges.add(edgeGroup.edge);
+				edgeGroup.edge = null;
+			}
+			if (edgeGroup.edge == null)
+				edgeGroup.edge = addEdge(edgeGroup);
+		}
+		if (!removedEdges.isEmpty())
+			mergedNetwork.removeEdges(removedEdges);
+
+		final List<CyIdentifiable> merged = new ArrayList<CyIdentifiable>(
+				changedNodeGroups.size() + changedEdgeGroups.size());
+		remergeNodes(merged);
+		remergeEdges(merged);
+		changedNodeGroups.clear();
+		changedEdgeGroups.clear();
+
+		// only the conflicts of the merged nodes and edges are resolved, the
+		// others are left to whoever collected them
+		if (!conflictCollector.isEmpty()) {
+			final List<AttributeConflictHandler> conflictHandlers = new ArrayList<AttributeConflictHandler>(2);
+			conflictHandlers.add(new AggregateAttributeConflictHandler(networkMerge.getConflictStrategies()));
+			conflictHandlers.add(new DefaultAttributeConflictHandler());
+			final List<CyNetwork> conflictNetworks = new ArrayList<CyNetwork>(networks.size() + 1);
+			conflictNetworks.add(mergedNetwork);
+			conflictNetworks.addAll(networks);
+			new AttributeConflictManager(conflictCollector, conflictHandlers, conflictNetworks).handleConflicts(merged);
+		}
+	}
+
+	/*
+	 * Match the dirty nodes again, with the nodes they match or matched: the
+	 * nodes of the same keys, the same nodes in the other networks and the
+	 * other members of their groups. In the order of their networks and of
+	 * the node lists, each node joins the first group holding a node it
+	 * matches, from another network unless within network merge, as in a
+	 * merge of all the nodes.
+	 */
+	private void regroupNodes() {
+		if (dirtyNodes.isEmpty())
+			return;
+
+		final Set<Member<CyNode>> related = new HashSet<Member<CyNode>>(dirtyNodes);
+		final Deque<Member<CyNode>> queue = new ArrayDeque<Member<CyNode>>(dirtyNodes);
+		dirtyNodes.clear();
+		while (!queue.isEmpty()) {
+			final Member<CyNode> member = queue.poll();
+			if (member.key != null)
+				addRelated(keyNodes.get(member.key), related, queue);
+			for (Map<Long, Member<CyNode>> members : nodeMembers) {
+				final Member<CyNode> same = members.get(member.element.getSUID());
+				if (same != null && related.add(same))
+					queue.add(same);
+			}
+			if (member.group != null)
+				addRelated(member.group.members, related, queue);
+		}
+
+		final List<Member<CyNode>> sorted = new ArrayList<Member<CyNode>>(related);
+		Collections.sort(sorted, memberOrder);
+
+		// the groups are numbered in the order they are created
+		final List<List<Member<CyNode>>> groups = new ArrayList<List<Member<CyNode>>>();
+		final Map<Member<CyNode>, Integer> memberGroups = new HashMap<Member<CyNode>, Integer>(sorted.size() * 2);
+		final Map<Object, KeyGroups> keyGroups = new HashMap<Object, KeyGroups>();
+		for (Member<CyNode> member : sorted) {
+			int group = -1;
+			for (int i = 0; i < member.network; i++) {
+				final Member<CyNode> same = nodeMembers.get(i).get(member.element.getSUID());
+				if (same != null)
+					group = first(group, memberGroups.get(same));
+			}
+
+			KeyGroups groupsOfKey = null;
+			if (member.key != null) {
+				groupsOfKey = keyGroups.get(member.key);
+				if (groupsOfKey == null) {
+					groupsOfKey = new KeyGroups();
+					keyGroups.put(member.key, groupsOfKey);
+				}
+				groupsOfKey.setNetwork(member.network);
+				group = first(group, groupsOfKey.previous);
+				if (networkMerge.withinNetworkMerge)
+					group = first(group, groupsOfKey.current);
+			}
+
+			if (group == -1) {
+				group = groups.size();
+				groups.add(new ArrayList<Member<CyNode>>(2));
+			}
+			groups.get(group).add(member);
+			memberGroups.put(member, group);
+			if (groupsOfKey != null)
+				groupsOfKey.current = first(groupsOfKey.current, group);
+		}
+
+		// the edges of the nodes that changed group are keyed again
+		for (Member<CyNode> member : setGroups(groups, this::newNodeGroup, changedNodeGroups))
+			addDirtyEdges(member.element);
+	}
+
+	/*
+	 * key the edges of a node again, in all the networks since they are keyed
+	 * on its group in the last network holding it
+	 */
+	private void addDirtyEdges(final CyNode node) {
+		for (int i = 0; i < networks.size(); i++) {
+			final CyNetwork net = networks.get(i);
+			if (!nodeMembers.get(i).containsKey(node.getSUID()) || !net.containsNode(node))
+				continue;
+
+			for (CyEdge edge : net.getAdjacentEdgeList(node, CyEdge.Type.ANY)) {
+				final Member<CyEdge> edgeMember = edgeMembers.get(i).get(edge.getSUID());
+				if (edgeMember != null)
+					dirtyEdges.add(edgeMember);
+			}
+		}
+	}
+
+	private static <T extends CyIdentifiable> void addRelated(final Collection<Member<T>> members,
+			final Set<Member<T>> related, final Deque<Member<T>> queue) {
+		for (Member<T> member : members) {
+			if (related.add(member))
+				queue.add(member);
+		}
+	}
+
+	/*
+	 * the first of two groups, -1 for none
+	 */
+	private static int first(final int group1, final int group2) {
+		return group1 == -1 || (group2 != -1 && group2 < group1) ? group2 : group1;
+	}
+
+	/*
+	 * key the dirty edges again on the groups of their nodes
+	 */
+	private void rekeyEdges() {
+		for (Member<CyEdge> member : dirtyEdges) {
+			final EdgeKey key = getEdgeKey(member.network, member.element);
+			if (key != null && key.equals(member.key)) {
+				// the merged node of a node in several groups may have changed
+				if (member.group != null)
+					changedEdgeGroups.add((EdgeGroup) member.group);
+				continue;
+			}
+
+			removeEdgeKey(member);
+			if (member.group != null) {
+				changedEdgeGroups.add((EdgeGroup) member.group);
+				removeMember(member);
+			}
+			if (key == null) {
+				// a node of the edge is gone with it
+				edgeMembers.get(member.network).remove(member.element.getSUID());
+			} else {
+				setEdgeKey(member, key);
+				dirtyEdgeKeys.add(key);
+			}
+		}
+		dirtyEdges.clear();
+	}
+
+	/*
+	 * Group the edges of the dirty keys again: in the order of their networks
+	 * and of the edge lists, the first edge with the edges of the other
+	 * networks, or with all the edges for within network merge, the other
+	 * edges of its network alone, as in a merge of all the edges.
+	 */
+	private void regroupEdges() {
+		for (EdgeKey key : dirtyEdgeKeys) {
+			final Set<Member<CyEdge>> members = keyEdges.get(key);
+			if (members == null)
+				continue;
+
+			final List<Member<CyEdge>> sorted = new ArrayList<Member<CyEdge>>(members);
+			Collections.sort(sorted, memberOrder);
+			final Member<CyEdge> first = sorted.get(0);
+			final List<List<Member<CyEdge>>> groups = new ArrayList<List<Member<CyEdge>>>();
+			final List<Member<CyEdge>> firstGroup = new ArrayList<Member<CyEdge>>(sorted.size());
+			groups.add(firstGroup);
+			for (Member<CyEdge> member : sorted) {
+				if (member == first || networkMerge.withinNetworkMerge || member.network != first.network)
+					firstGroup.add(member);
+				else
+					groups.add(Collections.singletonList(member));
+			}
+			setGroups(groups, () -> newEdgeGroup(key), changedEdgeGroups);
+		}
+		dirtyEdgeKeys.clear();
+	}
+
+	/*
+	 * Make the members of each list the members of a group, the group of the
+	 * first of them whose group is not kept by a previous list, so that the
+	 * groups that did not change keep their merged node/edge.
+	 *
+	 * @return the members that changed group
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends CyIdentifiable, G extends Group<T>> List<Member<T>> setGroups(
+			final List<List<Member<T>>> groups, final Supplier<G> newGroup, final Set<G> changedGroups) {
+		final Set<Group<T>> keptGroups = new HashSet<Group<T>>();
+		final List<Member<T>> moved = new ArrayList<Member<T>>();
+		for (List<Member<T>> members : groups) {
+			G group = null;
+			for (Member<T> member : members) {
+				if (member.group != null && keptGroups.add(member.group)) {
+					group = (G) member.group;
+					break;
+				}
+			}
+			if (group == null)
+				group = newGroup.get();
+
+			for (Member<T> member : members) {
+				if (member.group == group)
+					continue;
+
+				if (member.group != null) {
+					changedGroups.add((G) member.group);
+					removeMember(member);
+				}
+				addMember(group, member);
+				changedGroups.add(group);
+				moved.add(member);
+			}
+		}
+		return moved;
+	}
+
+	private static <T extends CyIdentifiable> void addMember(final Group<T> group, final Member<T> member) {
+		group.members.add(member);
+		member.group = group;
+	}
+
+	private static <T extends CyIdentifiable> void removeMember(final Member<T> member) {
+		member.group.members.remove(member);
+		member.group = null;
+	}
+
+	private NodeGroup newNodeGroup() {
+		return new NodeGroup(nNodeGroup++);
+	}
+
+	private EdgeGroup newEdgeGroup(final EdgeKey key) {
+		final EdgeGroup edgeGroup = new EdgeGroup(key);
+		key.source.edgeGroups.add(edgeGroup);
+		key.target.edgeGroups.add(edgeGroup);
+		return edgeGroup;
+	}
+
+	/*
+	 * the node of a new group, the node itself if it is the node of all the
+	 * members of the group in the shared root network
+	 */
+	private CyNode addNode(final NodeGroup nodeGroup) {
+		if (sharedRootNetwork != null && networkMerge.isAddedByReference(CyNode.class)) {
+			final CyNode node = getSingleMember(nodeGroup.members);
+			if (node != null && sharedRootNetwork.addNode(node))
+				return node;
+		}
+		return mergedNetwork.addNode();
+	}
+
+	/*
+	 * the edge of a new group between the merged nodes of its first edge,
+	 * the edge itself if it is the edge of all the members of the group in
+	 * the shared root network
+	 */
+	private CyEdge addEdge(final EdgeGroup edgeGroup) {
+		final Member<CyEdge> first = Collections.min(edgeGroup.members, memberOrder);
+		final CyNode source = getMergedNode(first.element.getSource());
+		final CyNode target = getMergedNode(first.element.getTarget());
+
+		if (sharedRootNetwork != null && networkMerge.isAddedByReference(CyEdge.class)) {
+			final CyEdge edge = getSingleMember(edgeGroup.members);
+			if (edge != null && edge.getSource() == source && edge.getTarget() == target
+					&& sharedRootNetwork.addEdge(edge))
+				return edge;
+		}
+		return mergedNetwork.addEdge(source, target, first.element.isDirected());
+	}
+
+	/*
+	 * true if the merged edge of a group is still between the merged nodes of
+	 * its first edge
+	 */
+	private boolean isMergedEdgeBetween(final EdgeGroup edgeGroup) {
+		final Member<CyEdge> first = Collections.min(edgeGroup.members, memberOrder);
+		return edgeGroup.edge.getSource() == getMergedNode(first.element.getSource())
+				&& edgeGroup.edge.getTarget() == getMergedNode(first.element.getTarget());
+	}
+
+	/*
+	 * the merged node the edges of a node are merged on, that of the last
+	 * group created of the groups of the node in the networks holding it, as
+	 * in a merge of all the nodes
+	 */
+	private CyNode getMergedNode(final CyNode node) {
+		NodeGroup last = null;
+		Member<CyNode> lastFirst = null;
+		for (Map<Long, Member<CyNode>> members : nodeMembers) {
+			final Member<CyNode> member = members.get(node.getSUID());
+			if (member == null || member.group == null || member.group == last)
+				continue;
+
+			if (last == null) {
+				last = (NodeGroup) member.group;
+				continue;
+			}
+			if (lastFirst == null)
+				lastFirst = Collections.min(last.members, memberOrder);
+			final Member<CyNode> first = Collections.min(member.group.members, memberOrder);
+			if (memberOrder.compare(first, lastFirst) > 0) {
+				last = (NodeGroup) member.group;
+				lastFirst = first;
+			}
+		}
+		return last == null ? null : last.node;
+	}
+
+	/*
+	 * true if a node/edge merged as it is now has other members in its group
+	 */
+	private static <T extends CyIdentifiable> boolean isMemberReplaced(final T merged, final List<Member<T>> members) {
+		if (getSingleMember(members) == merged)
+			return false;
+
+		for (Member<T> member : members) {
+			if (member.element == merged)
+				return true;
+		}
+		return false;
+	}
+
+	private static <T extends CyIdentifiable> T getSingleMember(final List<Member<T>> members) {
+		final T element = members.get(0).element;
+		for (Member<T> member : members) {
+			if (member.element != element)
+				return null;
+		}
+		return element;
+	}
+
+	private void remergeNodes(final List<CyIdentifiable> merged) {
+		final int count = changedNodeGroups.size();
+		if (count == 0)
+			return;
+
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		final int[] groups = new int[count];
+		final CyNode[] nodes = new CyNode[count];
+		int i = 0;
+		for (NodeGroup nodeGroup : changedNodeGroups) {
+			groups[i] = addGroup(builder, nodeGroup.members);
+			nodes[i++] = nodeGroup.node;
+		}
+		removeConflicts(nodes, mergedNetwork.getDefaultNodeTable());
+		networkMerge.remergeNodes(builder.build(), groups, nodes, count, mergedNetwork);
+		Collections.addAll(merged, nodes);
+	}
+
+	private void remergeEdges(final List<CyIdentifiable> merged) {
+		final int count = changedEdgeGroups.size();
+		if (count == 0)
+			return;
+
+		final MatchedGroups.Builder<CyEdge> builder = new MatchedGroups.Builder<CyEdge>(networks);
+		final int[] groups = new int[count];
+		final CyEdge[] edges = new CyEdge[count];
+		int i = 0;
+		for (EdgeGroup edgeGroup : changedEdgeGroups) {
+			groups[i] = addGroup(builder, edgeGroup.members);
+			edges[i++] = edgeGroup.edge;
+		}
+		removeConflicts(edges, mergedNetwork.getDefaultEdgeTable());
+		networkMerge.remergeEdges(builder.build(), groups, edges, count, mergedNetwork);
+		Collections.addAll(merged, edges);
+	}
+
+	/*
+	 * add the members of a group in the order of their networks and of the
+	 * node/edge lists of the networks, their order in a merge
+	 */
+	private <T extends CyIdentifiable> int addGroup(final MatchedGroups.Builder<T> builder,
+			final List<Member<T>> members) {
+		final List<Member<T>> sorted = new ArrayList<Member<T>>(members);
+		Collections.sort(sorted, memberOrder);
+		final int group = builder.newGroup();
+		for (Member<T> member : sorted)
+			builder.add(group, member.network, member.element);
+		return group;
+	}
+
+	private int compareMembers(final Member<?> m1, final Member<?> m2) {
+		if (m1.network != m2.network)
+			return Integer.compare(m1.network, m2.network);
+		return Integer.compare(m1.ordinal, m2.ordinal);
+	}
+
+	/*
+	 * the conflicts left from the previous merge of the nodes/edges
+	 */
+	private void removeConflicts(final CyIdentifiable[] entries, final CyTable table) {
+		if (conflictCollector.isEmpty())
+			return;
+
+		final Collection<CyColumn> columns = table.getColumns();
+		for (CyIdentifiable entry : entries) {
+			for (CyColumn column : columns)
+				conflictCollector.removeConflicts(entry, column);
+		}
+	}
+
+	/*
+	 * the matching key of a node, null if it has none
+	 */
+	private Object getNodeKey(final int netIndex, final CyNode node) {
+		final Collection<?>[] keys = networkMerge.getNodeMatchingKeys(networks.get(netIndex),
+				Collections.singletonList(node));
+		if (keys == null || keys[0] == null || keys[0].isEmpty())
+			return null;
+		return keys[0].iterator().next();
+	}
+
+	/*
+	 * the group an edge of a network is keyed on for one of its nodes, the
+	 * group of the node in the last network holding it as in a merge of all
+	 * the edges, or null if the node is not in the network anymore
+	 */
+	private NodeGroup getEdgeNodeGroup(final int netIndex, final CyNode node) {
+		if (!nodeMembers.get(netIndex).containsKey(node.getSUID()))
+			return null;
+
+		for (int i = nodeMembers.size() - 1;; i--) {
+			final Member<CyNode> member = nodeMembers.get(i).get(node.getSUID());
+			if (member != null)
+				return (NodeGroup) member.group;
+		}
+	}
+
+	/*
+	 * the key of an edge, made of the groups of its nodes, or null if one of
+	 * them is not in a group
+	 */
+	private EdgeKey getEdgeKey(final int netIndex, final CyEdge edge) {
+		final NodeGroup source = getEdgeNodeGroup(netIndex, edge.getSource());
+		final NodeGroup target = getEdgeNodeGroup(netIndex, edge.getTarget());
+		if (source == null || target == null)
+			return null;
+
+		final String interaction = networks.get(netIndex).getRow(edge).get(CyEdge.INTERACTION, String.class);
+		return new EdgeKey(interaction, edge.isDirected(), source, target);
+	}
+
+	/**
+	 * A node or edge of a source network, and its group
+	 */
+	private static final class Member<T extends CyIdentifiable> {
+		private final int network;
+		private final T element;
+		// the order of the node/edge in the list of its network
+		private final int ordinal;
+		// the matching key of a node, or the key of an edge
+		private Object key;
+		private Group<T> group;
+
+		Member(final int network, final T element, final int ordinal) {
+			this.network = network;
+			this.element = element;
+			this.ordinal = ordinal;
+		}
+	}
+
+	/**
+	 * The nodes or edges of the source networks merged into the same node or
+	 * edge
+	 */
+	private abstract static class Group<T extends CyIdentifiable> {
+		protected final List<Member<T>> members = new ArrayList<Member<T>>(2);
+	}
+
+	/**
+	 * A merged node and the nodes of the source networks merged into it
+	 */
+	private static final class NodeGroup extends Group<CyNode> {
+		// the order the groups were created in, to order the edge keys
+		private final int id;
+		private CyNode node;
+		// the groups of the edges of the node
+		private final Set<EdgeGroup> edgeGroups = new LinkedHashSet<EdgeGroup>();
+
+		NodeGroup(final int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * A merged edge and the edges of the source networks merged into it
+	 */
+	private static final class EdgeGroup extends Group<CyEdge> {
+		private final EdgeKey key;
+		private CyEdge edge;
+
+		EdgeGroup(final EdgeKey key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The first groups holding a node of a key while the nodes are matched
+	 * again, of the networks before the current one and of the current one
+	 */
+	private static final class KeyGroups {
+		private int network = -1;
+		private int previous = -1;
+		private int current = -1;
+
+		void setNetwork(final int network) {
+			if (network != this.network) {
+				previous = first(previous, current);
+				current = -1;
+				this.network = network;
+			}
+		}
+	}
+
+	/**
+	 * The interaction, the directedness and the groups of the nodes of an
+	 * edge, in increasing order for an undirected edge
+	 */
+	private static final class EdgeKey {
+		private final String interaction;
+		private final boolean directed;
+		private final NodeGroup source;
+		private final NodeGroup target;
+
+		EdgeKey(final String interaction, final boolean directed, final NodeGroup source, final NodeGroup target) {
+			this.interaction = interaction;
+			this.directed = directed;
+			final boolean swap = !directed && source.id > target.id;
+			this.source = swap ? target : source;
+			this.target = swap ? source : target;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof EdgeKey))
+				return false;
+			final EdgeKey other = (EdgeKey) o;
+			return directed == other.directed && source == other.source && target == other.target
+					&& Objects.equals(interaction, other.interaction);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(interaction, directed, source.id, target.id);
+		}
+	}
+}
@@ -44,7 +44,12 @@ public interface NetworkMerge {
 	public enum Operation {
 		UNION("Union", UNION_ICON),
 		INTERSECTION("Intersection", INTERSECTION_ICON),
-		DIFFERENCE("Difference", DIFFERENCE_ICON);
+		// the first network minus all later networks
+		DIFFERENCE("Difference", DIFFERENCE_ICON),
+		// in an odd number of networks, in one of two networks
+		SYMMETRIC_DIFFERENCE("Symmetric Difference", null),
+		// in at least a given number of networks, see AbstractNetworkMerge.setQuorum
+		QUORUM("Quorum", null);
 
 		private final String opName;
 		private String iconText;
@@ -54,7 +59,12 @@ public interface NetworkMerge {
 			this.iconText = iconText;
 		}
 
+		/**
+		 * @return the icon of the operation, or null if it has none
+		 */
 		public Icon getIcon(IconManager iconManager, float fontSize, int width, int height) {
+			if (iconText == null)
+				return null;
 			return new TextIcon(iconText, iconManager.getIconFont("cytoscape-3", fontSize), width, height);
 		}
 
@@ -0,0 +1,135 @@
+package org.cytoscape.network.merge.internal.conflict;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Map;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.network.merge.internal.util.ColumnType;
+
+/**
+ * Resolve the conflicts of a column by the strategy selected for it, in one
+ * pass over the value of the merged cell and the conflicting values.
+ */
+public class AggregateAttributeConflictHandler implements AttributeConflictHandler {
+
+	private final Map<CyColumn, ConflictStrategy> strategies;
+
+	/**
+	 * @param strategies
+	 *            the strategy of each merged column; columns without a
+	 *            strategy, or with a deferred one, are left to the next
+	 *            handler
+	 */
+	public AggregateAttributeConflictHandler(final Map<CyColumn, ConflictStrategy> strategies) {
+		if (strategies == null) {
+			throw new java.lang.NullPointerException();
+		}
+		this.strategies = strategies;
+	}
+
+	@Override
+	public boolean handleIt(final CyIdentifiable to, final CyColumn toColumn,
+			final Map<CyIdentifiable, CyColumn> mapFromGOFromAttr) {
+		final Object value = resolve(to, toColumn, mapFromGOFromAttr);
+		if (value == UNRESOLVED) {
+			return false;
+		}
+
+		toColumn.getTable().getRow(to.getSUID()).set(toColumn.getName(), value);
+		return true;
+	}
+
+	@Override
+	public Object resolve(final CyIdentifiable to, final CyColumn toColumn,
+			final Map<CyIdentifiable, CyColumn> mapFromGOFromAttr) {
+		if (to == null || toColumn == null || mapFromGOFromAttr == null) {
+			throw new java.lang.NullPointerException("All parameters should not be null.");
+		}
+
+		if (!isResolved(toColumn)) {
+			return UNRESOLVED;
+		}
+
+		// the values are added to the resolution as they are read from the rows
+		final ColumnType type = ColumnType.getType(toColumn);
+		final ConflictStrategy.Resolution resolution = strategies.get(toColumn).newResolution(type);
+		final CyRow row = toColumn.getTable().getRow(to.getSUID());
+		final Object toValue = row.get(toColumn.getName(), type.getType());
+		if (toValue != null) {
+			resolution.add(toValue);
+		}
+
+		for (Map.Entry<CyIdentifiable, CyColumn> entry : mapFromGOFromAttr.entrySet()) {
+			final Object fromValue = AttributeConflictManager.getValue(entry.getKey(), entry.getValue(), type);
+			if (fromValue != null) {
+				resolution.add(fromValue);
+			}
+		}
+
+		return resolution.getValue();
+	}
+
+	@Override
+	public Object resolve(final CyIdentifiable to, final CyColumn toColumn, final Object toValue,
+			final Map<CyIdentifiable, Object> mapFromGOValue) {
+		if (to == null || toColumn == null || mapFromGOValue == null) {
+			throw new java.lang.NullPointerException("All parameters should not be null.");
+		}
+
+		if (!isResolved(toColumn)) {
+			return UNRESOLVED;
+		}
+
+		final ConflictStrategy.Resolution resolution = strategies.get(toColumn)
+				.newResolution(ColumnType.getType(toColumn));
+
+		// the merged cell holds the first value
+		if (toValue != null) {
+			resolution.add(toValue);
+		}
+
+		for (Object fromValue : mapFromGOValue.values()) {
+			if (fromValue != null) {
+				resolution.add(fromValue);
+			}
+		}
+
+		return resolution.getValue();
+	}
+
+	@Override
+	public boolean isAggregated(final CyColumn toColumn) {
+		return isResolved(toColumn);
+	}
+
+	private boolean isResolved(final CyColumn toColumn) {
+		final ConflictStrategy strategy = strategies.get(toColumn);
+		final ColumnType type = ColumnType.getType(toColumn);
+		return strategy != null && strategy.isInline() && !type.isList() && strategy.isApplicable(type);
+	}
+}
@@ -27,13 +27,19 @@ package org.cytoscape.network.merge.internal.conflict;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyColumn;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Collect attribute conflicts
+ *
+ * The graph objects handed out may be holders of the SUIDs of the
+ * collected ones: they are equal to each other by SUID, not to the graph
+ * objects, which are looked up by SUID in their networks.
  * 
  */
-public interface AttributeConflictCollector {
+public interface AttributeConflictCollector extends Iterable<Map.Entry<CyIdentifiable,CyColumn>> {
 
         /**
          *
@@ -43,10 +49,44 @@ public interface AttributeConflictCollector {
 
         /**
          *
-         * @return all map of to node id to attribute
+         * @return the number of conflicting pairs of target graph object and column
          */
+        public int getSize();
+
+        /**
+         *
+         * @return all map of to node id to attribute, holding one column per graph object
+         * @deprecated use {@link #iterator()}, which covers every column
+         */
+        @Deprecated
         public Map<CyIdentifiable,CyColumn> getMapToGOAttr();
 
+        /**
+         * Iterate over the conflicting pairs of target graph object and column,
+         * without copying them. The conflicts of the current pair may be removed
+         * while iterating: the pairs left are all still visited.
+         *
+         * @return iterator over the target graph objects and columns
+         */
+        @Override
+        public Iterator<Map.Entry<CyIdentifiable,CyColumn>> iterator();
+
+        /**
+         *
+         * @return the target columns with conflicts
+         */
+        public List<CyColumn> getConflictColumns();
+
+        /**
+         * Iterate over the conflicting target graph objects of a column. The
+         * conflicts of different columns can be read concurrently, as long as
+         * no conflict is added or removed.
+         *
+         * @param toAttr
+         * @return iterator over the target graph objects and the column
+         */
+        public Iterator<Map.Entry<CyIdentifiable,CyColumn>> iterator(CyColumn toAttr);
+
         /**
          * Get conflicts for a specific toID and toAttribute
          * @param toID
@@ -26,95 +26,351 @@ package org.cytoscape.network.merge.internal.conflict;
 
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyColumn;
+import org.cytoscape.network.merge.internal.util.LongIntHashMap;
 
-import java.util.Map;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Collect attribute conflicts
  *
+ * Conflicts are partitioned by target column. Each partition stores the
+ * SUIDs of the target and source graph objects in primitive arrays, the
+ * conflicts of a target being chained from a hash map of target SUIDs.
+ * Removed conflicts are unlinked from their chain, and the arrays are
+ * compacted once most of their conflicts are removed, unless an iterator
+ * is still going through them. Graph objects are handed out as SUID
+ * holders, equal by SUID to each other but not to the graph objects.
+ *
  * Assumption: for each from_node, only one attribute to be merged into to_node
  * 
  */
 public class AttributeConflictCollectorImpl implements AttributeConflictCollector {
 
-        protected class Conflicts {
-                //public final CyTable cyAttributes;
-                public Map<CyIdentifiable,CyColumn> mapFromGOFromAttr;
+        private static final int INITIAL_CAPACITY = 16;
+        // the arrays of a column are compacted below this fraction of live conflicts
+        private static final int MIN_LIVE_PERCENT = 25;
+
+        /*
+         * The conflicts of one target column
+         */
+        protected static class ColumnConflicts {
+                final CyColumn toAttr;
+                final List<CyColumn> fromAttrs = new ArrayList<CyColumn>(2);
+                // target SUID -> first conflict of the target
+                final LongIntHashMap heads = new LongIntHashMap(INITIAL_CAPACITY);
+                long[] toSUIDs = new long[INITIAL_CAPACITY];
+                long[] fromSUIDs = new long[INITIAL_CAPACITY];
+                int[] fromAttrIndexes = new int[INITIAL_CAPACITY];
+                // next conflict of the same target, -1 for the last one
+                int[] next = new int[INITIAL_CAPACITY];
+                int size;
+                // the conflicts still chained from heads
+                int live;
+                // the iterators going through the arrays, which compaction would break
+                int iterators;
+
+                ColumnConflicts(final CyColumn toAttr) {
+                        this.toAttr = toAttr;
+                }
+
+                void addConflict(final long from, final CyColumn fromAttr, final long to) {
+                        int fromAttrIndex = fromAttrs.indexOf(fromAttr);
+                        if (fromAttrIndex==-1) {
+                                fromAttrIndex = fromAttrs.size();
+                                fromAttrs.add(fromAttr);
+                        }
+
+                        int last = -1;
+                        for (int i = heads.get(to); i!=-1; i = next[i]) {
+                                if (fromSUIDs[i]==from) { // one attribute per from graph object
+                                        fromAttrIndexes[i] = fromAttrIndex;
+                                        return;
+                                }
+                                last = i;
+                        }
 
-                public Conflicts() {
-                        //this.cyAttributes = cyAttributes;
-                        mapFromGOFromAttr = new HashMap<CyIdentifiable,CyColumn>();
+                        if (size==toSUIDs.length) {
+                                final int capacity = size*2;
+                                toSUIDs = Arrays.copyOf(toSUIDs, capacity);
+                                fromSUIDs = Arrays.copyOf(fromSUIDs, capacity);
+                                fromAttrIndexes = Arrays.copyOf(fromAttrIndexes, capacity);
+                                next = Arrays.copyOf(next, capacity);
+                        }
+                        toSUIDs[size] = to;
+                        fromSUIDs[size] = from;
+                        fromAttrIndexes[size] = fromAttrIndex;
+                        next[size] = -1;
+                        if (last==-1) {
+                                heads.put(to, size);
+                        } else {
+                                next[last] = size;
+                        }
+                        size++;
+                        live++;
                 }
 
-                public void addConflict(final CyIdentifiable from, final CyColumn fromAttr) {
-                        mapFromGOFromAttr.put(from, fromAttr);
+                boolean removeConflict(final long from, final CyColumn fromAttr, final long to) {
+                        int previous = -1;
+                        for (int i = heads.get(to); i!=-1; i = next[i]) {
+                                if (fromSUIDs[i]==from) {
+                                        if (fromAttrs.get(fromAttrIndexes[i])!=fromAttr) {
+                                                return false;
+                                        }
+                                        if (previous!=-1) {
+                                                next[previous] = next[i];
+                                        } else if (next[i]!=-1) {
+                                                heads.put(to, next[i]);
+                                        } else {
+                                                heads.remove(to);
+                                        }
+                                        live--;
+                                        compactIfSparse();
+                                        return true;
+                                }
+                                previous = i;
+                        }
+                        return false;
                 }
 
-                public boolean removeConflict(final CyIdentifiable from, final CyColumn fromAttr) {
-                        CyColumn attr = mapFromGOFromAttr.get(from);
-                        if (attr==null || attr!=fromAttr) {
+                boolean removeConflicts(final long to) {
+                        final int head = heads.remove(to);
+                        if (head==-1) {
                                 return false;
                         }
-
-                        mapFromGOFromAttr.remove(from);
+                        for (int i = head; i!=-1; i = next[i]) {
+                                live--;
+                        }
+                        compactIfSparse();
                         return true;
                 }
+
+                /*
+                 * Move the live conflicts to the front of the arrays, in the
+                 * same order, once most of the conflicts are removed and
+                 * no iterator is going through them
+                 */
+                void compactIfSparse() {
+                        if (iterators>0 || size<=INITIAL_CAPACITY || live*100L>=size*(long)MIN_LIVE_PERCENT) {
+                                return;
+                        }
+
+                        // new index of each live conflict, -1 for the removed ones
+                        final int[] moved = new int[size];
+                        Arrays.fill(moved, -1);
+                        for (int i = 0; i<size; i++) {
+                                if (moved[i]==-1 && heads.get(toSUIDs[i])==i) {
+                                        for (int j = i; j!=-1; j = next[j]) {
+                                                moved[j] = 0;
+                                        }
+                                }
+                        }
+
+                        int n = 0;
+                        for (int i = 0; i<size; i++) {
+                                if (moved[i]==-1) {
+                                        continue;
+                                }
+                                if (heads.get(toSUIDs[i])==i) {
+                                        heads.put(toSUIDs[i], n);
+                                }
+                                moved[i] = n;
+                                toSUIDs[n] = toSUIDs[i];
+                                fromSUIDs[n] = fromSUIDs[i];
+                                fromAttrIndexes[n] = fromAttrIndexes[i];
+                                next[n] = next[i];
+                                n++;
+                        }
+                        // conflicts are chained to later ones, which are all moved by now
+                        for (int i = 0; i<n; i++) {
+                                if (next[i]!=-1) {
+                                        next[i] = moved[next[i]];
+                                }
+                        }
+
+                        final int capacity = Math.max(INITIAL_CAPACITY, n*2);
+                        toSUIDs = Arrays.copyOf(toSUIDs, capacity);
+                        fromSUIDs = Arrays.copyOf(fromSUIDs, capacity);
+                        fromAttrIndexes = Arrays.copyOf(fromAttrIndexes, capacity);
+                        next = Arrays.copyOf(next, capacity);
+                        size = n;
+                }
+
+                Map<CyIdentifiable,CyColumn> getConflicts(final long to) {
+                        final int head = heads.get(to);
+                        if (head==-1) {
+                                return null;
+                        }
+
+                        final Map<CyIdentifiable,CyColumn> mapFromGOFromAttr = new LinkedHashMap<CyIdentifiable,CyColumn>();
+                        for (int i = head; i!=-1; i = next[i]) {
+                                mapFromGOFromAttr.put(new SUIDIdentifiable(fromSUIDs[i]), fromAttrs.get(fromAttrIndexes[i]));
+                        }
+                        return mapFromGOFromAttr;
+                }
+        }
+
+        /*
+         * A graph object known by its SUID only
+         */
+        protected static final class SUIDIdentifiable implements CyIdentifiable {
+                private final long suid;
+
+                SUIDIdentifiable(final long suid) {
+                        this.suid = suid;
+                }
+
+                @Override
+                public Long getSUID() {
+                        return suid;
+                }
+
+                @Override
+                public boolean equals(final Object obj) {
+                        return obj instanceof SUIDIdentifiable && ((SUIDIdentifiable)obj).suid==suid;
+                }
+
+                @Override
+                public int hashCode() {
+                        return Long.hashCode(suid);
+                }
+
+                @Override
+                public String toString() {
+                        return Long.toString(suid);
+                }
         }
 
-        protected Map<CyIdentifiable,Map<CyColumn,Conflicts>> mapToGOToAttrConflicts;
+        protected Map<CyColumn,ColumnConflicts> mapToAttrConflicts;
 
         public AttributeConflictCollectorImpl() {
-                this.mapToGOToAttrConflicts = new HashMap<CyIdentifiable,Map<CyColumn,Conflicts>>();
+                this.mapToAttrConflicts = new LinkedHashMap<CyColumn,ColumnConflicts>();
         }
 
         
         @Override
         public boolean isEmpty() {
-                return mapToGOToAttrConflicts.isEmpty();
+                return mapToAttrConflicts.isEmpty();
         }
 
         @Override
+        public int getSize() {
+                int size = 0;
+                for (ColumnConflicts conflicts : mapToAttrConflicts.values()) {
+                        size += conflicts.heads.size();
+                }
+                return size;
+        }
+
+        @Override
+        @Deprecated
         public Map<CyIdentifiable,CyColumn> getMapToGOAttr() {
                 Map<CyIdentifiable,CyColumn> mapToGOAttr = new HashMap<CyIdentifiable,CyColumn>();
-                for (Map.Entry<CyIdentifiable,Map<CyColumn,Conflicts>> entry : mapToGOToAttrConflicts.entrySet()) {
-                        CyIdentifiable go = entry.getKey();
-                        for (CyColumn attr : entry.getValue().keySet()) {
-                                mapToGOAttr.put(go,attr);
-                        }
+                final Iterator<Map.Entry<CyIdentifiable,CyColumn>> it = iterator();
+                while (it.hasNext()) {
+                        final Map.Entry<CyIdentifiable,CyColumn> entry = it.next();
+                        mapToGOAttr.put(entry.getKey(), entry.getValue());
                 }
 
                 return mapToGOAttr;
         }
 
+        @Override
+        public Iterator<Map.Entry<CyIdentifiable,CyColumn>> iterator() {
+                return iterator(new ArrayList<ColumnConflicts>(mapToAttrConflicts.values()).iterator());
+        }
+
+        @Override
+        public List<CyColumn> getConflictColumns() {
+                return new ArrayList<CyColumn>(mapToAttrConflicts.keySet());
+        }
+
+        @Override
+        public Iterator<Map.Entry<CyIdentifiable,CyColumn>> iterator(final CyColumn toAttr) {
+                if (toAttr==null) {
+                        throw new java.lang.NullPointerException();
+                }
+
+                final ColumnConflicts conflicts = mapToAttrConflicts.get(toAttr);
+                if (conflicts==null) {
+                        return Collections.<Map.Entry<CyIdentifiable,CyColumn>>emptyIterator();
+                }
+                return iterator(Collections.singletonList(conflicts).iterator());
+        }
+
+        private Iterator<Map.Entry<CyIdentifiable,CyColumn>> iterator(final Iterator<ColumnConflicts> itColumn) {
+                return new Iterator<Map.Entry<CyIdentifiable,CyColumn>>() {
+                        private ColumnConflicts conflicts;
+                        private int i = -1;
+                        // move to the head of the next conflicting target, if any
+                        private boolean advance() {
+                                while (true) {
+                                        if (conflicts!=null) {
+                                                while (++i<conflicts.size) {
+                                                        if (conflicts.heads.get(conflicts.toSUIDs[i])==i) {
+                                                                return true;
+                                                        }
+                                                }
+                                                // compact what was removed while going through the column
+                                                conflicts.iterators--;
+                                                conflicts.compactIfSparse();
+                                        }
+                                        if (!itColumn.hasNext()) {
+                                                conflicts = null;
+                                                return false;
+                                        }
+                                        conflicts = itColumn.next();
+                                        conflicts.iterators++;
+                                        i = -1;
+                                }
+                        }
+
+                        private boolean ready;
+                        private boolean hasNext;
+
+                        @Override
+                        public boolean hasNext() {
+                                if (!ready) {
+                                        hasNext = advance();
+                                        ready = true;
+                                }
+                                return hasNext;
+                        }
+
+                        @Override
+                        public Map.Entry<CyIdentifiable,CyColumn> next() {
+                                if (!hasNext()) {
+                                        throw new NoSuchElementException();
+                                }
+                                ready = false;
+                                return new AbstractMap.SimpleImmutableEntry<CyIdentifiable,CyColumn>(
+                                        new SUIDIdentifiable(conflicts.toSUIDs[i]), conflicts.toAttr);
+                        }
+                };
+        }
+
         @Override
         public Map<CyIdentifiable,CyColumn> getConflicts(final CyIdentifiable to, final CyColumn toAttr){
                 if (to==null || toAttr==null) {
                         throw new java.lang.NullPointerException();
                 }
 
-                Map<CyColumn,Conflicts> mapToAttrConflicts = mapToGOToAttrConflicts.get(to);
-                if (mapToAttrConflicts==null) {
+                final ColumnConflicts conflicts = mapToAttrConflicts.get(toAttr);
+                if (conflicts==null) {
                         return null;
                 }
 
-                return mapToAttrConflicts.get(toAttr).mapFromGOFromAttr;
+                return conflicts.getConflicts(to.getSUID());
         }
 
-//        @Override
-//        public CyTable getCyAttributes(final CyIdentifiable to, final String toAttr) {
-//                if (to==null || toAttr==null) {
-//                        throw new java.lang.NullPointerException();
-//                }
-//
-//                Map<String,Conflicts> mapToAttrConflicts = mapToGOToAttrConflicts.get(to);
-//                if (mapToAttrConflicts==null) {
-//                        return null;
-//                }
-//
-//                return mapToAttrConflicts.get(toAttr).cyAttributes;
-//        }
-
         @Override
         public void addConflict(final CyIdentifiable from,
                                         final CyColumn fromAttr,
@@ -124,41 +380,31 @@ public class AttributeConflictCollectorImpl implements AttributeConflictCollecto
                         throw new java.lang.NullPointerException();
                 }
 
-                Map<CyColumn,Conflicts> mapToAttrConflicts = mapToGOToAttrConflicts.get(to);
-                if (mapToAttrConflicts==null) {
-                        mapToAttrConflicts = new HashMap<CyColumn,Conflicts>();
-                        mapToGOToAttrConflicts.put(to, mapToAttrConflicts);
-                }
-
-                Conflicts conflicts = mapToAttrConflicts.get(toAttr);
+                ColumnConflicts conflicts = mapToAttrConflicts.get(toAttr);
                 if (conflicts==null) {
-                        conflicts = new Conflicts();
+                        conflicts = new ColumnConflicts(toAttr);
                         mapToAttrConflicts.put(toAttr, conflicts);
-                } else {
-//                        if (conflicts.cyAttributes!=cyAttributes) {
-//                                throw new java.lang.IllegalArgumentException("CyAttributes are different.");
-//                        }
                 }
 
-                conflicts.addConflict(from, fromAttr);
+                conflicts.addConflict(from.getSUID(), fromAttr, to.getSUID());
         }
 
-    @Override
+        @Override
         public boolean removeConflicts(CyIdentifiable to, CyColumn toAttr) {
                 if (to==null || toAttr==null) {
                         throw new java.lang.NullPointerException();
                 }
 
-                Map<CyColumn,Conflicts> mapToAttrConflicts = mapToGOToAttrConflicts.get(to);
-                if (mapToAttrConflicts==null) {
+                final ColumnConflicts conflicts = mapToAttrConflicts.get(toAttr);
+                if (conflicts==null) {
                         return false;
                 }
 
-                if (mapToAttrConflicts.get(toAttr)==null) {
+                if (!conflicts.removeConflicts(to.getSUID())) {
                         return false;
                 }
 
-                mapToAttrConflicts.remove(toAttr);
+                removeIfEmpty(conflicts);
                 return true;
         }
 
@@ -168,25 +414,23 @@ public class AttributeConflictCollectorImpl implements AttributeConflictCollecto
                         throw new java.lang.NullPointerException();
                 }
 
-                Map<CyColumn,Conflicts> mapToAttrConflicts = mapToGOToAttrConflicts.get(to);
-                if (mapToAttrConflicts==null) {
-                        return false;
-                }
-
-                Conflicts conflicts = mapToAttrConflicts.get(toAttr);
+                final ColumnConflicts conflicts = mapToAttrConflicts.get(toAttr);
                 if (conflicts==null) {
                         return false;
                 }
 
-                boolean ret = conflicts.removeConflict(from, fromAttr);
-                if (ret && conflicts.mapFromGOFromAttr.isEmpty()) {
-                        mapToAttrConflicts.remove(toAttr);
-                        if (mapToAttrConflicts.isEmpty()) {
-                                mapToGOToAttrConflicts.remove(to);
-                        }
+                final boolean ret = conflicts.removeConflict(from.getSUID(), fromAttr, to.getSUID());
+                if (ret) {
+                        removeIfEmpty(conflicts);
                 }
 
                 return ret;
         }
 
+        private void removeIfEmpty(final ColumnConflicts conflicts) {
+                if (conflicts.heads.isEmpty()) {
+                        mapToAttrConflicts.remove(conflicts.toAttr);
+                }
+        }
+
 }
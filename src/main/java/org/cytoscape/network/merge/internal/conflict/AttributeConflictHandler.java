@@ -36,6 +36,12 @@ import org.cytoscape.model.CyIdentifiable;
  */
 public interface AttributeConflictHandler {
 
+        /**
+         * Value returned by {@link #resolve} for a conflict that the handler
+         * does not handle
+         */
+        public static final Object UNRESOLVED = new Object();
+
         /**
          * Handle attribute conflict when merging (copying from one attr to another).
          *
@@ -45,4 +51,37 @@ public interface AttributeConflictHandler {
          *      true if successful, false if failed
          */
         public boolean handleIt(CyIdentifiable to, CyColumn toAttr, Map<CyIdentifiable,CyColumn> mapFromGOFromAttr);
+
+        /**
+         * Resolve attribute conflict without setting the value.
+         *
+         * @return
+         *      the resolved value, or UNRESOLVED if the conflict is not handled
+         */
+        public Object resolve(CyIdentifiable to, CyColumn toAttr, Map<CyIdentifiable,CyColumn> mapFromGOFromAttr);
+
+        /**
+         * Resolve attribute conflict from values read beforehand, without
+         * reading or setting any table, so that conflicts can be resolved off
+         * the thread that reads the tables.
+         *
+         * @param toValue
+         *      the value of the merged cell, or null
+         * @param mapFromGOValue
+         *      the value of each conflicting graph object, cast to the type of
+         *      the merged column, or null
+         * @return
+         *      the resolved value, or UNRESOLVED if the conflict is not handled
+         */
+        public Object resolve(CyIdentifiable to, CyColumn toAttr, Object toValue, Map<CyIdentifiable,Object> mapFromGOValue);
+
+        /**
+         * Whether the conflicts of a column are resolved by aggregating their
+         * values, each value being added to the result as it is read rather
+         * than read into a map beforehand.
+         *
+         * @return
+         *      true if the conflicts of the column are aggregated by the handler
+         */
+        public boolean isAggregated(CyColumn toAttr);
 }
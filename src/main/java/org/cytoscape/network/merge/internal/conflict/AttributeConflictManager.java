@@ -25,11 +25,22 @@ package org.cytoscape.network.merge.internal.conflict;
  */
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.network.merge.internal.util.ColumnType;
 
 /**
  *
@@ -38,10 +49,72 @@ import org.cytoscape.model.CyColumn;
 public class AttributeConflictManager {
         final AttributeConflictCollector conflictCollector;
         final List<AttributeConflictHandler> conflictHandlers;
+        // the networks holding the graph objects of the conflicts
+        final List<CyNetwork> networks;
 
+        /**
+         * A batch of conflicts of one column. The conflicts of a column
+         * aggregated by the first handler are resolved as their values are
+         * read. The values of the others are read from the tables beforehand,
+         * so that they can be resolved off the thread reading and setting the
+         * tables.
+         */
+        public static final class ConflictBatch {
+                private final CyColumn column;
+                private final CyIdentifiable[] tos;
+                private final Object[] toValues;
+                private final List<Map<CyIdentifiable,Object>> fromValues;
+                private final Object[] values;
+                private final boolean[] resolved;
+
+                ConflictBatch(final CyColumn column, final int size) {
+                        this.column = column;
+                        tos = new CyIdentifiable[size];
+                        toValues = new Object[size];
+                        fromValues = new ArrayList<Map<CyIdentifiable,Object>>(size);
+                        values = new Object[size];
+                        resolved = new boolean[size];
+                }
+
+                public CyColumn getColumn() {
+                        return column;
+                }
+
+                /**
+                 *
+                 * @return the number of conflicts of the batch
+                 */
+                public int size() {
+                        return tos.length;
+                }
+
+                /**
+                 *
+                 * @return the number of resolved conflicts
+                 */
+                public int getResolvedCount() {
+                        int count = 0;
+                        for (boolean r : resolved) {
+                                if (r) {
+                                        count++;
+                                }
+                        }
+                        return count;
+                }
+        }
+
+        /**
+         *
+         * @param conflictCollector
+         * @param conflictHandlers
+         * @param networks the merged network and the source networks, which
+         *        the graph objects of the conflicts are looked up in before
+         *        they are handed to the handlers
+         */
         public AttributeConflictManager(final AttributeConflictCollector conflictCollector,
-                                        final List<AttributeConflictHandler> conflictHandlers) {
-                if (conflictCollector==null || conflictHandlers==null) {
+                                        final List<AttributeConflictHandler> conflictHandlers,
+                                        final List<CyNetwork> networks) {
+                if (conflictCollector==null || conflictHandlers==null || networks==null) {
                         throw new java.lang.NullPointerException();
                 }
                 if (conflictHandlers.isEmpty()) {
@@ -50,27 +123,213 @@ public class AttributeConflictManager {
 
                 this.conflictCollector = conflictCollector;
                 this.conflictHandlers = conflictHandlers;
+                this.networks = new ArrayList<CyNetwork>(networks);
         }
 
         public void handleConflicts() {
-                // System.out.println("Handling conflicts");
-
-                Map<CyIdentifiable,CyColumn> mapToIDToAttr = conflictCollector.getMapToGOAttr();
-                for (Map.Entry<CyIdentifiable,CyColumn> entryToIDToAttr : mapToIDToAttr.entrySet()) {
-                        CyIdentifiable toID = entryToIDToAttr.getKey();
-                        CyColumn toAttr = entryToIDToAttr.getValue();
-                        // System.out.println("Looking at conflicts for "+toID+":"+toAttr.getName());
-                        Map<CyIdentifiable,CyColumn> mapFromIDFromAttr = conflictCollector.getConflicts(toID, toAttr);
-                        // for (CyIdentifiable id: mapFromIDFromAttr.keySet()) {
-                        //   System.out.println("....."+id+":"+mapFromIDFromAttr.get(id).getName()+" conflicts");
-                        // }
+                for (CyColumn toAttr : conflictCollector.getConflictColumns()) {
+                        handleConflicts(toAttr, getConflictTargets(toAttr));
+                }
+        }
+
+        /**
+         * Handle the conflicts of some graph objects only, leaving the other
+         * conflicts in the collector, so that the cost is in proportion to
+         * the graph objects rather than to all the conflicts.
+         *
+         * @param tos the graph objects, or their SUIDs
+         */
+        public void handleConflicts(final Collection<? extends CyIdentifiable> tos) {
+                for (CyColumn toAttr : conflictCollector.getConflictColumns()) {
+                        final List<CyIdentifiable> columnTos = new ArrayList<CyIdentifiable>();
+                        for (CyIdentifiable to : tos) {
+                                if (conflictCollector.getConflicts(to, toAttr)!=null) {
+                                        columnTos.add(to);
+                                }
+                        }
+                        if (!columnTos.isEmpty()) {
+                                handleConflicts(toAttr, columnTos);
+                        }
+                }
+        }
+
+        private void handleConflicts(final CyColumn toAttr, final List<CyIdentifiable> tos) {
+                final ConflictBatch batch = readConflicts(toAttr, tos, 0, tos.size());
+                resolveConflicts(batch);
+                setResolvedValues(batch);
+                removeResolvedConflicts(batch);
+        }
+
+        /**
+         * The targets of the conflicts of a column, to be read in batches
+         * while the conflicts of the batches already resolved are removed.
+         *
+         * @param toAttr
+         * @return the conflicting graph objects of the column
+         */
+        public List<CyIdentifiable> getConflictTargets(final CyColumn toAttr) {
+                final List<CyIdentifiable> tos = new ArrayList<CyIdentifiable>();
+                final Iterator<Map.Entry<CyIdentifiable,CyColumn>> it = conflictCollector.iterator(toAttr);
+                while (it.hasNext()) {
+                        tos.add(it.next().getKey());
+                }
+                return tos;
+        }
+
+        /**
+         * Read the values of the conflicts of the targets from start to end,
+         * from the thread that owns the tables.
+         *
+         * @param toAttr
+         * @param tos the targets of getConflictTargets
+         * @param start
+         * @param end
+         * @return the batch of the conflicts to resolve
+         */
+        public ConflictBatch readConflicts(final CyColumn toAttr, final List<CyIdentifiable> tos, final int start,
+                                        final int end) {
+                final ColumnType type = ColumnType.getType(toAttr);
+                final CyTable table = toAttr.getTable();
+                final ConflictBatch batch = new ConflictBatch(toAttr, end - start);
+                // the handlers are tried in order, so only the first one may
+                // resolve the conflicts as they are read
+                final AttributeConflictHandler aggregatingHandler = conflictHandlers.get(0).isAggregated(toAttr)
+                                ? conflictHandlers.get(0) : null;
+                for (int i = start; i < end; i++) {
+                        final CyIdentifiable toID = tos.get(i);
+                        final Map<CyIdentifiable,CyColumn> mapFromIDFromAttr = conflictCollector.getConflicts(toID, toAttr);
+                        final CyIdentifiable to = getGraphObject(toID);
+                        batch.tos[i - start] = to;
+                        if (aggregatingHandler!=null) {
+                                // the rows are only read by SUID, no value is kept
+                                final Object value = aggregatingHandler.resolve(to, toAttr, mapFromIDFromAttr!=null
+                                                ? mapFromIDFromAttr : Collections.<CyIdentifiable,CyColumn>emptyMap());
+                                if (value!=AttributeConflictHandler.UNRESOLVED) {
+                                        batch.fromValues.add(null);
+                                        batch.values[i - start] = value;
+                                        batch.resolved[i - start] = true;
+                                        continue;
+                                }
+                        }
+
+                        final Map<CyIdentifiable,CyColumn> mapFromGOFromAttr = new LinkedHashMap<CyIdentifiable,CyColumn>();
+                        if (mapFromIDFromAttr!=null) {
+                                for (Map.Entry<CyIdentifiable,CyColumn> entry : mapFromIDFromAttr.entrySet()) {
+                                        mapFromGOFromAttr.put(getGraphObject(entry.getKey()), entry.getValue());
+                                }
+                        }
+
+                        final CyRow row = table.getRow(to.getSUID());
+                        batch.toValues[i - start] = type.isList() ? null : row.get(toAttr.getName(), type.getType());
+                        batch.fromValues.add(getValues(mapFromGOFromAttr, type));
+                }
+                return batch;
+        }
+
+        /**
+         * Resolve the conflicts of a batch without touching the tables. The
+         * batches can be resolved concurrently.
+         *
+         * @param batch
+         */
+        public void resolveConflicts(final ConflictBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                        if (batch.resolved[i]) { // while read
+                                continue;
+                        }
                         for (AttributeConflictHandler handler : conflictHandlers) {
-                                if (handler.handleIt(toID,toAttr,mapFromIDFromAttr)) {
-                                        conflictCollector.removeConflicts(toID, toAttr);
+                                final Object value = handler.resolve(batch.tos[i], batch.column, batch.toValues[i],
+                                                batch.fromValues.get(i));
+                                if (value!=AttributeConflictHandler.UNRESOLVED) {
+                                        batch.values[i] = value;
+                                        batch.resolved[i] = true;
                                         break;
                                 }
                         }
                 }
         }
 
+        /**
+         * Set the resolved values of a batch.
+         *
+         * @param batch
+         */
+        public void setResolvedValues(final ConflictBatch batch) {
+                final CyColumn toAttr = batch.column;
+                final CyTable table = toAttr.getTable();
+                for (int i = 0; i < batch.size(); i++) {
+                        if (batch.resolved[i]) {
+                                table.getRow(batch.tos[i].getSUID()).set(toAttr.getName(), batch.values[i]);
+                        }
+                }
+        }
+
+        /**
+         * Remove the resolved conflicts of a batch from the collector, by
+         * target and column.
+         *
+         * @param batch
+         */
+        public void removeResolvedConflicts(final ConflictBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                        if (batch.resolved[i]) {
+                                conflictCollector.removeConflicts(batch.tos[i], batch.column);
+                        }
+                }
+        }
+
+        /*
+         * The values of the conflicting graph objects, cast to the type of the
+         * merged column
+         */
+        static Map<CyIdentifiable,Object> getValues(final Map<CyIdentifiable,CyColumn> mapFromGOFromAttr,
+                                        final ColumnType type) {
+                final Map<CyIdentifiable,Object> mapFromGOValue = new LinkedHashMap<CyIdentifiable,Object>();
+                for (Map.Entry<CyIdentifiable,CyColumn> entry : mapFromGOFromAttr.entrySet()) {
+                        mapFromGOValue.put(entry.getKey(), getValue(entry.getKey(), entry.getValue(), type));
+                }
+                return mapFromGOValue;
+        }
+
+        /*
+         * The value of a conflicting graph object, cast to the type of the
+         * merged column, null for lists
+         */
+        static Object getValue(final CyIdentifiable from, final CyColumn fromColumn, final ColumnType type) {
+                final ColumnType fromType = ColumnType.getType(fromColumn);
+                if (fromType.isList() || type.isList()) {
+                        return null;
+                }
+
+                final Object value = fromColumn.getTable().getRow(from.getSUID())
+                                .get(fromColumn.getName(), fromType.getType());
+                return value!=null && fromType!=type ? type.castService(value) : value;
+        }
+
+        /*
+         * The node, edge or network of a SUID, the collector may only know the
+         * SUIDs of the graph objects
+         */
+        private CyIdentifiable getGraphObject(final CyIdentifiable id) {
+                if (id instanceof CyNode || id instanceof CyEdge || id instanceof CyNetwork) {
+                        return id;
+                }
+
+                final long suid = id.getSUID();
+                for (CyNetwork network : networks) {
+                        if (network.getSUID()==suid) {
+                                return network;
+                        }
+                        final CyNode node = network.getNode(suid);
+                        if (node!=null) {
+                                return node;
+                        }
+                        final CyEdge edge = network.getEdge(suid);
+                        if (edge!=null) {
+                                return edge;
+                        }
+                }
+                return id; // removed since it was collected
+        }
+
 }
@@ -0,0 +1,375 @@
+package org.cytoscape.network.merge.internal.conflict;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.cytoscape.network.merge.internal.util.ColumnType;
+
+/**
+ * How the conflicting values of a merged column are resolved. All the
+ * strategies but {@link #DEFERRED} are applied while the values are merged,
+ * without collecting the conflicts.
+ */
+public enum ConflictStrategy {
+	// conflicts are collected and handled after the merge
+	DEFERRED("Deferred"),
+	// the first value
+	FIRST("First"),
+	// the last value
+	LAST("Last"),
+	// the sorted unique values, separated by ";"
+	CONCATENATE("Concatenate"),
+	SUM("Sum"),
+	MEAN("Mean"),
+	MIN("Min"),
+	MAX("Max"),
+	MEDIAN("Median"),
+	// the number of values
+	COUNT("Count"),
+	// true if any value is true
+	ANY("Any"),
+	// true if all the values are true
+	ALL("All"),
+	// true if more than half of the values are true
+	MAJORITY("Majority");
+
+	private final String name;
+
+	private ConflictStrategy(final String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * @return true if the conflicts are resolved while merging
+	 */
+	public boolean isInline() {
+		return this != DEFERRED;
+	}
+
+	/**
+	 * @return true if a single value is merged unchanged
+	 */
+	public boolean keepsSingleValue() {
+		return this != COUNT;
+	}
+
+	public boolean isApplicable(final ColumnType type) {
+		switch (this) {
+		case DEFERRED:
+			return true;
+		case FIRST:
+		case LAST:
+			return !type.isList();
+		case CONCATENATE:
+			return type == ColumnType.STRING;
+		case ANY:
+		case ALL:
+		case MAJORITY:
+			return type == ColumnType.BOOLEAN;
+		default:
+			return isNumber(type);
+		}
+	}
+
+	/**
+	 * The default strategy gives the same result as the default conflict
+	 * handler: strings are concatenated, other values keep the first one.
+	 * List columns are merged as the union of their values and never
+	 * conflict.
+	 */
+	public static ConflictStrategy getDefault(final ColumnType type) {
+		if (type.isList())
+			return DEFERRED;
+		return type == ColumnType.STRING ? CONCATENATE : FIRST;
+	}
+
+	/**
+	 * @param type
+	 *            the type of the merged column, which the values are cast to
+	 * @return a new resolution of the values of one merged cell
+	 */
+	public Resolution newResolution(final ColumnType type) {
+		switch (this) {
+		case FIRST:
+			return new First();
+		case LAST:
+			return new Last();
+		case CONCATENATE:
+			return new Concatenate();
+		case SUM:
+			return new Sum(type);
+		case MEAN:
+			return new Mean(type);
+		case MIN:
+			return new Extreme(false);
+		case MAX:
+			return new Extreme(true);
+		case MEDIAN:
+			return new Median(type);
+		case COUNT:
+			return new Count(type);
+		case ANY:
+		case ALL:
+		case MAJORITY:
+			return new Vote(this);
+		default:
+			throw new UnsupportedOperationException(name + " conflicts are not resolved while merging");
+		}
+	}
+
+	/**
+	 * Resolves the values of one merged cell as they are merged.
+	 */
+	public static abstract class Resolution {
+		/**
+		 * @param value
+		 *            a non-null value, of the type of the merged column
+		 */
+		public abstract void add(Object value);
+
+		/**
+		 * @return the merged value, or null if no value was added
+		 */
+		public abstract Object getValue();
+	}
+
+	private static boolean isNumber(final ColumnType type) {
+		return type == ColumnType.INTEGER || type == ColumnType.LONG || type == ColumnType.DOUBLE;
+	}
+
+	private static Object toType(final ColumnType type, final long value) {
+		if (type == ColumnType.INTEGER)
+			return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+		if (type == ColumnType.LONG)
+			return value;
+		return (double) value;
+	}
+
+	// empty strings are only kept if there is no other value
+	private static class First extends Resolution {
+		private Object value;
+
+		@Override
+		public void add(final Object value) {
+			if (this.value == null || "".equals(this.value))
+				this.value = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	private static class Last extends Resolution {
+		private Object value;
+
+		@Override
+		public void add(final Object value) {
+			if (this.value == null || !"".equals(value))
+				this.value = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	private static class Concatenate extends Resolution {
+		private final TreeSet<String> values = new TreeSet<String>();
+		private boolean empty;
+
+		@Override
+		public void add(final Object value) {
+			final String str = value.toString();
+			if (str.isEmpty())
+				empty = true;
+			else
+				values.add(str);
+		}
+
+		@Override
+		public Object getValue() {
+			if (values.isEmpty())
+				return empty ? "" : null;
+			return String.join(";", values);
+		}
+	}
+
+	private static class Sum extends Resolution {
+		private final ColumnType type;
+		private long longSum;
+		private double doubleSum;
+		private boolean any;
+
+		Sum(final ColumnType type) {
+			this.type = type;
+		}
+
+		@Override
+		public void add(final Object value) {
+			if (type == ColumnType.DOUBLE)
+				doubleSum += ((Number) value).doubleValue();
+			else
+				longSum += ((Number) value).longValue();
+			any = true;
+		}
+
+		@Override
+		public Object getValue() {
+			if (!any)
+				return null;
+			return type == ColumnType.DOUBLE ? (Object) doubleSum : toType(type, longSum);
+		}
+	}
+
+	private static class Mean extends Resolution {
+		private final ColumnType type;
+		private double sum;
+		private int count;
+
+		Mean(final ColumnType type) {
+			this.type = type;
+		}
+
+		@Override
+		public void add(final Object value) {
+			sum += ((Number) value).doubleValue();
+			count++;
+		}
+
+		@Override
+		public Object getValue() {
+			if (count == 0)
+				return null;
+			final double mean = sum / count;
+			return type == ColumnType.DOUBLE ? (Object) mean : toType(type, Math.round(mean));
+		}
+	}
+
+	private static class Extreme extends Resolution {
+		private final boolean max;
+		private Comparable<Object> value;
+
+		Extreme(final boolean max) {
+			this.max = max;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void add(final Object value) {
+			final Comparable<Object> comparable = (Comparable<Object>) value;
+			if (this.value == null || (comparable.compareTo(this.value) > 0) == max)
+				this.value = comparable;
+		}
+
+		@Override
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	private static class Median extends Resolution {
+		private final ColumnType type;
+		private double[] values = new double[8];
+		private int count;
+
+		Median(final ColumnType type) {
+			this.type = type;
+		}
+
+		@Override
+		public void add(final Object value) {
+			if (count == values.length)
+				values = Arrays.copyOf(values, count * 2);
+			values[count++] = ((Number) value).doubleValue();
+		}
+
+		@Override
+		public Object getValue() {
+			if (count == 0)
+				return null;
+			Arrays.sort(values, 0, count);
+			final double median = (count & 1) == 1 ? values[count / 2]
+					: (values[count / 2 - 1] + values[count / 2]) / 2;
+			return type == ColumnType.DOUBLE ? (Object) median : toType(type, Math.round(median));
+		}
+	}
+
+	private static class Count extends Resolution {
+		private final ColumnType type;
+		private int count;
+
+		Count(final ColumnType type) {
+			this.type = type;
+		}
+
+		@Override
+		public void add(final Object value) {
+			count++;
+		}
+
+		@Override
+		public Object getValue() {
+			return toType(type, count);
+		}
+	}
+
+	private static class Vote extends Resolution {
+		private final ConflictStrategy strategy;
+		private int trues;
+		private int count;
+
+		Vote(final ConflictStrategy strategy) {
+			this.strategy = strategy;
+		}
+
+		@Override
+		public void add(final Object value) {
+			if ((Boolean) value)
+				trues++;
+			count++;
+		}
+
+		@Override
+		public Object getValue() {
+			if (count == 0)
+				return null;
+			if (strategy == ANY)
+				return trues > 0;
+			if (strategy == ALL)
+				return trues == count;
+			return trues * 2 > count;
+		}
+	}
+}
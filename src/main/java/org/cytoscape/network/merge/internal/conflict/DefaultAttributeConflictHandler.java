@@ -39,31 +39,56 @@ public class DefaultAttributeConflictHandler implements AttributeConflictHandler
 	@Override
 	public boolean handleIt(final CyIdentifiable to, final CyColumn toColumn,
 			final Map<CyIdentifiable, CyColumn> mapFromGOFromAttr) {
+		final Object value = resolve(to, toColumn, mapFromGOFromAttr);
+		if (value == UNRESOLVED) {
+			return false;
+		}
+
+		toColumn.getTable().getRow(to.getSUID()).set(toColumn.getName(), value);
+		return true;
+	}
+
+	@Override
+	public Object resolve(final CyIdentifiable to, final CyColumn toColumn,
+			final Map<CyIdentifiable, CyColumn> mapFromGOFromAttr) {
 		
 		if (to == null || toColumn == null || mapFromGOFromAttr == null) {
 			throw new java.lang.NullPointerException("All parameters should not be null.");
 		}
 
+		if (ColumnType.getType(toColumn) != ColumnType.STRING) {
+			return UNRESOLVED;
+		}
+
 		final CyTable table = toColumn.getTable();
 		final CyRow row = table.getRow(to.getSUID());
+		return resolve(to, toColumn, row.get(toColumn.getName(), String.class),
+				AttributeConflictManager.getValues(mapFromGOFromAttr, ColumnType.STRING));
+	}
+
+	@Override
+	public Object resolve(final CyIdentifiable to, final CyColumn toColumn, final Object toValue,
+			final Map<CyIdentifiable, Object> mapFromGOValue) {
+		if (to == null || toColumn == null || mapFromGOValue == null) {
+			throw new java.lang.NullPointerException("All parameters should not be null.");
+		}
+
 		final ColumnType type = ColumnType.getType(toColumn);
 
 		if (type == ColumnType.STRING) {
-			final String toValue = row.get(toColumn.getName(), String.class);
 			final Set<String> values = new TreeSet<String>();
-			values.add(toValue);
-
-			for (Map.Entry<CyIdentifiable, CyColumn> entry : mapFromGOFromAttr.entrySet()) {
-				final CyIdentifiable from = entry.getKey();
-				final CyColumn fromColumn = entry.getValue();
-				final CyRow fromRow = fromColumn.getTable().getRow(from.getSUID());
-				
-				// TODO figure out which network to be using
-				String fromValue = fromRow.get(fromColumn.getName(), String.class);
+			if (toValue != null) {
+				values.add(toValue.toString());
+			}
+
+			for (Object fromValue : mapFromGOValue.values()) {
 				if (fromValue != null) {
 					values.add(fromValue.toString());
 				}
 			}
+			if (values.isEmpty()) {
+				return null;
+			}
 
 			StringBuilder str = new StringBuilder();
 			for (String v : values) {
@@ -71,12 +96,15 @@ public class DefaultAttributeConflictHandler implements AttributeConflictHandler
 			}
 
 			str.deleteCharAt(str.length() - 1);
-			row.set(toColumn.getName(), str.toString());
-
-			return true;
+			return str.toString();
 		}
 
 		// FIXME: how about Integer, Double, Boolean?
+		return UNRESOLVED;
+	}
+
+	@Override
+	public boolean isAggregated(final CyColumn toColumn) {
 		return false;
 	}
 }
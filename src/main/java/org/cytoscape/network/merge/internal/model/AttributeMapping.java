@@ -31,6 +31,7 @@ import java.util.Map;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyTable;
 
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.util.ColumnType;
 
 /**
@@ -143,6 +144,42 @@ public interface AttributeMapping {
 		 */
 		public void setMergedAttributeMutability(String mergedAttributeName, boolean isImmutable);
 
+		/**
+		 * Get the conflict strategy of the column
+		 *
+		 * @param index
+		 * @return the strategy set for the ith merged attribute, or the
+		 *         default strategy of its type
+		 */
+		public ConflictStrategy getMergedAttributeStrategy(int index);
+
+		/**
+		 * Get the conflict strategy of the column
+		 *
+		 * @param mergedAttributeName
+		 * @return the strategy set for the merged attribute, or the default
+		 *         strategy of its type
+		 */
+		public ConflictStrategy getMergedAttributeStrategy(String mergedAttributeName);
+
+		/**
+		 * Set the conflict strategy of the column
+		 *
+		 * @param index
+		 * @param strategy null for the default strategy of the type
+		 * @return true if successful; false if the strategy does not apply to the type
+		 */
+		public boolean setMergedAttributeStrategy(int index, ConflictStrategy strategy);
+
+		/**
+		 * Set the conflict strategy of the column
+		 *
+		 * @param mergedAttributeName
+		 * @param strategy null for the default strategy of the type
+		 * @return true if successful; false if the strategy does not apply to the type
+		 */
+		public boolean setMergedAttributeStrategy(String mergedAttributeName, ConflictStrategy strategy);
+
     /**
      *
      * @param attributeName
@@ -38,6 +38,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.WeakHashMap;
 
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.util.ColumnType;
 
 /**
@@ -51,6 +52,7 @@ public class AttributeMappingImpl implements AttributeMapping {
     private List<String> mergedAttributes;
     private List<ColumnType> mergedAttributeTypes;
     private List<Boolean> mergedAttributeMutability;
+    private List<ConflictStrategy> mergedAttributeStrategies; // null for the default of the type
     private Map<CyNetwork,CyTable> cyTables;
     private final String nullAttr = ""; // to hold a position in vector standing that it's not a attribute
 
@@ -59,6 +61,7 @@ public class AttributeMappingImpl implements AttributeMapping {
         mergedAttributes = new ArrayList<String>();
         mergedAttributeTypes = new ArrayList<ColumnType>();
         mergedAttributeMutability = new ArrayList<Boolean>();
+        mergedAttributeStrategies = new ArrayList<ConflictStrategy>();
         cyTables = new WeakHashMap<CyNetwork,CyTable>();
     }
 
@@ -208,6 +211,63 @@ public class AttributeMappingImpl implements AttributeMapping {
         setMergedAttributeMutability(index,isImmutable);
     }
 
+    @Override
+    public ConflictStrategy getMergedAttributeStrategy(final int index) {
+        if (index>=this.getSizeMergedAttributes()||index<0)  {
+            throw new java.lang.IndexOutOfBoundsException();
+        }
+
+        final ColumnType type = mergedAttributeTypes.get(index);
+        final ConflictStrategy strategy = mergedAttributeStrategies.get(index);
+        if (strategy==null || !strategy.isApplicable(type)) { // the type may have changed
+            return ConflictStrategy.getDefault(type);
+        }
+        return strategy;
+    }
+
+    @Override
+    public ConflictStrategy getMergedAttributeStrategy(final String mergedAttributeName) {
+        if (mergedAttributeName==null) {
+            throw new java.lang.NullPointerException("Null netID or mergedAttributeName");
+        }
+
+        final int index = mergedAttributes.indexOf(mergedAttributeName);
+        if (index==-1) {
+            throw new java.lang.IllegalArgumentException("No "+mergedAttributeName+" is contained in merged table columns");
+        }
+
+        return getMergedAttributeStrategy(index);
+    }
+
+    @Override
+    public boolean setMergedAttributeStrategy(final int index, final ConflictStrategy strategy) {
+        if (index>=this.getSizeMergedAttributes()||index<0) {
+                throw new java.lang.IndexOutOfBoundsException();
+        }
+
+        if (strategy!=null && !strategy.isApplicable(mergedAttributeTypes.get(index))) {
+            System.err.println("Cannot resolve "+mergedAttributeTypes.get(index).name()+" conflicts by "+strategy.name());
+            return false;
+        }
+
+        this.mergedAttributeStrategies.set(index, strategy);
+        return true;
+    }
+
+    @Override
+    public boolean setMergedAttributeStrategy(final String mergedAttributeName, final ConflictStrategy strategy) {
+        if (mergedAttributeName==null) {
+            throw new java.lang.NullPointerException("Null netID or mergedAttributeName");
+        }
+
+        final int index = mergedAttributes.indexOf(mergedAttributeName);
+        if (index==-1) {
+            throw new java.lang.IllegalArgumentException("No "+mergedAttributeName+" is contained in merged table columns");
+        }
+
+        return setMergedAttributeStrategy(index,strategy);
+    }
+
     @Override
     public boolean containsMergedAttribute(final String attributeName) {
         if (attributeName==null) {
@@ -374,6 +434,7 @@ public class AttributeMappingImpl implements AttributeMapping {
 
         this.mergedAttributeTypes.remove(index);
         this.mergedAttributeMutability.remove(index);
+        this.mergedAttributeStrategies.remove(index);
 
         return mergedAttributes.remove(index);
     }
@@ -422,6 +483,7 @@ public class AttributeMappingImpl implements AttributeMapping {
 
         this.resetMergedAttributeType(index, true);
         this.resetMergedAttributeMutability(index, true);
+        this.mergedAttributeStrategies.add(index, null);
         return defaultName;
     }
 
@@ -604,6 +666,7 @@ public class AttributeMappingImpl implements AttributeMapping {
         mergedAttributes.add(getDefaultMergedAttrName(attrMerged)); // add in merged attr
         this.resetMergedAttributeType(mergedAttributeTypes.size(),true);
         this.resetMergedAttributeMutability(mergedAttributeMutability.size(),true);
+        this.mergedAttributeStrategies.add(null);
     }
 
     protected void resetMergedAttributeType(final int index, boolean add) {
@@ -24,27 +24,57 @@ package org.cytoscape.network.merge.internal.task;
  * #L%
  */
 
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
 import org.cytoscape.network.merge.internal.conflict.*;
 
 import org.cytoscape.work.AbstractTask;
 import org.cytoscape.work.TaskMonitor;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  *
  * @author jj
  */
 public class HandleConflictsTask extends AbstractTask {
+	// the conflicts resolved by a task of the pool
+	private static final int BATCH_SIZE = 4096;
+	// the batches read and not set yet
+	private static final int MAX_PENDING_BATCHES = 8;
+
 	private AttributeConflictCollector conflictCollector;
+	private List<CyNetwork> networks;
+	private Map<CyColumn, ConflictStrategy> strategies;
+
+	/**
+	 * Constructor.<br>
+	 *
+	 * @param networks the merged network and the source networks
+	 */
+	public HandleConflictsTask(final AttributeConflictCollector conflictCollector, final List<CyNetwork> networks) {
+		this(conflictCollector, networks, Collections.<CyColumn, ConflictStrategy>emptyMap());
+	}
 
 	/**
 	 * Constructor.<br>
 	 *
+	 * @param networks the merged network and the source networks
+	 * @param strategies the conflict strategy of each merged column
 	 */
-	public HandleConflictsTask(final AttributeConflictCollector conflictCollector) {
+	public HandleConflictsTask(final AttributeConflictCollector conflictCollector, final List<CyNetwork> networks,
+			final Map<CyColumn, ConflictStrategy> strategies) {
 		this.conflictCollector = conflictCollector;
+		this.networks = networks;
+		this.strategies = strategies;
 	}
 
 	/**
@@ -55,10 +85,10 @@ public class HandleConflictsTask extends AbstractTask {
 	 */
 	//@Override
 	public void run(TaskMonitor taskMonitor) throws Exception {
-		taskMonitor.setStatusMessage("Handle conflicts.\n\nIt may take a while.\nPlease wait...");
+		taskMonitor.setStatusMessage("Handle conflicts...");
 		taskMonitor.setProgress(0.0d);
 
-		int nBefore = conflictCollector.getMapToGOAttr().size();
+		int nBefore = conflictCollector.getSize();
 
 		List<AttributeConflictHandler> conflictHandlers = new ArrayList<AttributeConflictHandler>();
 
@@ -69,16 +99,72 @@ public class HandleConflictsTask extends AbstractTask {
 		//                conflictHandlers.add(conflictHandler);
 		//             }
 
+		conflictHandler = new AggregateAttributeConflictHandler(strategies);
+		conflictHandlers.add(conflictHandler);
+
 		conflictHandler = new DefaultAttributeConflictHandler();
 		conflictHandlers.add(conflictHandler);
 
-		AttributeConflictManager conflictManager = new AttributeConflictManager(conflictCollector,conflictHandlers);
-		conflictManager.handleConflicts();
+		final AttributeConflictManager conflictManager = new AttributeConflictManager(conflictCollector,conflictHandlers,networks);
+
+		// the values of a batch are read here, resolved concurrently, then set
+		// here, and its conflicts removed as soon as its values are set
+		final ArrayDeque<Future<AttributeConflictManager.ConflictBatch>> futures =
+				new ArrayDeque<Future<AttributeConflictManager.ConflictBatch>>(MAX_PENDING_BATCHES);
+		int done = 0;
+		try {
+			for (final CyColumn column : conflictCollector.getConflictColumns()) {
+				if (cancelled)
+					break;
+				final List<CyIdentifiable> tos = conflictManager.getConflictTargets(column);
+				for (int start = 0; start < tos.size() && !cancelled; start += BATCH_SIZE) {
+					final AttributeConflictManager.ConflictBatch batch = conflictManager.readConflicts(column, tos,
+							start, Math.min(tos.size(), start + BATCH_SIZE));
+					futures.add(ForkJoinPool.commonPool().submit(() -> {
+						conflictManager.resolveConflicts(batch);
+						return batch;
+					}));
+					if (futures.size() == MAX_PENDING_BATCHES)
+						done += setResolvedValues(conflictManager, futures.poll().get(), done, nBefore, taskMonitor);
+				}
+			}
+			while (!futures.isEmpty() && !cancelled)
+				done += setResolvedValues(conflictManager, futures.poll().get(), done, nBefore, taskMonitor);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		} finally {
+			// the batches left are not set, and their conflicts are kept
+			for (Future<?> future : futures) {
+				future.cancel(false);
+			}
+		}
 
-		int nAfter = conflictCollector.getMapToGOAttr().size();
+		if (cancelled)
+			return;
+
+		int nAfter = conflictCollector.getSize();
 
 		taskMonitor.setProgress(1.0d);
 		taskMonitor.setStatusMessage("Successfully handled " + (nBefore-nAfter) + " table column conflicts. "
 					      + nAfter+" conflicts remains.");
 	}
+
+	/*
+	 * set the values of a resolved batch and remove its conflicts, returns
+	 * the number of conflicts of the batch
+	 */
+	private int setResolvedValues(final AttributeConflictManager conflictManager,
+			final AttributeConflictManager.ConflictBatch batch, final int done, final int total,
+			final TaskMonitor taskMonitor) {
+		conflictManager.setResolvedValues(batch);
+		conflictManager.removeResolvedConflicts(batch);
+
+		taskMonitor.setStatusMessage("Handled " + batch.getResolvedCount() + " conflicts of column "
+				+ batch.getColumn().getName());
+		if (total > 0)
+			taskMonitor.setProgress(Math.min(1.0d, (done + batch.size()) / (double) total));
+		return batch.size();
+	}
 }
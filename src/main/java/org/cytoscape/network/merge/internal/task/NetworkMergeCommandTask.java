@@ -4,6 +4,7 @@ package org.cytoscape.network.merge.internal.task;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.cytoscape.model.CyColumn;
@@ -18,6 +19,7 @@ import org.cytoscape.network.merge.internal.NetworkMerge;
 import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
 import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
 import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollectorImpl;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.model.AttributeMapping;
 import org.cytoscape.network.merge.internal.model.AttributeMappingImpl;
 import org.cytoscape.network.merge.internal.model.ColumnMergeRecord;
@@ -49,10 +51,17 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 
 	  @Tunable(
 				description = "Type of Merge", context= Tunable.NOGUI_CONTEXT,
-				longDescription="Whether the networks are merged by union, intersection or difference",
+				longDescription="Whether the networks are merged by union, intersection, difference (the first network minus all later networks), symmetric difference or quorum",
 				exampleStringValue = "union"
 		)
-	  public ListSingleSelection<String> operation = new ListSingleSelection<String>("union","intersection","difference");
+	  public ListSingleSelection<String> operation = new ListSingleSelection<String>("union","intersection","difference","symmetric difference","quorum");
+
+	@Tunable(
+				description = "Quorum", context= Tunable.NOGUI_CONTEXT,
+				longDescription="For the quorum operation, the number of networks a node or edge must be in to be merged, 0 for more than half of the networks",
+				exampleStringValue = "2"
+		)
+	  public int quorum = 0;
 
 	@Tunable(
 				description = "Name of the output network", context= Tunable.NOGUI_CONTEXT,
@@ -63,7 +72,7 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 
 		@Tunable(
 				description="Source Networks", context="nogui",
-				longDescription="The comma-delimited names of the input networks (max:2)",
+				longDescription="The comma-delimited names of the input networks",
 				exampleStringValue= "network1, network2")
 		public String sources;
 
@@ -105,6 +114,27 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 	)
 	public  String networkMergeMap;
 
+	@Tunable(
+			description = "Node Merge Strategies", context= Tunable.NOGUI_CONTEXT,
+			longDescription="A comma-delimited list of merged node columns with the strategy resolving their conflicting values, of the form column:STRATEGY. The strategies are DEFERRED, FIRST, LAST, CONCATENATE, SUM, MEAN, MIN, MAX, MEDIAN, COUNT for numbers, and ANY, ALL, MAJORITY for booleans. The other columns keep the first value, or concatenate strings",
+			exampleStringValue = "score:MEAN, count:SUM, essential:ANY"
+	)
+	public  String nodeMergeStrategies;
+
+	@Tunable(
+			description = "Edge Merge Strategies", context= Tunable.NOGUI_CONTEXT,
+			longDescription="A comma-delimited list of merged edge columns with the strategy resolving their conflicting values, of the form column:STRATEGY, with the strategies of nodeMergeStrategies",
+			exampleStringValue = "weight:MAX, EdgeBetweenness:MEDIAN"
+	)
+	public  String edgeMergeStrategies;
+
+	@Tunable(
+			description = "Network Merge Strategies", context= Tunable.NOGUI_CONTEXT,
+			longDescription="A comma-delimited list of merged network columns with the strategy resolving their conflicting values, of the form column:STRATEGY, with the strategies of nodeMergeStrategies",
+			exampleStringValue = "size:SUM"
+	)
+	public  String networkMergeStrategies;
+
 	@Tunable(
 				description = "Nodes only", context= Tunable.NOGUI_CONTEXT,
 				longDescription="If true, this will merge the node tables and dismiss edges.",
@@ -119,6 +149,13 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 		)
 	public boolean inNetworkMerge = true;
 
+	@Tunable(
+				description = "Keep the merged network up to date", context=Tunable.NOGUI_CONTEXT,
+				longDescription="If true, the nodes and edges added to or removed from the source networks, and the values set in their tables, are merged into the merged network as they change. Only for the union of networks matched on a single key column",
+				exampleStringValue = "false"
+		)
+	public boolean incremental = false;
+
 	//--------------------------------------------------------------------------------------
 	private CyServiceRegistrar registrar;
 
@@ -165,6 +202,9 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 		AttributeMapping nodeAttributeMapping = buildNodeAttributeMapping(networkList, nodeMergeMap);
 		AttributeMapping edgeAttributeMapping = buildEdgeAttributeMapping(networkList, edgeMergeMap);
 		AttributeMapping networkAttributeMapping = buildNetworkAttributeMapping(networkList, networkMergeMap);
+		setStrategies(nodeAttributeMapping, nodeMergeStrategies, "node");
+		setStrategies(edgeAttributeMapping, edgeMergeStrategies, "edge");
+		setStrategies(networkAttributeMapping, networkMergeStrategies, "network");
 
 		NetworkMerge.Operation op = Operation.UNION;
 		if (operation.getSelectedValue().equals("union"))
@@ -173,6 +213,10 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 			op = Operation.INTERSECTION;
 		else if (operation.getSelectedValue().equals("difference"))
 			op = Operation.DIFFERENCE;
+		else if (operation.getSelectedValue().equals("symmetric difference"))
+			op = Operation.SYMMETRIC_DIFFERENCE;
+		else if (operation.getSelectedValue().equals("quorum"))
+			op = Operation.QUORUM;
 
 		if (verbose)
 			System.err.println("Operation: " + op.toString() );
@@ -184,6 +228,8 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 		nmTask = new NetworkMergeTask(registrar, netName,
 				matchingAttribute,	nodeAttributeMapping, edgeAttributeMapping, networkAttributeMapping,
 				networkList, op, useDiference, conflictCollector, inNetworkMerge, nodesOnly);
+		nmTask.setQuorum(quorum);
+		nmTask.setIncremental(incremental);
 
 		TaskManager<?,?> tm = registrar.getService(SynchronousTaskManager.class);
 		tm.execute(new TaskIterator(nmTask));
@@ -298,6 +344,21 @@ public class NetworkMergeCommandTask extends AbstractTask implements ObservableT
 		return mapping;
 	}
 
+	//nodeMergeStrategies="score:MEAN, count:SUM"
+	private void setStrategies(AttributeMapping mapping, String strategyString, String tableName) {
+		Map<String, ConflictStrategy> strategies = ParseUtils.getStrategyMap(strategyString);
+		if (strategies == null) return;
+		for (Map.Entry<String, ConflictStrategy> entry : strategies.entrySet())
+		{
+			String mergedAttribute = entry.getKey();
+			if (!mapping.containsMergedAttribute(mergedAttribute))
+				throw new IllegalArgumentException("No merged " + tableName + " column " + mergedAttribute);
+			if (!mapping.setMergedAttributeStrategy(mergedAttribute, entry.getValue()))
+				throw new IllegalArgumentException(entry.getValue() + " does not apply to the "
+						+ mapping.getMergedAttributeType(mergedAttribute) + " " + tableName + " column " + mergedAttribute);
+		}
+	}
+
 	private AttributeMapping buildNodeAttributeMapping(List<CyNetwork> networkList, String mergeString) {
 		AttributeMapping nodeAttributeMapping = new AttributeMappingImpl();
 		for (CyNetwork net : networkList)
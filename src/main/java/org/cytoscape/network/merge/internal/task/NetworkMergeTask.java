@@ -30,14 +30,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
+import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.network.merge.internal.AttributeBasedNetworkMerge;
+import org.cytoscape.network.merge.internal.IncrementalNetworkMerge;
 import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
 import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.model.AttributeMapping;
 import org.cytoscape.network.merge.internal.model.MatchingAttribute;
 import org.cytoscape.network.merge.internal.util.AttributeMerger;
@@ -74,10 +84,13 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 
 	private boolean inNetworkMerge;
 	private boolean nodesOnly;
+	private int quorum;
+	private boolean incremental;
 
 	private final CyNetworkFactory cnf;
 	private final CyNetworkManager networkManager;
 	private final CyNetworkViewManager viewManager;
+	private final CyEventHelper eventHelper;
 	private final AnnotationManager annotationManager;
 	private final String networkName;
 	private CyNetwork newNetwork;
@@ -112,9 +125,28 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 		this.networkManager = serviceRegistrar.getService(CyNetworkManager.class);
 		this.netViewCreator = serviceRegistrar.getService(CreateNetworkViewTaskFactory.class);
 		this.viewManager = serviceRegistrar.getService(CyNetworkViewManager.class);
+		this.eventHelper = serviceRegistrar.getService(CyEventHelper.class);
 		this.annotationManager = serviceRegistrar.getService(AnnotationManager.class);
 	}
 
+	/**
+	 * @param quorum
+	 *            the number of networks a node or edge must be in to be
+	 *            merged by Operation.QUORUM, 0 for more than half of them
+	 */
+	public void setQuorum(final int quorum) {
+		this.quorum = quorum;
+	}
+
+	/**
+	 * @param incremental
+	 *            true to keep the merged network up to date as the source
+	 *            networks change
+	 */
+	public void setIncremental(final boolean incremental) {
+		this.incremental = incremental;
+	}
+
 	@Override
 	public void cancel() {
 		cancelled = true;
@@ -132,12 +164,9 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 
 		// Create new network (merged network)
 		taskMonitor.setStatusMessage("Creating new merged network...");
-		newNetwork = cnf.createNetwork();
+		newNetwork = createNetwork();
 		newNetwork.getRow(newNetwork).set(CyNetwork.NAME, networkName);
 
-		// Register merged network
-		networkManager.addNetwork(newNetwork);
-
 		taskMonitor.setStatusMessage("Merging networks...");
 		final AttributeValueMatcher attributeValueMatcher = new DefaultAttributeValueMatcher();
 		final AttributeMerger attributeMerger = new DefaultAttributeMerger(conflictCollector);
@@ -145,14 +174,68 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 		this.networkMerge = new AttributeBasedNetworkMerge(matchingAttribute, nodeAttributeMapping, edgeAttributeMapping,
 		    networkAttributeMapping, attributeMerger, attributeValueMatcher, taskMonitor);
 		networkMerge.setWithinNetworkMerge(inNetworkMerge);
+		networkMerge.setQuorum(quorum);
+		networkMerge.setIncremental(incremental);
+		if (incremental && !networkMerge.isIncrementalMergeSupported(selectedNetworkList, operation))
+			throw new IllegalArgumentException(
+					"Only the union of networks matched on a single key column can be kept up to date");
+
+		// Merge everything. The merged network and its local tables, which
+		// nobody listens to before the network is registered, are silenced
+		// while it is populated. The nodes, edges and rows added to the
+		// shared root network are batched into payload events, which are
+		// flushed before the network is registered, so that listeners see it
+		// once, complete.
+		final CyRootNetwork sharedRoot = getSharedRootNetwork(selectedNetworkList);
+		final Map<CyTable, Set<String>> sharedColumns = getSharedColumnNames(sharedRoot);
+		final List<Object> eventSources = getEventSources(newNetwork);
+
+		// The changes to the networks from the start of the merge on are
+		// received by the incremental merge, which applies them once started
+		final IncrementalNetworkMerge incrementalMerge = incremental ? new IncrementalNetworkMerge(networkMerge,
+				newNetwork, selectedNetworkList, conflictCollector, serviceRegistrar) : null;
+		if (incrementalMerge != null)
+			serviceRegistrar.registerAllServices(incrementalMerge, new Properties());
+
+		boolean merged = false;
+		for (Object source : eventSources)
+			eventHelper.silenceEventSource(source);
+		try {
+			networkMerge.mergeNetwork(newNetwork, selectedNetworkList, operation, subtractOnlyUnconnectedNodes, nodesOnly);
+			merged = !cancelled;
+		} finally {
+			for (Object source : eventSources)
+				eventHelper.unsilenceEventSource(source);
+			eventHelper.flushPayloadEvents();
+			// the merged network of a failed or cancelled merge is never
+			// registered, nor are its nodes, edges and columns left in the
+			// shared root network
+			if (!merged) {
+				if (incrementalMerge != null)
+					incrementalMerge.dispose();
+				if (sharedRoot != null)
+					removeFromRoot(sharedRoot, sharedColumns);
+			}
+		}
 
-		// Merge everything
-		networkMerge.mergeNetwork(newNetwork, selectedNetworkList, operation, subtractOnlyUnconnectedNodes, nodesOnly);
+		// Keep the merged network up to date once it is complete, the task
+		// inserted first running last
+		if (incrementalMerge != null && merged) {
+			insertTasksAfterCurrentTask(new AbstractTask() {
+				@Override
+				public void run(TaskMonitor taskMonitor) {
+					incrementalMerge.start();
+				}
+			});
+		}
 
 		// Perform conflict handling if necessary
 		if (!conflictCollector.isEmpty() && !cancelled) {
 			taskMonitor.setStatusMessage("Processing conflicts...");
-			HandleConflictsTask hcTask = new HandleConflictsTask(conflictCollector);
+			final List<CyNetwork> networks = new ArrayList<CyNetwork>(selectedNetworkList.size() + 1);
+			networks.add(newNetwork);
+			networks.addAll(selectedNetworkList);
+			HandleConflictsTask hcTask = new HandleConflictsTask(conflictCollector, networks, getConflictStrategies());
 			insertTasksAfterCurrentTask(hcTask);
 		}
 
@@ -160,12 +243,21 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 		if(cancelled) {
 			taskMonitor.setStatusMessage("Network merge canceled.");
 			taskMonitor.setProgress(1.0d);
-			networkManager.destroyNetwork(newNetwork);
-			newNetwork = null;
+			// cancelled once merged
+			if (merged) {
+				if (incrementalMerge != null)
+					incrementalMerge.dispose();
+				if (sharedRoot != null)
+					removeFromRoot(sharedRoot, sharedColumns);
+			}
+			newNetwork = null; // never registered
 			this.networkMerge = null;
 			return;
 		}
 
+		// Register merged network
+		networkManager.addNetwork(newNetwork);
+
 		// Note that this has to be before we create the view so that it will execute after
 		// it's created
 		if (annotationMap.size() > 0) {
@@ -202,6 +294,136 @@ public class NetworkMergeTask extends AbstractTask implements ObservableTask {
 		return annotationMap;
 	}
 
+	/*
+	 * The merged network of subnetworks of the same root network is a new
+	 * subnetwork of that root, so that their nodes and edges are added to it
+	 * as they are. Otherwise it is a new network.
+	 */
+	private CyNetwork createNetwork() {
+		CyRootNetwork root = getSharedRootNetwork(selectedNetworkList);
+		return root != null ? root.addSubNetwork() : cnf.createNetwork();
+	}
+
+	private static CyRootNetwork getSharedRootNetwork(List<CyNetwork> networks) {
+		CyRootNetwork root = null;
+		for (CyNetwork network : networks) {
+			if (!(network instanceof CySubNetwork))
+				return null;
+			CyRootNetwork netRoot = ((CySubNetwork) network).getRootNetwork();
+			if (root != null && netRoot != root)
+				return null;
+			root = netRoot;
+		}
+		return root;
+	}
+
+	/*
+	 * the network and its local tables, which fire events while the network
+	 * is populated
+	 */
+	private static List<Object> getEventSources(CyNetwork network) {
+		List<Object> sources = new ArrayList<>();
+		sources.add(network);
+		sources.add(network.getDefaultNodeTable());
+		sources.add(network.getDefaultEdgeTable());
+		sources.add(network.getDefaultNetworkTable());
+		if (network instanceof CySubNetwork) {
+			sources.add(network.getTable(CyNode.class, CyNetwork.LOCAL_ATTRS));
+			sources.add(network.getTable(CyEdge.class, CyNetwork.LOCAL_ATTRS));
+			sources.add(network.getTable(CyNetwork.class, CyNetwork.LOCAL_ATTRS));
+		}
+		return sources;
+	}
+
+	/*
+	 * the columns of the shared tables of the root network before the merge
+	 */
+	private static Map<CyTable, Set<String>> getSharedColumnNames(CyRootNetwork root) {
+		Map<CyTable, Set<String>> columnNames = new HashMap<>();
+		if (root == null)
+			return columnNames;
+
+		for (CyTable table : Arrays.asList(root.getSharedNodeTable(), root.getSharedEdgeTable(),
+				root.getSharedNetworkTable())) {
+			Set<String> names = new HashSet<>();
+			for (CyColumn column : table.getColumns())
+				names.add(column.getName());
+			columnNames.put(table, names);
+		}
+		return columnNames;
+	}
+
+	/*
+	 * Remove the merged network from the root network, with the nodes, edges
+	 * and shared columns that the merge added to the root. The nodes and edges
+	 * of the other subnetworks, which the merged network holds by reference,
+	 * are kept.
+	 */
+	private void removeFromRoot(CyRootNetwork root, Map<CyTable, Set<String>> sharedColumns) {
+		List<CySubNetwork> otherNetworks = new ArrayList<>(root.getSubNetworkList());
+		otherNetworks.remove(newNetwork);
+
+		List<CyNode> addedNodes = new ArrayList<>();
+		for (CyNode node : newNetwork.getNodeList()) {
+			if (!isInNetworks(otherNetworks, node))
+				addedNodes.add(node);
+		}
+		List<CyEdge> addedEdges = new ArrayList<>();
+		for (CyEdge edge : newNetwork.getEdgeList()) {
+			if (!isInNetworks(otherNetworks, edge))
+				addedEdges.add(edge);
+		}
+
+		root.removeSubNetwork((CySubNetwork) newNetwork);
+		root.removeEdges(addedEdges);
+		root.removeNodes(addedNodes);
+
+		for (Map.Entry<CyTable, Set<String>> entry : sharedColumns.entrySet()) {
+			CyTable table = entry.getKey();
+			for (CyColumn column : new ArrayList<>(table.getColumns())) {
+				if (!entry.getValue().contains(column.getName()))
+					table.deleteColumn(column.getName());
+			}
+		}
+	}
+
+	private static boolean isInNetworks(List<CySubNetwork> networks, CyNode node) {
+		for (CySubNetwork network : networks) {
+			if (network.containsNode(node))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isInNetworks(List<CySubNetwork> networks, CyEdge edge) {
+		for (CySubNetwork network : networks) {
+			if (network.containsEdge(edge))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * the conflict strategy of each column of the merged network
+	 */
+	private Map<CyColumn,ConflictStrategy> getConflictStrategies() {
+		Map<CyColumn, ConflictStrategy> strategies = new HashMap<>();
+		addConflictStrategies(strategies, newNetwork.getDefaultNodeTable(), nodeAttributeMapping);
+		addConflictStrategies(strategies, newNetwork.getDefaultEdgeTable(), edgeAttributeMapping);
+		addConflictStrategies(strategies, newNetwork.getDefaultNetworkTable(), networkAttributeMapping);
+		return strategies;
+	}
+
+	private void addConflictStrategies(Map<CyColumn,ConflictStrategy> strategies, CyTable table,
+			AttributeMapping attributeMapping) {
+		for (int i = 0; i < attributeMapping.getSizeMergedAttributes(); i++) {
+			CyColumn column = table.getColumn(attributeMapping.getMergedAttribute(i));
+			if (column != null) {
+				strategies.put(column, attributeMapping.getMergedAttributeStrategy(i));
+			}
+		}
+	}
+
 	@Override
 	public List<Class<?>> getResultClasses() {
 		return Arrays.asList(String.class, CyNetwork.class, JSONResult.class);
@@ -49,6 +49,7 @@ import javax.swing.table.TableColumn;
 import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyTable;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.model.AttributeMapping;
 import org.cytoscape.network.merge.internal.model.MatchingAttribute;
 import org.cytoscape.network.merge.internal.util.ColumnType;
@@ -221,6 +222,45 @@ class MergeAttributeTable extends JTable {
 							this.setToolTipText("Only types of new columns are changeable");
 						}
 						
+						return this;
+					}
+				});
+			} else if (this.isColumnMergedStrategy(i)) {
+				// the strategies depend on the merged type, which may have changed
+				column.setCellEditor(new DefaultCellEditor(new JComboBox<ConflictStrategy>()) {
+					@Override
+					public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected,
+							int row, int column) {
+						@SuppressWarnings("unchecked")
+						JComboBox<ConflictStrategy> cb = (JComboBox<ConflictStrategy>) getComponent();
+						cb.removeAllItems();
+						ColumnType type = attributeMapping.getMergedAttributeType(row);
+						for (ConflictStrategy strategy : ConflictStrategy.values()) {
+							if (strategy.isApplicable(type))
+								cb.addItem(strategy);
+						}
+						return super.getTableCellEditorComponent(table, value, isSelected, row, column);
+					}
+				});
+
+				column.setCellRenderer(new DefaultTableCellRenderer() {
+					@Override
+					public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+							boolean hasFocus, int row, int column) {
+						super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+						
+						this.setForeground(
+								UIManager.getColor(isSelected ? "Table.selectionForeground" : "Table.foreground"));
+						this.setBackground(
+								UIManager.getColor(isSelected ? "Table.selectionBackground" : "Table.background"));
+						
+						if (row >= table.getRowCount() - 1) {
+							this.setBackground(UIManager.getColor("TextField.inactiveForeground"));
+							this.setToolTipText(null);
+						} else {
+							this.setToolTipText("How the conflicting values of a merged cell are resolved");
+						}
+						
 						return this;
 					}
 				});
@@ -318,6 +358,10 @@ class MergeAttributeTable extends JTable {
 		return col == attributeMapping.getSizeNetwork() + 1;
 	}
 
+	protected boolean isColumnMergedStrategy(final int col) {
+		return col == attributeMapping.getSizeNetwork() + 2;
+	}
+
 	// table model
 	protected class MergeAttributeTableModel extends AbstractTableModel {
 		ArrayList<CyNetwork> networks;
@@ -329,7 +373,7 @@ class MergeAttributeTable extends JTable {
 		// @Override
 		public int getColumnCount() {
 			final int n = attributeMapping.getSizeNetwork();
-			return n == 0 ? 0 : n + 2;
+			return n == 0 ? 0 : n + 3;
 		}
 
 		// @Override
@@ -345,6 +389,10 @@ class MergeAttributeTable extends JTable {
 				return "Column type";
 			}
 
+			if (isColumnMergedStrategy(col)) {
+				return "Merge strategy";
+			}
+
 			if (isColumnMergedNetwork(col)) {
 				return mergedNetworkName;
 			}
@@ -376,6 +424,10 @@ class MergeAttributeTable extends JTable {
 				return attributeMapping.getMergedAttributeType(iAttr);
 			}
 
+			if (isColumnMergedStrategy(col)) {
+				return attributeMapping.getMergedAttributeStrategy(iAttr);
+			}
+
 			return null;
 		}
 
@@ -397,6 +449,9 @@ class MergeAttributeTable extends JTable {
 
 			if (isColumnMergedType(col))
 				return true;
+
+			if (isColumnMergedStrategy(col))
+				return row != getRowCount() - 1;
 			// String mergedAttribute = getValueAt(row,col-1);
 			// CyAttributes attrs = attributeMapping.getCyAttributes();
 			// return
@@ -427,7 +482,22 @@ class MergeAttributeTable extends JTable {
 					return;
 
 				attributeMapping.setMergedAttributeType(iAttr, type);
+				// the strategy falls back to the default of the type if it does not apply
+				fireTableRowsUpdated(iAttr, iAttr);
 
+			} else if (isColumnMergedStrategy(col)) {
+				if (iAttr == n)
+					return;
+
+				ConflictStrategy strategy = (ConflictStrategy) value;
+				if (strategy == attributeMapping.getMergedAttributeStrategy(iAttr))
+					return;
+
+				if (!attributeMapping.setMergedAttributeStrategy(iAttr, strategy)) {
+					JOptionPane.showMessageDialog(getParent(), strategy + " does not apply to "
+							+ attributeMapping.getMergedAttributeType(iAttr) + " columns.",
+							"Error: invalid merge strategy", JOptionPane.ERROR_MESSAGE);
+				}
 			} else if (isColumnMergedNetwork(col)) { // column of merged network
 				if (iAttr == n)
 					return;
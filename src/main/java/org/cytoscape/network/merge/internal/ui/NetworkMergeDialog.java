@@ -212,7 +212,8 @@ public class NetworkMergeDialog extends JDialog {
 			operationPnl.add(Box.createHorizontalGlue());
 			
 			int count = 0;
-			final Operation[] values = Operation.values();
+			// the other operations are only available to the command
+			final Operation[] values = { Operation.UNION, Operation.INTERSECTION, Operation.DIFFERENCE };
 
 			for (Operation op : values) {
 				final JToggleButton btn = new JToggleButton(op.toString(), op.getIcon(iconMgr, 15.0f, 16, 16));
@@ -276,7 +277,7 @@ public class NetworkMergeDialog extends JDialog {
 
 			operationPnl.add(Box.createHorizontalGlue());
 
-			operationGroup.setSelected(operationButtons.get(Operation.values()[0]).getModel(), true);
+			operationGroup.setSelected(operationButtons.get(values[0]).getModel(), true);
 		}
 
 		return operationPnl;
@@ -30,6 +30,7 @@ import java.util.Map;
 import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 
 /**
  *
@@ -47,4 +48,34 @@ public interface AttributeMerger {
          */
         public <T extends CyIdentifiable> void mergeAttribute(Map<T,CyColumn> mapGOAttr,
                                      T toGO, CyColumn toAttrName, CyNetwork toNetwork);
+
+        /**
+         * Merge the attribute as above, resolving the values by the strategy
+         * as they are read if it resolves conflicts inline, or collecting the
+         * conflicts otherwise.
+         *
+         * @param <T>
+         * @param mapGOAttr
+         * @param toGO
+         * @param toAttrName
+         * @param toNetwork
+         * @param strategy the strategy of the merged column
+         */
+        public <T extends CyIdentifiable> void mergeAttribute(Map<T,CyColumn> mapGOAttr,
+                                     T toGO, CyColumn toAttrName, CyNetwork toNetwork, ConflictStrategy strategy);
+
+        /**
+         * Merge the attribute of a group of matched graph objects. A graph
+         * object held by several networks of the group is merged once, from
+         * the column of its last network.
+         *
+         * @param <T>
+         * @param matchedGOs groups of matched graph objects
+         * @param group index of the group to merge
+         * @param plan the target column and the columns to merge from
+         * @param toGO
+         * @param toNetwork
+         */
+        public <T extends CyIdentifiable> void mergeAttribute(MatchedGroups<T> matchedGOs, int group,
+                                     ColumnMergePlan plan, T toGO, CyNetwork toNetwork);
 }
@@ -0,0 +1,198 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.VirtualColumnInfo;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
+
+/**
+ * How the values of the source columns are merged into a target column,
+ * resolved once per merge: the source column of each network, the column
+ * types, the way a value of each source column is transferred and how
+ * conflicting values are resolved.
+ */
+public final class ColumnMergePlan {
+
+	/**
+	 * The way a value is merged, depending on the source and target column
+	 * types
+	 */
+	public enum Transfer {
+		// into a string column, empty strings are overwritten
+		STRING,
+		// into a simple column (Integer, Long, Double, Boolean)
+		SIMPLE,
+		// a simple value added to a list column
+		PLAIN_TO_LIST,
+		// the values of a list added to a list column
+		LIST_TO_LIST;
+
+		public static Transfer get(final ColumnType fromType, final ColumnType toType) {
+			if (toType == ColumnType.STRING)
+				return STRING;
+			if (!toType.isList())
+				return SIMPLE;
+			return fromType.isList() ? LIST_TO_LIST : PLAIN_TO_LIST;
+		}
+	}
+
+	private final CyColumn column;
+	private final ColumnType type;
+	private final CyColumn[] fromColumns;
+	private final ColumnType[] fromTypes;
+	private final Transfer[] transfers;
+	private final ConflictStrategy strategy;
+	private final boolean copyable;
+	private final boolean shared;
+
+	/**
+	 * @param column
+	 *            the target column
+	 * @param fromColumns
+	 *            the source column for each network index, or null if the
+	 *            network has no column to merge
+	 * @param strategy
+	 *            how conflicts are resolved, null for the default strategy
+	 *            of the column type
+	 */
+	public ColumnMergePlan(final CyColumn column, final CyColumn[] fromColumns, final ConflictStrategy strategy) {
+		if (column == null || fromColumns == null)
+			throw new NullPointerException();
+
+		this.column = column;
+		this.type = ColumnType.getType(column);
+		this.fromColumns = fromColumns;
+		fromTypes = new ColumnType[fromColumns.length];
+		transfers = new Transfer[fromColumns.length];
+		for (int i = 0; i < fromColumns.length; i++) {
+			if (fromColumns[i] == null)
+				continue;
+			fromTypes[i] = ColumnType.getType(fromColumns[i]);
+			transfers[i] = Transfer.get(fromTypes[i], type);
+		}
+
+		this.strategy = strategy != null && strategy.isApplicable(type) ? strategy : ConflictStrategy.getDefault(type);
+
+		// a new row only holds the default value, which is overwritten by
+		// the first merged value if it is null (or empty for strings)
+		final Object defaultValue = column.getDefaultValue();
+		copyable = this.strategy.keepsSingleValue()
+				&& (defaultValue == null || (type == ColumnType.STRING && "".equals(defaultValue)));
+
+		shared = isShared(column, fromColumns);
+	}
+
+	/*
+	 * true if the target column and all the source columns are virtual
+	 * columns of the same column, joined the same way, as the shared columns
+	 * of the subnetworks of a root network
+	 */
+	private static boolean isShared(final CyColumn column, final CyColumn[] fromColumns) {
+		final VirtualColumnInfo info = column.getVirtualColumnInfo();
+		if (info == null || !info.isVirtual())
+			return false;
+
+		for (final CyColumn fromColumn : fromColumns) {
+			if (fromColumn == null)
+				continue;
+			final VirtualColumnInfo fromInfo = fromColumn.getVirtualColumnInfo();
+			if (fromInfo == null || !fromInfo.isVirtual() || fromInfo.getSourceTable() != info.getSourceTable()
+					|| !fromInfo.getSourceColumn().equals(info.getSourceColumn())
+					|| !fromInfo.getSourceJoinKey().equals(info.getSourceJoinKey())
+					|| !fromInfo.getTargetJoinKey().equals(info.getTargetJoinKey()))
+				return false;
+		}
+		return true;
+	}
+
+	public CyColumn getColumn() {
+		return column;
+	}
+
+	public ColumnType getType() {
+		return type;
+	}
+
+	/**
+	 * @param networkIndex
+	 * @return the source column of the network, or null
+	 */
+	public CyColumn getFromColumn(final int networkIndex) {
+		return fromColumns[networkIndex];
+	}
+
+	public ColumnType getFromType(final int networkIndex) {
+		return fromTypes[networkIndex];
+	}
+
+	public Transfer getTransfer(final int networkIndex) {
+		return transfers[networkIndex];
+	}
+
+	public ConflictStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * @return the index of the only network with a source column, or -1 if
+	 *         there are none or several
+	 */
+	public int getSingleSource() {
+		int source = -1;
+		for (int i = 0; i < fromColumns.length; i++) {
+			if (fromColumns[i] == null)
+				continue;
+			if (source != -1)
+				return -1;
+			source = i;
+		}
+		return source;
+	}
+
+	/**
+	 * @return true if conflicting values are resolved while merging, false
+	 *         if they are collected
+	 */
+	public boolean isResolvedInline() {
+		return strategy.isInline() && !type.isList();
+	}
+
+	/**
+	 * @return true if a graph object holds the same value in the target
+	 *         column and in all the source columns
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * @return true if merging a single value into a new row is a plain copy
+	 *         of the value
+	 */
+	public boolean isCopyable() {
+		return copyable;
+	}
+}
@@ -31,10 +31,14 @@ import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
 import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
+import org.cytoscape.network.merge.internal.util.ColumnMergePlan.Transfer;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -60,109 +64,293 @@ public class DefaultAttributeMerger implements AttributeMerger {
 		final ColumnType colType = ColumnType.getType(column);
 
 		for (Map.Entry<T, CyColumn> entryGOAttr : mapGOAttr.entrySet()) {
-			final T from = entryGOAttr.getKey();
 			final CyColumn fromColumn = entryGOAttr.getValue();
-			final CyTable fromTable = fromColumn.getTable();
-      // System.out.println("from = "+from);
-      // System.out.println("fromTable = "+fromTable);
-			final CyRow fromCyRow = fromTable.getRow(from.getSUID());
 			final ColumnType fromColType = ColumnType.getType(fromColumn);
+			mergeValue(entryGOAttr.getKey(), fromColumn, fromColType, Transfer.get(fromColType, colType), cyRow,
+					graphObject, column, colType);
+		}
+	}
 
-			if (colType == ColumnType.STRING) {
-				Object fromValue = fromCyRow.get(fromColumn.getName(), fromColType.getType());
-				if (fromValue != null && fromColType != colType) {
-					fromValue = colType.castService(fromValue);
-				}
-				final String o2 = cyRow.get(column.getName(), String.class);
-
-				if (o2 == null || o2.length() == 0) { // null or empty attribute
-					cyRow.set(column.getName(), fromValue);
-				} else if (fromValue != null && fromValue.equals(o2)) { // TODO: necessary?
-					// the same, do nothing
-				} else { // attribute conflict
-					// add to conflict collector
-					if (graphObject instanceof CyNetwork) {
-						if (column.getName().equals(CyNetwork.NAME) || column.getName().equals(CyRootNetwork.SHARED_NAME)) {
-							// We don't want to mess with the network name
-							continue;
-						}
-					}
-					conflictCollector.addConflict(from, fromColumn, graphObject, column);
-				}
-			} else if (!colType.isList()) { // simple type (Integer, Long, Double, Boolean)
-				Object o1 = fromCyRow.get(fromColumn.getName(), fromColType.getType());
-				Object o2 = cyRow.get(column.getName(), colType.getType());
-				if (o1 != null && fromColType != colType) {
-					o1 = colType.castService(o1);
+	@Override
+	public <T extends CyIdentifiable> void mergeAttribute(final Map<T, CyColumn> mapGOAttr, final T graphObject,
+			final CyColumn column, final CyNetwork network, final ConflictStrategy strategy) {
+		if ((mapGOAttr == null) || (graphObject == null) || (column == null) || (strategy == null))
+			throw new java.lang.IllegalArgumentException("Required parameters cannot be null.");
+
+		// the default strategies are left to the default conflict handler
+		final ColumnType colType = ColumnType.getType(column);
+		if (!strategy.isInline() || colType.isList() || strategy == ConflictStrategy.getDefault(colType)
+				|| isNetworkName(graphObject, column)) {
+			mergeAttribute(mapGOAttr, graphObject, column, network);
+			return;
+		}
+
+		final CyRow cyRow = network.getRow(graphObject);
+		final ConflictStrategy.Resolution resolution = strategy.newResolution(colType);
+		final Object current = cyRow.get(column.getName(), colType.getType());
+		if (current != null)
+			resolution.add(current);
+
+		for (Map.Entry<T, CyColumn> entryGOAttr : mapGOAttr.entrySet()) {
+			final CyColumn fromColumn = entryGOAttr.getValue();
+			final ColumnType fromColType = ColumnType.getType(fromColumn);
+			Object value = fromColumn.getTable().getRow(entryGOAttr.getKey().getSUID())
+					.get(fromColumn.getName(), fromColType.getType());
+			if (value == null)
+				continue;
+			if (fromColType != colType)
+				value = colType.castService(value);
+			resolution.add(value);
+		}
+
+		cyRow.set(column.getName(), resolution.getValue());
+	}
+
+	// We don't want to mess with the network name
+	private static boolean isNetworkName(final CyIdentifiable graphObject, final CyColumn column) {
+		return graphObject instanceof CyNetwork
+				&& (column.getName().equals(CyNetwork.NAME) || column.getName().equals(CyRootNetwork.SHARED_NAME));
+	}
+
+	@Override
+	public <T extends CyIdentifiable> void mergeAttribute(final MatchedGroups<T> matchedGOs, final int group,
+			final ColumnMergePlan plan, final T graphObject, final CyNetwork network) {
+		if ((matchedGOs == null) || (plan == null) || (graphObject == null))
+			throw new java.lang.IllegalArgumentException("Required parameters cannot be null.");
+
+		final CyColumn column = plan.getColumn();
+		final CyRow cyRow = network.getRow(graphObject);
+		final ColumnType colType = plan.getType();
+		final int start = matchedGOs.getMemberStart(group);
+		final int end = matchedGOs.getMemberEnd(group);
+
+		// a graph object of a shared root network, merged as is, already
+		// holds its value in a shared column
+		if (plan.isShared() && matchedGOs.getSingleMember(group) == graphObject)
+			return;
+
+		// a single graph object is copied, there is nothing to conflict with
+		if (end - start == 1 && plan.isCopyable()) {
+			final int netIndex = matchedGOs.getNetworkIndex(start);
+			if (plan.getFromColumn(netIndex) != null)
+				copyValue(matchedGOs.getMember(start), plan.getFromColumn(netIndex), plan.getFromType(netIndex),
+						plan.getTransfer(netIndex), cyRow, column, colType);
+			return;
+		}
+
+		if (plan.isResolvedInline()) {
+			resolveValues(matchedGOs, start, end, plan, cyRow);
+			return;
+		}
+
+		for (int m = start; m < end; m++) {
+			final int netIndex = getFromNetworkIndex(matchedGOs, start, end, m, plan);
+			if (netIndex == -1)
+				continue;
+
+			mergeValue(matchedGOs.getMember(m), plan.getFromColumn(netIndex), plan.getFromType(netIndex),
+					plan.getTransfer(netIndex), cyRow, graphObject, column, colType);
+		}
+	}
+
+	/*
+	 * A graph object shared by several networks is merged at its first
+	 * position, from the column of its last network. Returns the index of
+	 * the network to merge the member at m from, or -1 if it is not merged
+	 * there.
+	 */
+	private static int getFromNetworkIndex(final MatchedGroups<?> matchedGOs, final int start, final int end,
+			final int m, final ColumnMergePlan plan) {
+		int netIndex = matchedGOs.getNetworkIndex(m);
+		if (plan.getFromColumn(netIndex) == null)
+			return -1;
+
+		final Object from = matchedGOs.getMember(m);
+		for (int k = start; k < m; k++) {
+			if (matchedGOs.getMember(k) == from && plan.getFromColumn(matchedGOs.getNetworkIndex(k)) != null)
+				return -1;
+		}
+		for (int k = m + 1; k < end; k++) {
+			if (matchedGOs.getMember(k) == from && plan.getFromColumn(matchedGOs.getNetworkIndex(k)) != null)
+				netIndex = matchedGOs.getNetworkIndex(k);
+		}
+		return netIndex;
+	}
+
+	/*
+	 * Resolve the values of a group by the strategy of the column as they
+	 * are read, the value already held by the row coming first
+	 */
+	private <T extends CyIdentifiable> void resolveValues(final MatchedGroups<T> matchedGOs, final int start,
+			final int end, final ColumnMergePlan plan, final CyRow cyRow) {
+		final CyColumn column = plan.getColumn();
+		final ColumnType colType = plan.getType();
+		final ConflictStrategy.Resolution resolution = plan.getStrategy().newResolution(colType);
+
+		final Object current = cyRow.get(column.getName(), colType.getType());
+		if (current != null)
+			resolution.add(current);
+
+		for (int m = start; m < end; m++) {
+			final int netIndex = getFromNetworkIndex(matchedGOs, start, end, m, plan);
+			if (netIndex == -1)
+				continue;
+
+			final CyColumn fromColumn = plan.getFromColumn(netIndex);
+			final ColumnType fromColType = plan.getFromType(netIndex);
+			final CyRow fromCyRow = fromColumn.getTable().getRow(matchedGOs.getMember(m).getSUID());
+			Object value = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+			if (value == null)
+				continue;
+			if (fromColType != colType)
+				value = colType.castService(value);
+			resolution.add(value);
+		}
+
+		cyRow.set(column.getName(), resolution.getValue());
+	}
+
+	/*
+	 * Copy a value into a new row, with the same result as mergeValue into
+	 * a row holding a null value
+	 */
+	private <T extends CyIdentifiable> void copyValue(final T from, final CyColumn fromColumn,
+			final ColumnType fromColType, final Transfer transfer, final CyRow cyRow, final CyColumn column,
+			final ColumnType colType) {
+		final CyRow fromCyRow = fromColumn.getTable().getRow(from.getSUID());
+
+		if (transfer == Transfer.STRING || transfer == Transfer.SIMPLE) {
+			Object value = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+			if (value != null && fromColType != colType) {
+				value = colType.castService(value);
+			}
+			cyRow.set(column.getName(), value);
+		} else if (transfer == Transfer.PLAIN_TO_LIST) {
+			Object value = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+			if (value != null) {
+				final ColumnType plainType = colType.toPlain();
+				if (plainType != fromColType) {
+					value = plainType.castService(value);
 				}
+				final List<Object> list = new ArrayList<Object>(1);
+				list.add(value);
+				cyRow.set(column.getName(), list);
+			}
+		} else {
+			final ColumnType plainType = colType.toPlain();
+			final List<?> fromList = fromCyRow.getList(fromColumn.getName(), fromColType.toPlain().getType());
+			if (fromList == null)
+				return;
+
+			final Set<Object> values = new LinkedHashSet<Object>();
+			for (final Object listValue: fromList) {
+				if (listValue != null)
+					values.add(plainType != fromColType ? plainType.castService(listValue) : listValue);
+			}
+			if (!values.isEmpty()) {
+				cyRow.set(column.getName(), new ArrayList<Object>(values));
+			}
+		}
+	}
+
+	private <T extends CyIdentifiable> void mergeValue(final T from, final CyColumn fromColumn,
+			final ColumnType fromColType, final Transfer transfer, final CyRow cyRow, final T graphObject,
+			final CyColumn column, final ColumnType colType) {
+		final CyTable fromTable = fromColumn.getTable();
+      // System.out.println("from = "+from);
+      // System.out.println("fromTable = "+fromTable);
+		final CyRow fromCyRow = fromTable.getRow(from.getSUID());
+
+		if (transfer == Transfer.STRING) {
+			Object fromValue = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+			if (fromValue != null && fromColType != colType) {
+				fromValue = colType.castService(fromValue);
+			}
+			final String o2 = cyRow.get(column.getName(), String.class);
+
+			if (o2 == null || o2.length() == 0) { // null or empty attribute
+				cyRow.set(column.getName(), fromValue);
+			} else if (fromValue != null && fromValue.equals(o2)) {
+				// the same, do nothing
+			} else { // attribute conflict
+				// add to conflict collector
+				if (isNetworkName(graphObject, column))
+					return;
+				conflictCollector.addConflict(from, fromColumn, graphObject, column);
+			}
+		} else if (transfer == Transfer.SIMPLE) { // simple type (Integer, Long, Double, Boolean)
+			Object o1 = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+			Object o2 = cyRow.get(column.getName(), colType.getType());
+			if (o1 != null && fromColType != colType) {
+				o1 = colType.castService(o1);
+			}
 
-				// Object o2 = cyRow.get(column.getName(), colType.getType());
-				if (o2 == null) {
-					cyRow.set(column.getName(), o1);
+			// Object o2 = cyRow.get(column.getName(), colType.getType());
+			if (o2 == null) {
+				cyRow.set(column.getName(), o1);
           // System.out.println("Setting "+column.getName()+" to "+o1);
-					// continue;
-				} else if (o1 == null) {
-					cyRow.set(column.getName(), o2);
+				// continue;
+			} else if (o1 == null) {
+				cyRow.set(column.getName(), o2);
           // System.out.println("Setting "+column.getName()+" to "+o2);
-				} else if (o1.equals(o2)) {
-					// continue; // the same, do nothing
-				} else { // attribute conflict
+			} else if (o1.equals(o2)) {
+				// the same, do nothing
+			} else { // attribute conflict
 
           // System.out.println(column.getName()+" has a conflict");
-					// add to conflict collector
-					conflictCollector.addConflict(from, fromColumn, graphObject, column);
-					// continue;
-				}
-			} else { // toattr is list type
-				// TODO: use a conflict handler to handle this part?
-				ColumnType plainType = colType.toPlain();
+				// add to conflict collector
+				conflictCollector.addConflict(from, fromColumn, graphObject, column);
+				// continue;
+			}
+		} else { // toattr is list type
+			// TODO: use a conflict handler to handle this part?
+			ColumnType plainType = colType.toPlain();
 
-				List l2 = cyRow.getList(column.getName(), plainType.getType());
-				if (l2 == null) {
-					l2 = new ArrayList<Object>();
-				}
+			List l2 = cyRow.getList(column.getName(), plainType.getType());
+			if (l2 == null) {
+				l2 = new ArrayList<Object>();
+			}
+
+			if (transfer == Transfer.PLAIN_TO_LIST) {
+				// Simple data type
+				Object o1 = fromCyRow.get(fromColumn.getName(), fromColType.getType());
+				if (o1 != null) {
+					if (plainType != fromColType) {
+						o1 = plainType.castService(o1);
+					}
+
+					if (!l2.contains(o1)) {
+						l2.add(o1);
+					}
 
-				if (!fromColType.isList()) {
-					// Simple data type
-					Object o1 = fromCyRow.get(fromColumn.getName(), fromColType.getType());
-					if (o1 != null) {
-						if (plainType != fromColType) {
-							o1 = plainType.castService(o1);
-						}
-
-						if (!l2.contains(o1)) {
-							l2.add(o1);
-						}
-
-						if (!l2.isEmpty()) {
-							cyRow.set(column.getName(), l2);
-						}
+					if (!l2.isEmpty()) {
+						cyRow.set(column.getName(), l2);
 					}
-				} else { // from list
-					final ColumnType fromPlain = fromColType.toPlain();
-					final List<?> list = fromCyRow.getList(fromColumn.getName(), fromPlain.getType());
-					if(list == null)
+				}
+			} else { // from list
+				final ColumnType fromPlain = fromColType.toPlain();
+				final List<?> list = fromCyRow.getList(fromColumn.getName(), fromPlain.getType());
+				if(list == null)
+					return;
+				
+				for (final Object listValue:list) {
+					if(listValue == null)
 						continue;
 					
-					for (final Object listValue:list) {
-						if(listValue == null)
-							continue;
-						
-						final Object validValue;
-						if (plainType != fromColType) {
-							validValue = plainType.castService(listValue);
-						} else {
-							validValue = listValue;
-						}
-						if (!l2.contains(validValue)) {
-							l2.add(validValue);
-						}
+					final Object validValue;
+					if (plainType != fromColType) {
+						validValue = plainType.castService(listValue);
+					} else {
+						validValue = listValue;
+					}
+					if (!l2.contains(validValue)) {
+						l2.add(validValue);
 					}
 				}
+			}
 
-				if(!l2.isEmpty()) {
-					cyRow.set(column.getName(), l2);
-				}
+			if(!l2.isEmpty()) {
+				cyRow.set(column.getName(), l2);
 			}
 		}
 	}
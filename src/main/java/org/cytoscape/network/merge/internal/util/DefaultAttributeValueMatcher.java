@@ -24,6 +24,9 @@ package org.cytoscape.network.merge.internal.util;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.cytoscape.model.CyColumn;
@@ -36,7 +39,40 @@ import org.cytoscape.model.CyIdentifiable;
  * 
  * 
  */
-public class DefaultAttributeValueMatcher implements AttributeValueMatcher {
+public class DefaultAttributeValueMatcher implements KeyedAttributeValueMatcher {
+
+	@Override
+	public Collection<?> getMatchingKeys(CyIdentifiable entry, CyColumn attr) {
+		if ((entry == null) || (attr == null))
+			throw new IllegalArgumentException("Null argument.");
+
+		final CyRow row = attr.getTable().getRow(entry.getSUID());
+		final Class<?> type = attr.getType();
+
+		if (!List.class.isAssignableFrom(type)) {
+			final Object val = row.get(attr.getName(), type);
+			return val == null ? Collections.emptySet() : Collections.singleton(val);
+		}
+
+		// simple lists match on any of their values
+		final List<?> l = row.get(attr.getName(), List.class);
+		if (l == null || l.isEmpty())
+			return Collections.emptySet();
+
+		final List<Object> keys = new ArrayList<Object>(l.size());
+		for (Object o : l) {
+			if (o != null)
+				keys.add(o);
+		}
+		return keys;
+	}
+
+	@Override
+	public boolean isKeyMatchExact(CyColumn attr1, CyColumn attr2) {
+		// values match if and only if they are equal, or one of the values
+		// in the list is equal to the other value
+		return true;
+	}
 
 	@Override
 	public boolean matched(CyIdentifiable entry1, CyColumn attr1, CyIdentifiable entry2, CyColumn attr2) {
@@ -0,0 +1,93 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Disjoint-set (union-find) of the integers 0..size-1, with path halving
+ * and union by size.
+ *
+ * The representative of a set is always its smallest element, so that the
+ * sets can be enumerated in a deterministic order.
+ */
+public class DisjointSet {
+	private final int[] parent;
+	private final int[] size;
+	private final int[] min;
+
+	public DisjointSet(final int n) {
+		parent = new int[n];
+		size = new int[n];
+		min = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+			min[i] = i;
+		}
+	}
+
+	/**
+	 * @param i
+	 * @return the smallest element of the set holding i
+	 */
+	public int find(int i) {
+		return min[root(i)];
+	}
+
+	/**
+	 * Join the sets holding i and j
+	 * @param i
+	 * @param j
+	 * @return true if they were different sets
+	 */
+	public boolean union(final int i, final int j) {
+		int ri = root(i);
+		int rj = root(j);
+		if (ri == rj)
+			return false;
+
+		if (size[ri] < size[rj]) {
+			final int t = ri;
+			ri = rj;
+			rj = t;
+		}
+		parent[rj] = ri;
+		size[ri] += size[rj];
+		if (min[rj] < min[ri])
+			min[ri] = min[rj];
+		return true;
+	}
+
+	public int size() {
+		return parent.length;
+	}
+
+	private int root(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+}
@@ -0,0 +1,58 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+
+/**
+ * Match attribute values, with keys that allow to find the candidate
+ * matches of a node/edge through a hash index instead of comparing it
+ * with all the others
+ *
+ * 
+ */
+public interface KeyedAttributeValueMatcher extends AttributeValueMatcher {
+
+    /**
+     * Get the normalized blocking keys of the attribute of a node/edge.
+     * Two nodes/edges can only be "match" if they share at least one key.
+     * @param entry
+     * @param attr
+     * @return the keys, empty if the entry does not match anything
+     */
+    public Collection<?> getMatchingKeys(CyIdentifiable entry, CyColumn attr);
+
+    /**
+     * Check whether sharing a key is enough for two attributes to be "match",
+     * so that matched does not need to be called for the candidates
+     * @param attr1
+     * @param attr2
+     * @return true if the keys are exact
+     */
+    public boolean isKeyMatchExact(CyColumn attr1, CyColumn attr2);
+}
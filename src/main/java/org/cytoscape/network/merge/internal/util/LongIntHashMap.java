@@ -0,0 +1,270 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to primitive int values, with open
+ * addressing and linear probing, so that neither the keys nor the values
+ * are boxed and there is no entry object per mapping.
+ *
+ * The key 0 marks the free slots of the table and is kept aside.
+ */
+public class LongIntHashMap {
+	private static final int MIN_CAPACITY = 4;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final int noEntryValue;
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+
+	private boolean hasZeroKey;
+	private int zeroValue;
+
+	/**
+	 * @param expectedSize number of mappings the map should hold without resizing
+	 * @param noEntryValue the value returned for a key without mapping
+	 */
+	public LongIntHashMap(final int expectedSize, final int noEntryValue) {
+		this.noEntryValue = noEntryValue;
+		allocate(capacityFor(expectedSize));
+	}
+
+	public LongIntHashMap(final int expectedSize) {
+		this(expectedSize, -1);
+	}
+
+	public int getNoEntryValue() {
+		return noEntryValue;
+	}
+
+	public int size() {
+		return hasZeroKey ? size + 1 : size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @param key
+	 * @return the value of the key, or the no entry value if there is none
+	 */
+	public int get(final long key) {
+		if (key == 0)
+			return hasZeroKey ? zeroValue : noEntryValue;
+
+		int i = slot(key);
+		long k;
+		while ((k = keys[i]) != 0) {
+			if (k == key)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return noEntryValue;
+	}
+
+	public boolean containsKey(final long key) {
+		if (key == 0)
+			return hasZeroKey;
+
+		int i = slot(key);
+		long k;
+		while ((k = keys[i]) != 0) {
+			if (k == key)
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 * @return the previous value of the key, or the no entry value if there was none
+	 */
+	public int put(final long key, final int value) {
+		if (key == 0) {
+			final int previous = hasZeroKey ? zeroValue : noEntryValue;
+			hasZeroKey = true;
+			zeroValue = value;
+			return previous;
+		}
+
+		int i = slot(key);
+		long k;
+		while ((k = keys[i]) != 0) {
+			if (k == key) {
+				final int previous = values[i];
+				values[i] = value;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if (++size > threshold)
+			rehash(keys.length << 1);
+		return noEntryValue;
+	}
+
+	/**
+	 * Map the key to the value only if it has no mapping yet
+	 * @param key
+	 * @param value
+	 * @return the current value of the key, or the no entry value if the value was added
+	 */
+	public int putIfAbsent(final long key, final int value) {
+		if (key == 0) {
+			if (hasZeroKey)
+				return zeroValue;
+			hasZeroKey = true;
+			zeroValue = value;
+			return noEntryValue;
+		}
+
+		int i = slot(key);
+		long k;
+		while ((k = keys[i]) != 0) {
+			if (k == key)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if (++size > threshold)
+			rehash(keys.length << 1);
+		return noEntryValue;
+	}
+
+	/**
+	 * @param key
+	 * @return the removed value of the key, or the no entry value if there was none
+	 */
+	public int remove(final long key) {
+		if (key == 0) {
+			final int previous = hasZeroKey ? zeroValue : noEntryValue;
+			hasZeroKey = false;
+			return previous;
+		}
+
+		int i = slot(key);
+		long k;
+		while ((k = keys[i]) != 0) {
+			if (k == key) {
+				final int previous = values[i];
+				shiftKeys(i);
+				size--;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		return noEntryValue;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		size = 0;
+		hasZeroKey = false;
+	}
+
+	/**
+	 * Make room for the given number of mappings without resizing
+	 * @param expectedSize
+	 */
+	public void ensureCapacity(final int expectedSize) {
+		final int capacity = capacityFor(expectedSize);
+		if (capacity > keys.length)
+			rehash(capacity);
+	}
+
+	// close the gap left by a removed key, moving back the keys of the
+	// probe sequence that would not be found anymore
+	private void shiftKeys(int gap) {
+		int i = gap;
+		while (true) {
+			i = (i + 1) & mask;
+			final long k = keys[i];
+			if (k == 0)
+				break;
+
+			final int home = slot(k);
+			// move k into the gap unless its home slot lies cyclically in (gap, i]
+			if (gap <= i ? (home <= gap || home > i) : (home <= gap && home > i)) {
+				keys[gap] = k;
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		keys[gap] = 0;
+	}
+
+	private void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final int[] oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldKeys.length; j++) {
+			final long k = oldKeys[j];
+			if (k != 0) {
+				int i = slot(k);
+				while (keys[i] != 0)
+					i = (i + 1) & mask;
+				keys[i] = k;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private int slot(final long key) {
+		// finalizer of MurmurHash3, so that packed or sequential keys spread over the table
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	private static int capacityFor(final int expectedSize) {
+		final long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+		if (needed > (1 << 30))
+			throw new IllegalArgumentException("Too many entries: " + expectedSize);
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+	}
+}
@@ -0,0 +1,358 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+
+/**
+ * Groups of matched nodes or edges of the networks to be merged, stored as
+ * arrays: the members of group g are at positions starts[g] to ends[g]-1 of
+ * the member and network index arrays.
+ *
+ * The members of a group are in the order they were added, which is the
+ * order of the networks and of their nodes or edges. The members of each
+ * network are contiguous within a group, so that the members of a network
+ * are a range of positions, as getNetworkGroups expects. Building groups
+ * whose members of a network are interleaved with those of another network
+ * fails with an IllegalStateException.
+ *
+ * The networks of the members of each group are also kept as a bitmask over
+ * the network indexes, so that the set operations test the membership of a
+ * group without going through its members.
+ */
+public final class MatchedGroups<T extends CyIdentifiable> {
+	private final List<CyNetwork> networks;
+	private final int[] starts;
+	private final int[] ends;
+	private final Object[] members;
+	private final int[] networkIndexes;
+	// the networks of group g are the bits of networkMasks[g*maskWords] to
+	// networkMasks[(g+1)*maskWords-1]
+	private final long[] networkMasks;
+	private final int maskWords;
+
+	private MatchedGroups(final List<CyNetwork> networks, final int[] starts, final int[] ends,
+			final Object[] members, final int[] networkIndexes) {
+		this.networks = networks;
+		this.starts = starts;
+		this.ends = ends;
+		this.members = members;
+		this.networkIndexes = networkIndexes;
+
+		maskWords = getMaskWords(networks.size());
+		networkMasks = new long[starts.length * maskWords];
+		for (int g = 0; g < starts.length; g++) {
+			for (int m = starts[g]; m < ends[g]; m++) {
+				final int networkIndex = networkIndexes[m];
+				final int word = g * maskWords + (networkIndex >>> 6);
+				if (m > starts[g] && networkIndexes[m - 1] != networkIndex
+						&& (networkMasks[word] & (1L << networkIndex)) != 0)
+					throw new IllegalStateException("The members of network " + networkIndex
+							+ " are not contiguous in group " + g);
+				networkMasks[word] |= 1L << networkIndex;
+			}
+		}
+	}
+
+	private static int getMaskWords(final int nNetwork) {
+		return Math.max(1, (nNetwork + 63) >>> 6);
+	}
+
+	/**
+	 * @return the number of groups
+	 */
+	public int size() {
+		return starts.length;
+	}
+
+	/**
+	 * @return the networks the network indexes refer to
+	 */
+	public List<CyNetwork> getNetworks() {
+		return networks;
+	}
+
+	/**
+	 * @param group
+	 * @return the position of the first member of the group
+	 */
+	public int getMemberStart(final int group) {
+		return starts[group];
+	}
+
+	/**
+	 * @param group
+	 * @return the position after the last member of the group
+	 */
+	public int getMemberEnd(final int group) {
+		return ends[group];
+	}
+
+	/**
+	 * @param member
+	 *            position of the member
+	 * @return the node or edge
+	 */
+	@SuppressWarnings("unchecked")
+	public T getMember(final int member) {
+		return (T) members[member];
+	}
+
+	/**
+	 * @param member
+	 *            position of the member
+	 * @return the index of the network of the member
+	 */
+	public int getNetworkIndex(final int member) {
+		return networkIndexes[member];
+	}
+
+	/**
+	 * @param member
+	 *            position of the member
+	 * @return the network of the member
+	 */
+	public CyNetwork getNetwork(final int member) {
+		return networks.get(networkIndexes[member]);
+	}
+
+	/**
+	 * @param group
+	 * @param networkIndex
+	 * @return true if the group has a member from the network
+	 */
+	public boolean containsNetwork(final int group, final int networkIndex) {
+		return (networkMasks[group * maskWords + (networkIndex >>> 6)] & (1L << networkIndex)) != 0;
+	}
+
+	/**
+	 * @param group
+	 * @return the number of distinct networks of the members of the group
+	 */
+	public int getNetworkCount(final int group) {
+		int count = 0;
+		for (int w = group * maskWords; w < (group + 1) * maskWords; w++)
+			count += Long.bitCount(networkMasks[w]);
+		return count;
+	}
+
+	/**
+	 * @param group
+	 * @return the graph object of all the members of the group, held by
+	 *         several networks sharing a root network, or null if the group
+	 *         has different members
+	 */
+	public T getSingleMember(final int group) {
+		final int start = starts[group];
+		final int end = ends[group];
+		if (start == end)
+			return null;
+		for (int m = start + 1; m < end; m++) {
+			if (members[m] != members[start])
+				return null;
+		}
+		return getMember(start);
+	}
+
+	/**
+	 * @param networkIndex
+	 * @return the same groups with only their members from the network,
+	 *         which are shared with these groups rather than copied
+	 */
+	public MatchedGroups<T> getNetworkGroups(final int networkIndex) {
+		final int n = size();
+		final int[] groupStarts = new int[n];
+		final int[] groupEnds = new int[n];
+		for (int g = 0; g < n; g++) {
+			// the members of a network are contiguous
+			int m = starts[g];
+			while (m < ends[g] && networkIndexes[m] != networkIndex)
+				m++;
+			groupStarts[g] = m;
+			while (m < ends[g] && networkIndexes[m] == networkIndex)
+				m++;
+			groupEnds[g] = m;
+		}
+		return new MatchedGroups<T>(networks, groupStarts, groupEnds, members, networkIndexes);
+	}
+
+	/**
+	 * Builds the groups from members added in any order of the groups. The
+	 * members of each group are chained until the groups are built.
+	 */
+	public static final class Builder<T extends CyIdentifiable> {
+		private final List<CyNetwork> networks;
+		private Object[] members;
+		private int[] networkIndexes;
+		private int[] next;
+		private int nMember;
+		private int[] heads;
+		private int[] tails;
+		// network index of the members of a group, or -1 if they come from several networks
+		private int[] groupNetworks;
+		private int nGroup;
+
+		public Builder(final List<CyNetwork> networks) {
+			this(networks, 16);
+		}
+
+		/**
+		 * @param networks
+		 * @param expectedSize
+		 *            expected number of members
+		 */
+		public Builder(final List<CyNetwork> networks, final int expectedSize) {
+			if (networks == null)
+				throw new NullPointerException();
+
+			this.networks = networks;
+			final int capacity = Math.max(expectedSize, 1);
+			members = new Object[capacity];
+			networkIndexes = new int[capacity];
+			next = new int[capacity];
+			heads = new int[capacity];
+			tails = new int[capacity];
+			groupNetworks = new int[capacity];
+		}
+
+		/**
+		 * @return the number of groups
+		 */
+		public int size() {
+			return nGroup;
+		}
+
+		/**
+		 * Add an empty group
+		 * @return the index of the group
+		 */
+		public int newGroup() {
+			if (nGroup == heads.length) {
+				final int capacity = nGroup << 1;
+				heads = Arrays.copyOf(heads, capacity);
+				tails = Arrays.copyOf(tails, capacity);
+				groupNetworks = Arrays.copyOf(groupNetworks, capacity);
+			}
+			heads[nGroup] = -1;
+			tails[nGroup] = -1;
+			groupNetworks[nGroup] = -1;
+			return nGroup++;
+		}
+
+		/**
+		 * Add a member to a group
+		 * @param group
+		 *            the index of the group, or -1 for a new group
+		 * @param networkIndex
+		 * @param member
+		 * @return the index of the group
+		 */
+		public int add(int group, final int networkIndex, final T member) {
+			if (group == -1)
+				group = newGroup();
+
+			if (nMember == members.length) {
+				final int capacity = nMember << 1;
+				members = Arrays.copyOf(members, capacity);
+				networkIndexes = Arrays.copyOf(networkIndexes, capacity);
+				next = Arrays.copyOf(next, capacity);
+			}
+			members[nMember] = member;
+			networkIndexes[nMember] = networkIndex;
+			next[nMember] = -1;
+
+			if (heads[group] == -1) {
+				heads[group] = nMember;
+				groupNetworks[group] = networkIndex;
+			} else {
+				next[tails[group]] = nMember;
+				if (groupNetworks[group] != networkIndex)
+					groupNetworks[group] = -1;
+			}
+			tails[group] = nMember++;
+			return group;
+		}
+
+		/**
+		 * @param group
+		 * @return the first member added to the group, or -1 if it is empty
+		 */
+		public int getFirstMember(final int group) {
+			return heads[group];
+		}
+
+		/**
+		 * @param member
+		 * @return the member added to the same group after this one, or -1
+		 */
+		public int getNextMember(final int member) {
+			return next[member];
+		}
+
+		@SuppressWarnings("unchecked")
+		public T getMember(final int member) {
+			return (T) members[member];
+		}
+
+		public int getNetworkIndex(final int member) {
+			return networkIndexes[member];
+		}
+
+		/**
+		 * @param group
+		 * @param networkIndex
+		 * @return true if all the members of the group come from the network
+		 */
+		public boolean hasOnlyNetwork(final int group, final int networkIndex) {
+			return groupNetworks[group] == networkIndex;
+		}
+
+		/**
+		 * @return the groups, in the order they were created
+		 * @throws IllegalStateException
+		 *             if the members of a network are not contiguous in a group
+		 */
+		public MatchedGroups<T> build() {
+			final int[] starts = new int[nGroup];
+			final int[] ends = new int[nGroup];
+			final Object[] groupMembers = new Object[nMember];
+			final int[] groupNetworkIndexes = new int[nMember];
+			int k = 0;
+			for (int g = 0; g < nGroup; g++) {
+				starts[g] = k;
+				for (int m = heads[g]; m != -1; m = next[m]) {
+					groupMembers[k] = members[m];
+					groupNetworkIndexes[k++] = networkIndexes[m];
+				}
+				ends[g] = k;
+			}
+			return new MatchedGroups<T>(networks, starts, ends, groupMembers, groupNetworkIndexes);
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package org.cytoscape.network.merge.internal.util;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.cytoscape.model.CyNetwork;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
 import org.cytoscape.network.merge.internal.model.ColumnMergeRecord;
 
 public class ParseUtils
@@ -27,5 +30,42 @@ public class ParseUtils
 		}
 		return columnsToMerge;
 	}
+
+	/**
+	 * Parse "column:STRATEGY" pairs separated by commas, the strategy being
+	 * the name of a ConflictStrategy in any case
+	 *
+	 * @return the strategy of each merged column, in the order of the pairs,
+	 *         or null if s is null
+	 * @throws IllegalArgumentException
+	 *             if a pair has no column or an unknown strategy
+	 */
+	public static Map<String, ConflictStrategy> getStrategyMap(String s)
+	{
+		if (s == null) 	{return null;}
+		Map<String, ConflictStrategy> strategies = new LinkedHashMap<String, ConflictStrategy>();
+		for (String pair : s.split(","))
+		{
+			if (pair.trim().isEmpty())
+				continue;
+			// the column name may hold colons, not the strategy
+			int colon = pair.lastIndexOf(':');
+			String column = colon < 0 ? "" : pair.substring(0, colon).trim();
+			if (column.isEmpty())
+				throw new IllegalArgumentException("Expected column:strategy but got \"" + pair.trim() + "\"");
+			strategies.put(column, getStrategy(pair.substring(colon + 1).trim()));
+		}
+		return strategies;
+	}
+
+	private static ConflictStrategy getStrategy(String name)
+	{
+		for (ConflictStrategy strategy : ConflictStrategy.values())
+		{
+			if (strategy.name().equalsIgnoreCase(name) || strategy.toString().equalsIgnoreCase(name))
+				return strategy;
+		}
+		throw new IllegalArgumentException("Unknown merge strategy \"" + name + "\"");
+	}
 }
 
@@ -0,0 +1,146 @@
+package org.cytoscape.network.merge.internal;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollectorImpl;
+import org.cytoscape.network.merge.internal.model.AttributeMapping;
+import org.cytoscape.network.merge.internal.model.AttributeMappingImpl;
+import org.cytoscape.network.merge.internal.model.MatchingAttribute;
+import org.cytoscape.network.merge.internal.model.MatchingAttributeImpl;
+import org.cytoscape.network.merge.internal.util.DefaultAttributeMerger;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Test;
+
+/**
+ * Subtract all the later networks from the first one: the nodes "a", "b",
+ * "c" and "d" of the first network, "b" of the second one and "c" of the
+ * third one.
+ */
+public class DifferenceMergeTest {
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+
+	@Test
+	public void testThreeNetworks() {
+		final List<CyNetwork> networks = new ArrayList<CyNetwork>();
+		networks.add(newNetwork("a", "b", "c", "d"));
+		networks.add(newNetwork("b"));
+		networks.add(newNetwork("c"));
+
+		final CyNetwork newNetwork = merge(networks);
+		assertEquals("[a, d]", getNames(newNetwork));
+		assertEquals(1, newNetwork.getEdgeCount());
+	}
+
+	@Test
+	public void testTwoNetworks() {
+		final List<CyNetwork> networks = new ArrayList<CyNetwork>();
+		networks.add(newNetwork("a", "b", "c", "d"));
+		networks.add(newNetwork("b"));
+
+		final CyNetwork newNetwork = merge(networks);
+		assertEquals("[a, c, d]", getNames(newNetwork));
+		assertEquals(1, newNetwork.getEdgeCount());
+	}
+
+	/**
+	 * @return a network of nodes of the names, the first one linked to the
+	 *         last one
+	 */
+	private CyNetwork newNetwork(final String... names) {
+		final CyNetwork net = support.getNetwork();
+		final List<CyNode> nodes = new ArrayList<CyNode>();
+		for (String name : names) {
+			final CyNode node = net.addNode();
+			net.getRow(node).set(CyNetwork.NAME, name);
+			nodes.add(node);
+		}
+		if (nodes.size() > 1) {
+			final CyEdge edge = net.addEdge(nodes.get(0), nodes.get(nodes.size() - 1), true);
+			net.getRow(edge).set(CyEdge.INTERACTION, "pp");
+		}
+		return net;
+	}
+
+	private CyNetwork merge(final List<CyNetwork> networks) {
+		final MatchingAttribute matchingAttribute = new MatchingAttributeImpl();
+		final AttributeMapping nodeMapping = new AttributeMappingImpl();
+		final AttributeMapping edgeMapping = new AttributeMappingImpl();
+		final AttributeMapping networkMapping = new AttributeMappingImpl();
+		for (CyNetwork net : networks) {
+			matchingAttribute.putAttributeForMatching(net, net.getDefaultNodeTable().getColumn(CyNetwork.NAME));
+			nodeMapping.addNetwork(net, net.getDefaultNodeTable());
+			edgeMapping.addNetwork(net, net.getDefaultEdgeTable());
+			networkMapping.addNetwork(net, net.getDefaultNetworkTable());
+		}
+
+		final AttributeBasedNetworkMerge networkMerge = new AttributeBasedNetworkMerge(matchingAttribute,
+				nodeMapping, edgeMapping, networkMapping,
+				new DefaultAttributeMerger(new AttributeConflictCollectorImpl()), new NullTaskMonitor());
+		final CyNetwork newNetwork = support.getNetwork();
+		networkMerge.mergeNetwork(newNetwork, networks, Operation.DIFFERENCE, false, false);
+		return newNetwork;
+	}
+
+	/**
+	 * @return the sorted names of the nodes of a network
+	 */
+	private static String getNames(final CyNetwork net) {
+		final List<String> names = new ArrayList<String>();
+		for (CyNode node : net.getNodeList())
+			names.add(net.getRow(node).get(CyNetwork.NAME, String.class));
+		Collections.sort(names);
+		return names.toString();
+	}
+
+	private static class NullTaskMonitor implements TaskMonitor {
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+		}
+	}
+}
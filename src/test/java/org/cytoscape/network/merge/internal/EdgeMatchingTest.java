@@ -0,0 +1,307 @@
+package org.cytoscape.network.merge.internal;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollectorImpl;
+import org.cytoscape.network.merge.internal.model.AttributeMapping;
+import org.cytoscape.network.merge.internal.model.AttributeMappingImpl;
+import org.cytoscape.network.merge.internal.model.MatchingAttribute;
+import org.cytoscape.network.merge.internal.model.MatchingAttributeImpl;
+import org.cytoscape.network.merge.internal.util.DefaultAttributeMerger;
+import org.cytoscape.network.merge.internal.util.MatchedGroups;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Compare the edges matched by the merge with the matching of the original
+ * implementation, which kept one map per interaction and directedness and
+ * keyed undirected edges under both orders of their nodes, on the session
+ * fixtures of directed, undirected and mixed edges.
+ */
+public class EdgeMatchingTest {
+
+	// the source networks of the sessions, the other ones are merge results
+	private static final Pattern SOURCE_LABEL = Pattern.compile("Network( \\d+)?");
+	// the edge labels are "source (interaction) target"
+	private static final Pattern EDGE_LABEL = Pattern.compile(".* \\((.*)\\) .*");
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+
+	@Test
+	public void testDirected() throws Exception {
+		checkFixture("directed test cases/test case 1 network.cys", 1);
+		checkFixture("directed test cases/test case 2 networks.cys", 2);
+		checkFixture("directed test cases/test case 3 networks.cys", 3);
+	}
+
+	@Test
+	public void testUndirected() throws Exception {
+		checkFixture("undirected test cases/test case 1 network.cys", 1);
+		checkFixture("undirected test cases/test case 2 networks.cys", 2);
+		checkFixture("undirected test cases/test case 3 networks.cys", 3);
+	}
+
+	@Test
+	public void testMixed() throws Exception {
+		checkFixture("mixed test case/test case 1 network.cys", 1);
+	}
+
+	private void checkFixture(final String fixture, final int nNetwork) throws Exception {
+		final List<CyNetwork> networks = loadNetworks(fixture);
+		assertEquals(fixture, nNetwork, networks.size());
+
+		for (boolean within : new boolean[] { false, true }) {
+			final Map<CyNode, CyNode> mergedNodes = new HashMap<CyNode, CyNode>();
+			final Set<Set<Long>> edgeGroups = new HashSet<Set<Long>>();
+			merge(networks, within, mergedNodes, edgeGroups);
+
+			final Set<Set<Long>> expected = getOriginalEdgeGroups(networks, within, mergedNodes);
+			assertFalse(fixture, expected.isEmpty());
+			assertEquals(fixture + ", within network merge: " + within, expected, edgeGroups);
+		}
+	}
+
+	/**
+	 * Merge the networks, recording the merged node of each node and the
+	 * SUIDs of the edges of each merged edge
+	 */
+	private void merge(final List<CyNetwork> networks, final boolean within, final Map<CyNode, CyNode> mergedNodes,
+			final Set<Set<Long>> edgeGroups) {
+		final MatchingAttribute matchingAttribute = new MatchingAttributeImpl();
+		final AttributeMapping nodeMapping = new AttributeMappingImpl();
+		final AttributeMapping edgeMapping = new AttributeMappingImpl();
+		final AttributeMapping networkMapping = new AttributeMappingImpl();
+		for (CyNetwork net : networks) {
+			matchingAttribute.putAttributeForMatching(net, net.getDefaultNodeTable().getColumn(CyNetwork.NAME));
+			nodeMapping.addNetwork(net, net.getDefaultNodeTable());
+			edgeMapping.addNetwork(net, net.getDefaultEdgeTable());
+			networkMapping.addNetwork(net, net.getDefaultNetworkTable());
+		}
+
+		final AttributeBasedNetworkMerge networkMerge = new AttributeBasedNetworkMerge(matchingAttribute,
+				nodeMapping, edgeMapping, networkMapping,
+				new DefaultAttributeMerger(new AttributeConflictCollectorImpl()), new NullTaskMonitor()) {
+			@Override
+			protected void mergeNodes(final MatchedGroups<CyNode> matchedNodes, final int[] groups,
+					final CyNode[] newNodes, final int count, final CyNetwork newNetwork) {
+				for (int i = 0; i < count; i++) {
+					for (int m = matchedNodes.getMemberStart(groups[i]); m < matchedNodes.getMemberEnd(groups[i]); m++)
+						mergedNodes.put(matchedNodes.getMember(m), newNodes[i]);
+				}
+				super.mergeNodes(matchedNodes, groups, newNodes, count, newNetwork);
+			}
+
+			@Override
+			protected void mergeEdges(final MatchedGroups<CyEdge> matchedEdges, final int[] groups,
+					final CyEdge[] newEdges, final int count, final CyNetwork newNetwork) {
+				for (int i = 0; i < count; i++) {
+					final Set<Long> group = new HashSet<Long>();
+					for (int m = matchedEdges.getMemberStart(groups[i]); m < matchedEdges.getMemberEnd(groups[i]); m++)
+						group.add(matchedEdges.getMember(m).getSUID());
+					edgeGroups.add(group);
+				}
+				super.mergeEdges(matchedEdges, groups, newEdges, count, newNetwork);
+			}
+		};
+		networkMerge.setWithinNetworkMerge(within);
+		networkMerge.mergeNetwork(support.getNetwork(), networks, Operation.UNION, false, false);
+	}
+
+	/**
+	 * Match the edges as the original implementation did, from the merged
+	 * nodes of their source and target
+	 */
+	private static Set<Set<Long>> getOriginalEdgeGroups(final List<CyNetwork> networks, final boolean within,
+			final Map<CyNode, CyNode> mergedNodes) {
+		final Map<String, Map<String, Integer>> directedEdges = new HashMap<String, Map<String, Integer>>();
+		final Map<String, Map<String, Integer>> undirectedEdges = new HashMap<String, Map<String, Integer>>();
+		final List<Set<Long>> groups = new ArrayList<Set<Long>>();
+		final List<Set<CyNetwork>> groupNetworks = new ArrayList<Set<CyNetwork>>();
+
+		for (CyNetwork net : networks) {
+			for (CyEdge edge : net.getEdgeList()) {
+				final String interaction = net.getRow(edge).get(CyEdge.INTERACTION, String.class);
+				final Long source = mergedNodes.get(edge.getSource()).getSUID();
+				final Long target = mergedNodes.get(edge.getTarget()).getSUID();
+				final String id1 = source + "," + target;
+				final String id2 = target + "," + source;
+				final int position = groups.size();
+
+				int index = -1;
+				if (edge.isDirected()) {
+					final Map<String, Integer> edges = directedEdges.computeIfAbsent(interaction,
+							i -> new HashMap<String, Integer>());
+					if (edges.containsKey(id1))
+						index = edges.get(id1);
+					else
+						edges.put(id1, position);
+				} else {
+					final Map<String, Integer> edges = undirectedEdges.computeIfAbsent(interaction,
+							i -> new HashMap<String, Integer>());
+					if (edges.get(id1) != null && edges.get(id1).equals(edges.get(id2))) {
+						index = edges.get(id1);
+					} else {
+						edges.put(id1, position);
+						edges.put(id2, position);
+					}
+				}
+
+				// edges of the same network do not match unless merging within networks
+				if (index >= 0 && !within && groupNetworks.get(index).size() == 1
+						&& groupNetworks.get(index).contains(net))
+					index = -1;
+
+				if (index < 0) {
+					groups.add(new HashSet<Long>());
+					groupNetworks.add(new HashSet<CyNetwork>());
+					index = position;
+				}
+				groups.get(index).add(edge.getSUID());
+				groupNetworks.get(index).add(net);
+			}
+		}
+		return new HashSet<Set<Long>>(groups);
+	}
+
+	/**
+	 * Read the source networks of a session fixture from the XGMML of its
+	 * networks. The nodes are named after their label, and the interaction
+	 * of the edges is taken from their label.
+	 */
+	private List<CyNetwork> loadNetworks(final String fixture) throws Exception {
+		final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		final List<Document> documents = new ArrayList<Document>();
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream(fixture)) {
+			final ZipInputStream zip = new ZipInputStream(in);
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.getName().contains("/networks/")) {
+					// parse from a copy, the parser closes its stream
+					documents.add(builder.parse(new ByteArrayInputStream(zip.readAllBytes())));
+				}
+			}
+		}
+
+		final Map<String, Element> elements = new HashMap<String, Element>();
+		final List<Element> graphs = new ArrayList<Element>();
+		for (Document document : documents) {
+			for (String tag : new String[] { "node", "edge" }) {
+				final NodeList list = document.getElementsByTagName(tag);
+				for (int i = 0; i < list.getLength(); i++) {
+					final Element element = (Element) list.item(i);
+					if (element.hasAttribute("id"))
+						elements.put(element.getAttribute("id"), element);
+				}
+			}
+			final NodeList list = document.getElementsByTagName("graph");
+			for (int i = 0; i < list.getLength(); i++) {
+				final Element graph = (Element) list.item(i);
+				if (graph != document.getDocumentElement()
+						&& SOURCE_LABEL.matcher(graph.getAttribute("label")).matches())
+					graphs.add(graph);
+			}
+		}
+		graphs.sort((g1, g2) -> g1.getAttribute("label").compareTo(g2.getAttribute("label")));
+
+		final List<CyNetwork> networks = new ArrayList<CyNetwork>();
+		for (Element graph : graphs) {
+			final CyNetwork net = support.getNetwork();
+			net.getRow(net).set(CyNetwork.NAME, graph.getAttribute("label"));
+			final Map<String, CyNode> nodes = new HashMap<String, CyNode>();
+			for (Node child = graph.getFirstChild(); child != null; child = child.getNextSibling()) {
+				if (child.getNodeType() != Node.ELEMENT_NODE || !child.getNodeName().equals("node"))
+					continue;
+				final Element element = resolve((Element) child, elements);
+				final CyNode node = net.addNode();
+				net.getRow(node).set(CyNetwork.NAME, element.getAttribute("label"));
+				nodes.put(element.getAttribute("id"), node);
+			}
+			for (Node child = graph.getFirstChild(); child != null; child = child.getNextSibling()) {
+				if (child.getNodeType() != Node.ELEMENT_NODE || !child.getNodeName().equals("edge"))
+					continue;
+				final Element element = resolve((Element) child, elements);
+				final CyEdge edge = net.addEdge(nodes.get(element.getAttribute("source")),
+						nodes.get(element.getAttribute("target")), "1".equals(element.getAttribute("cy:directed")));
+				final String label = element.getAttribute("label");
+				final Matcher matcher = EDGE_LABEL.matcher(label);
+				net.getRow(edge).set(CyNetwork.NAME, label);
+				net.getRow(edge).set(CyEdge.INTERACTION, matcher.matches() ? matcher.group(1) : null);
+			}
+			networks.add(net);
+		}
+		return networks;
+	}
+
+	private static Element resolve(final Element element, final Map<String, Element> elements) {
+		final String href = element.getAttribute("xlink:href");
+		return href.isEmpty() ? element : elements.get(href.substring(1));
+	}
+
+	private static class NullTaskMonitor implements TaskMonitor {
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+		}
+	}
+}
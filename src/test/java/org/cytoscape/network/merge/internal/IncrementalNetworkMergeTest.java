@@ -0,0 +1,309 @@
+package org.cytoscape.network.merge.internal;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollectorImpl;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
+import org.cytoscape.network.merge.internal.model.AttributeMapping;
+import org.cytoscape.network.merge.internal.model.AttributeMappingImpl;
+import org.cytoscape.network.merge.internal.model.MatchingAttribute;
+import org.cytoscape.network.merge.internal.model.MatchingAttributeImpl;
+import org.cytoscape.network.merge.internal.util.DefaultAttributeMerger;
+import org.cytoscape.service.util.CyServiceRegistrar;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Merge two networks matched on their node names, the nodes "a" and "b" of
+ * the first one and the node "a" of the second one, then change them and
+ * compare the merged network kept up to date with the expected merge. The
+ * changes are applied as their events are received.
+ */
+public class IncrementalNetworkMergeTest {
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+	private final List<CyNetwork> networks = new ArrayList<CyNetwork>();
+	private CyNetwork newNetwork;
+	private IncrementalNetworkMerge incrementalMerge;
+
+	@Before
+	public void setUp() {
+		for (int i = 0; i < 2; i++) {
+			final CyNetwork net = support.getNetwork();
+			net.getDefaultNodeTable().createColumn("label", String.class, false);
+			networks.add(net);
+		}
+		addNode(0, "a", "x");
+		addNode(0, "b", null);
+		addNode(1, "a", "y");
+	}
+
+	@Test
+	public void testAddNode() {
+		merge(false);
+		assertEquals("[a, b]", getMergedNames());
+
+		added(1, addNode(1, "b", null));
+		assertEquals("[a, b]", getMergedNames());
+		added(1, addNode(1, "c", null));
+		assertEquals("[a, b, c]", getMergedNames());
+	}
+
+	@Test
+	public void testRemoveNode() {
+		merge(false);
+		removed(1, getNode(1, "a"));
+		assertEquals("[a, b]", getMergedNames());
+		assertEquals("x", getMergedLabel("a"));
+
+		removed(0, getNode(0, "a"));
+		assertEquals("[b]", getMergedNames());
+	}
+
+	@Test
+	public void testSetRow() {
+		merge(false);
+		set(1, getNode(1, "a"), CyNetwork.NAME, "b");
+		assertEquals("[a, b]", getMergedNames());
+		assertEquals("y", getMergedLabel("b"));
+
+		set(1, getNode(1, "b"), CyNetwork.NAME, "c");
+		assertEquals("[a, b, c]", getMergedNames());
+
+		set(0, getNode(0, "a"), "label", "z");
+		assertEquals("z", getMergedLabel("a"));
+	}
+
+	@Test
+	public void testSameNetworkKey() {
+		merge(false);
+		// the nodes of the same network are not matched
+		added(0, addNode(0, "b", null));
+		assertEquals("[a, b, b]", getMergedNames());
+
+		// the node of another network matches the first of them
+		removed(0, getNode(0, "b"));
+		added(1, addNode(1, "b", null));
+		assertEquals("[a, b]", getMergedNames());
+	}
+
+	@Test
+	public void testWithinNetworkKey() {
+		merge(true);
+		added(0, addNode(0, "b", null));
+		assertEquals("[a, b]", getMergedNames());
+	}
+
+	@Test
+	public void testFirstMember() {
+		merge(false);
+		// the first value is that of the first network, whatever the order
+		// the nodes are added in
+		added(1, addNode(1, "c", "y"));
+		added(0, addNode(0, "c", "x"));
+		assertEquals("x", getMergedLabel("c"));
+
+		removed(0, getNode(0, "c"));
+		assertEquals("y", getMergedLabel("c"));
+	}
+
+	@Test
+	public void testEdges() {
+		merge(false);
+		added(1, addNode(1, "b", null));
+		final CyEdge edge0 = addEdge(0, "a", "b", "pp");
+		final CyEdge edge1 = addEdge(1, "a", "b", "pp");
+		added(0, edge0);
+		added(1, edge1);
+		assertEquals(1, newNetwork.getEdgeCount());
+
+		set(1, edge1, CyEdge.INTERACTION, "pd");
+		assertEquals(2, newNetwork.getEdgeCount());
+
+		removed(0, edge0);
+		removed(1, getNode(1, "b"));
+		assertEquals(0, newNetwork.getEdgeCount());
+	}
+
+	@Test
+	public void testPendingChanges() {
+		final AttributeBasedNetworkMerge networkMerge = newNetworkMerge(false);
+		incrementalMerge = new IncrementalNetworkMerge(networkMerge, newNetwork, networks,
+				new AttributeConflictCollectorImpl(), mock(CyServiceRegistrar.class), Runnable::run);
+		networkMerge.mergeNetwork(newNetwork, networks, Operation.UNION, false, false);
+
+		// the changes received before start are applied once started
+		added(1, addNode(1, "c", null));
+		assertEquals("[a, b]", getMergedNames());
+		incrementalMerge.start();
+		assertEquals("[a, b, c]", getMergedNames());
+	}
+
+	private void merge(final boolean within) {
+		final AttributeBasedNetworkMerge networkMerge = newNetworkMerge(within);
+		networkMerge.mergeNetwork(newNetwork, networks, Operation.UNION, false, false);
+		incrementalMerge = new IncrementalNetworkMerge(networkMerge, newNetwork, networks,
+				new AttributeConflictCollectorImpl(), mock(CyServiceRegistrar.class), Runnable::run);
+		incrementalMerge.start();
+	}
+
+	private AttributeBasedNetworkMerge newNetworkMerge(final boolean within) {
+		final MatchingAttribute matchingAttribute = new MatchingAttributeImpl();
+		final AttributeMapping nodeMapping = new AttributeMappingImpl();
+		final AttributeMapping edgeMapping = new AttributeMappingImpl();
+		final AttributeMapping networkMapping = new AttributeMappingImpl();
+		for (CyNetwork net : networks) {
+			matchingAttribute.putAttributeForMatching(net, net.getDefaultNodeTable().getColumn(CyNetwork.NAME));
+			nodeMapping.addNetwork(net, net.getDefaultNodeTable());
+			edgeMapping.addNetwork(net, net.getDefaultEdgeTable());
+			networkMapping.addNetwork(net, net.getDefaultNetworkTable());
+		}
+		nodeMapping.setMergedAttributeStrategy("label", ConflictStrategy.FIRST);
+
+		final AttributeConflictCollector conflictCollector = new AttributeConflictCollectorImpl();
+		final AttributeBasedNetworkMerge networkMerge = new AttributeBasedNetworkMerge(matchingAttribute,
+				nodeMapping, edgeMapping, networkMapping, new DefaultAttributeMerger(conflictCollector),
+				new NullTaskMonitor());
+		networkMerge.setWithinNetworkMerge(within);
+		networkMerge.setIncremental(true);
+		newNetwork = support.getNetwork();
+		return networkMerge;
+	}
+
+	private CyNode addNode(final int netIndex, final String name, final String label) {
+		final CyNetwork net = networks.get(netIndex);
+		final CyNode node = net.addNode();
+		net.getRow(node).set(CyNetwork.NAME, name);
+		net.getRow(node).set("label", label);
+		return node;
+	}
+
+	private CyEdge addEdge(final int netIndex, final String source, final String target, final String interaction) {
+		final CyNetwork net = networks.get(netIndex);
+		final CyEdge edge = net.addEdge(getNode(netIndex, source), getNode(netIndex, target), true);
+		net.getRow(edge).set(CyEdge.INTERACTION, interaction);
+		return edge;
+	}
+
+	private CyNode getNode(final int netIndex, final String name) {
+		final CyNetwork net = networks.get(netIndex);
+		for (CyNode node : net.getNodeList()) {
+			if (name.equals(net.getRow(node).get(CyNetwork.NAME, String.class)))
+				return node;
+		}
+		return null;
+	}
+
+	private void added(final int netIndex, final CyNode node) {
+		incrementalMerge.handleEvent(new AddedNodesEvent(networks.get(netIndex), Collections.singletonList(node)));
+	}
+
+	private void added(final int netIndex, final CyEdge edge) {
+		incrementalMerge.handleEvent(new AddedEdgesEvent(networks.get(netIndex), Collections.singletonList(edge)));
+	}
+
+	private void removed(final int netIndex, final CyNode node) {
+		final CyNetwork net = networks.get(netIndex);
+		net.removeNodes(Collections.singletonList(node));
+		incrementalMerge.handleEvent(new RemovedNodesEvent(net, Collections.singletonList(node.getSUID())));
+	}
+
+	private void removed(final int netIndex, final CyEdge edge) {
+		final CyNetwork net = networks.get(netIndex);
+		net.removeEdges(Collections.singletonList(edge));
+		incrementalMerge.handleEvent(new RemovedEdgesEvent(net, Collections.singletonList(edge.getSUID())));
+	}
+
+	private void set(final int netIndex, final CyNode node, final String column, final String value) {
+		final CyNetwork net = networks.get(netIndex);
+		net.getRow(node).set(column, value);
+		incrementalMerge.handleEvent(new RowsSetEvent(net.getDefaultNodeTable(),
+				Collections.singletonList(new RowSetRecord(net.getRow(node), column, value, value))));
+	}
+
+	private void set(final int netIndex, final CyEdge edge, final String column, final String value) {
+		final CyNetwork net = networks.get(netIndex);
+		net.getRow(edge).set(column, value);
+		incrementalMerge.handleEvent(new RowsSetEvent(net.getDefaultEdgeTable(),
+				Collections.singletonList(new RowSetRecord(net.getRow(edge), column, value, value))));
+	}
+
+	/**
+	 * @return the sorted names of the merged nodes
+	 */
+	private String getMergedNames() {
+		final List<String> names = new ArrayList<String>();
+		for (CyNode node : newNetwork.getNodeList())
+			names.add(newNetwork.getRow(node).get(CyNetwork.NAME, String.class));
+		Collections.sort(names);
+		return names.toString();
+	}
+
+	private String getMergedLabel(final String name) {
+		for (CyNode node : newNetwork.getNodeList()) {
+			if (name.equals(newNetwork.getRow(node).get(CyNetwork.NAME, String.class)))
+				return newNetwork.getRow(node).get("label", String.class);
+		}
+		return null;
+	}
+
+	private static class NullTaskMonitor implements TaskMonitor {
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+		}
+	}
+}
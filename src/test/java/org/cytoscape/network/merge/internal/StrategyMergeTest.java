@@ -0,0 +1,218 @@
+package org.cytoscape.network.merge.internal;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.network.merge.internal.NetworkMerge.Operation;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollector;
+import org.cytoscape.network.merge.internal.conflict.AttributeConflictCollectorImpl;
+import org.cytoscape.network.merge.internal.conflict.ConflictStrategy;
+import org.cytoscape.network.merge.internal.model.AttributeMapping;
+import org.cytoscape.network.merge.internal.model.AttributeMappingImpl;
+import org.cytoscape.network.merge.internal.model.MatchingAttribute;
+import org.cytoscape.network.merge.internal.model.MatchingAttributeImpl;
+import org.cytoscape.network.merge.internal.util.DefaultAttributeMerger;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Merge the node "a" of three networks with each conflict strategy, its
+ * score being 1, 4 and 2, its count 3, 1 and 2, its flag true, false and
+ * false, and its label "x", "y" and "x".
+ */
+public class StrategyMergeTest {
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+	private final List<CyNetwork> networks = new ArrayList<CyNetwork>();
+	private AttributeConflictCollector conflictCollector;
+	private ConflictStrategy networkStrategy;
+	private CyNetwork newNetwork;
+
+	@Before
+	public void setUp() {
+		final double[] scores = { 1, 4, 2 };
+		final int[] counts = { 3, 1, 2 };
+		final boolean[] flags = { true, false, false };
+		final String[] labels = { "x", "y", "x" };
+		for (int i = 0; i < 3; i++) {
+			final CyNetwork net = support.getNetwork();
+			net.getDefaultNodeTable().createColumn("score", Double.class, false);
+			net.getDefaultNodeTable().createColumn("count", Integer.class, false);
+			net.getDefaultNodeTable().createColumn("flag", Boolean.class, false);
+			net.getDefaultNodeTable().createColumn("label", String.class, false);
+			final CyRow row = net.getRow(net.addNode());
+			row.set(CyNetwork.NAME, "a");
+			row.set("score", scores[i]);
+			row.set("count", counts[i]);
+			row.set("flag", flags[i]);
+			row.set("label", labels[i]);
+			networks.add(net);
+		}
+	}
+
+	@Test
+	public void testDouble() {
+		assertEquals(1.0, merge("score", ConflictStrategy.FIRST));
+		assertEquals(2.0, merge("score", ConflictStrategy.LAST));
+		assertEquals(7.0, merge("score", ConflictStrategy.SUM));
+		assertEquals(7.0 / 3, merge("score", ConflictStrategy.MEAN));
+		assertEquals(1.0, merge("score", ConflictStrategy.MIN));
+		assertEquals(4.0, merge("score", ConflictStrategy.MAX));
+		assertEquals(2.0, merge("score", ConflictStrategy.MEDIAN));
+		assertEquals(3.0, merge("score", ConflictStrategy.COUNT));
+	}
+
+	@Test
+	public void testInteger() {
+		assertEquals(3, merge("count", ConflictStrategy.FIRST));
+		assertEquals(2, merge("count", ConflictStrategy.LAST));
+		assertEquals(6, merge("count", ConflictStrategy.SUM));
+		assertEquals(2, merge("count", ConflictStrategy.MEAN));
+		assertEquals(1, merge("count", ConflictStrategy.MIN));
+		assertEquals(3, merge("count", ConflictStrategy.MAX));
+		assertEquals(2, merge("count", ConflictStrategy.MEDIAN));
+		assertEquals(3, merge("count", ConflictStrategy.COUNT));
+	}
+
+	@Test
+	public void testBoolean() {
+		assertEquals(true, merge("flag", ConflictStrategy.FIRST));
+		assertEquals(false, merge("flag", ConflictStrategy.LAST));
+		assertEquals(true, merge("flag", ConflictStrategy.ANY));
+		assertEquals(false, merge("flag", ConflictStrategy.ALL));
+		assertEquals(false, merge("flag", ConflictStrategy.MAJORITY));
+	}
+
+	@Test
+	public void testString() {
+		assertEquals("x", merge("label", ConflictStrategy.FIRST));
+		assertEquals("x", merge("label", ConflictStrategy.LAST));
+		assertEquals("x;y", merge("label", ConflictStrategy.CONCATENATE));
+	}
+
+	@Test
+	public void testDeferred() {
+		merge("score", ConflictStrategy.DEFERRED);
+		boolean deferred = false;
+		for (CyColumn column : conflictCollector.getConflictColumns())
+			deferred |= column.getName().equals("score");
+		assertTrue(deferred);
+	}
+
+	@Test
+	public void testDeferredEqualValues() {
+		for (CyNetwork net : networks)
+			net.getRow(net.getNodeList().get(0)).set("score", 5.0);
+		merge("score", ConflictStrategy.DEFERRED);
+		assertTrue(conflictCollector.isEmpty());
+	}
+
+	@Test
+	public void testNetworkEqualValues() {
+		for (CyNetwork net : networks) {
+			net.getDefaultNetworkTable().createColumn("size", Integer.class, false);
+			net.getRow(net).set("size", 5);
+		}
+		networkStrategy = ConflictStrategy.SUM;
+		merge("score", ConflictStrategy.FIRST);
+		assertEquals(15, newNetwork.getRow(newNetwork).getRaw("size"));
+	}
+
+	@Test
+	public void testNotApplicable() {
+		final AttributeMapping nodeMapping = newMapping();
+		assertFalse(nodeMapping.setMergedAttributeStrategy("label", ConflictStrategy.SUM));
+		assertFalse(nodeMapping.setMergedAttributeStrategy("flag", ConflictStrategy.MEAN));
+		assertFalse(nodeMapping.setMergedAttributeStrategy("score", ConflictStrategy.ANY));
+		assertEquals(ConflictStrategy.CONCATENATE, nodeMapping.getMergedAttributeStrategy("label"));
+	}
+
+	private AttributeMapping newMapping() {
+		final AttributeMapping nodeMapping = new AttributeMappingImpl();
+		for (CyNetwork net : networks)
+			nodeMapping.addNetwork(net, net.getDefaultNodeTable());
+		return nodeMapping;
+	}
+
+	/**
+	 * @return the merged value of the column of node "a"
+	 */
+	private Object merge(final String column, final ConflictStrategy strategy) {
+		final MatchingAttribute matchingAttribute = new MatchingAttributeImpl();
+		final AttributeMapping nodeMapping = newMapping();
+		final AttributeMapping edgeMapping = new AttributeMappingImpl();
+		final AttributeMapping networkMapping = new AttributeMappingImpl();
+		for (CyNetwork net : networks) {
+			matchingAttribute.putAttributeForMatching(net, net.getDefaultNodeTable().getColumn(CyNetwork.NAME));
+			edgeMapping.addNetwork(net, net.getDefaultEdgeTable());
+			networkMapping.addNetwork(net, net.getDefaultNetworkTable());
+		}
+		assertTrue(strategy.toString(), nodeMapping.setMergedAttributeStrategy(column, strategy));
+		if (networkStrategy != null)
+			assertTrue(networkMapping.setMergedAttributeStrategy("size", networkStrategy));
+
+		conflictCollector = new AttributeConflictCollectorImpl();
+		final AttributeBasedNetworkMerge networkMerge = new AttributeBasedNetworkMerge(matchingAttribute,
+				nodeMapping, edgeMapping, networkMapping, new DefaultAttributeMerger(conflictCollector),
+				new NullTaskMonitor());
+		newNetwork = support.getNetwork();
+		networkMerge.mergeNetwork(newNetwork, networks, Operation.UNION, false, false);
+
+		final List<CyNode> nodes = newNetwork.getNodeList();
+		assertEquals(1, nodes.size());
+		return newNetwork.getRow(nodes.get(0)).getRaw(column);
+	}
+
+	private static class NullTaskMonitor implements TaskMonitor {
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+		}
+	}
+}
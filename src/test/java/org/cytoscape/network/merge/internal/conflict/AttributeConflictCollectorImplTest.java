@@ -0,0 +1,187 @@
+package org.cytoscape.network.merge.internal.conflict;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttributeConflictCollectorImplTest {
+
+	private static final int N = 1000;
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+	private CyNetwork network;
+	private CyColumn fromColumn;
+	private CyColumn toColumn;
+	private final List<CyNode> tos = new ArrayList<CyNode>();
+	private final List<CyNode> froms = new ArrayList<CyNode>();
+	private AttributeConflictCollectorImpl collector;
+
+	@Before
+	public void setUp() {
+		network = support.getNetwork();
+		network.getDefaultNodeTable().createColumn("from", String.class, false);
+		network.getDefaultNodeTable().createColumn("to", String.class, false);
+		fromColumn = network.getDefaultNodeTable().getColumn("from");
+		toColumn = network.getDefaultNodeTable().getColumn("to");
+
+		// two conflicts per target
+		collector = new AttributeConflictCollectorImpl();
+		for (int i = 0; i < N; i++) {
+			final CyNode to = network.addNode();
+			final CyNode from1 = network.addNode();
+			final CyNode from2 = network.addNode();
+			tos.add(to);
+			froms.add(from1);
+			froms.add(from2);
+			collector.addConflict(from1, fromColumn, to, toColumn);
+			collector.addConflict(from2, fromColumn, to, toColumn);
+		}
+	}
+
+	@Test
+	public void testRemoveConflicts() {
+		assertEquals(N, collector.getSize());
+		for (int i = 0; i < N; i++) {
+			if (i % 10 != 0)
+				assertTrue(collector.removeConflicts(tos.get(i), toColumn));
+		}
+		assertFalse(collector.removeConflicts(tos.get(1), toColumn));
+
+		// the arrays were compacted to the live conflicts
+		final AttributeConflictCollectorImpl.ColumnConflicts conflicts = collector.mapToAttrConflicts.get(toColumn);
+		assertEquals(2 * N / 10, conflicts.live);
+		assertTrue(conflicts.size < 2 * N);
+
+		checkConflicts(Collections.<Integer>emptyList());
+	}
+
+	@Test
+	public void testRemoveConflict() {
+		// remove the first conflict of the targets, then the second one of most of them
+		for (int i = 0; i < N; i++)
+			assertTrue(collector.removeConflict(froms.get(2 * i), fromColumn, tos.get(i), toColumn));
+		for (int i = 0; i < N; i++) {
+			if (i % 10 != 0)
+				assertTrue(collector.removeConflict(froms.get(2 * i + 1), fromColumn, tos.get(i), toColumn));
+		}
+
+		final AttributeConflictCollectorImpl.ColumnConflicts conflicts = collector.mapToAttrConflicts.get(toColumn);
+		assertEquals(N / 10, conflicts.live);
+		assertTrue(conflicts.size < 2 * N);
+
+		final List<Integer> removedFirst = new ArrayList<Integer>();
+		for (int i = 0; i < N; i += 10)
+			removedFirst.add(i);
+		checkConflicts(removedFirst);
+
+		// the conflicts can still be added to a compacted column
+		collector.addConflict(froms.get(0), fromColumn, tos.get(0), toColumn);
+		assertEquals(2, collector.getConflicts(tos.get(0), toColumn).size());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		for (CyNode to : tos)
+			assertTrue(collector.removeConflicts(to, toColumn));
+		assertTrue(collector.isEmpty());
+		assertEquals(0, collector.getSize());
+	}
+
+	@Test
+	public void testRemoveWhileIterating() {
+		// remove most targets while going through them, past the compaction threshold
+		final Iterator<Map.Entry<CyIdentifiable, CyColumn>> it = collector.iterator();
+		int visited = 0;
+		while (it.hasNext()) {
+			final Map.Entry<CyIdentifiable, CyColumn> entry = it.next();
+			assertEquals(tos.get(visited).getSUID(), entry.getKey().getSUID());
+			if (visited % 10 != 0)
+				assertTrue(collector.removeConflicts(entry.getKey(), entry.getValue()));
+			visited++;
+		}
+		assertEquals(N, visited);
+
+		// the arrays are compacted once the iterator is done with them
+		final AttributeConflictCollectorImpl.ColumnConflicts conflicts = collector.mapToAttrConflicts.get(toColumn);
+		assertEquals(0, conflicts.iterators);
+		assertTrue(conflicts.size < 2 * N);
+
+		checkConflicts(Collections.<Integer>emptyList());
+
+		final Iterator<Map.Entry<CyIdentifiable, CyColumn>> itAll = collector.iterator(toColumn);
+		visited = 0;
+		while (itAll.hasNext()) {
+			assertTrue(collector.removeConflicts(itAll.next().getKey(), toColumn));
+			visited++;
+		}
+		assertEquals(N / 10, visited);
+		assertTrue(collector.isEmpty());
+	}
+
+	/*
+	 * the targets left are every tenth one, in order, with both their
+	 * conflicts or only the second one
+	 */
+	private void checkConflicts(final List<Integer> removedFirst) {
+		assertEquals(N / 10, collector.getSize());
+		final Iterator<Map.Entry<CyIdentifiable, CyColumn>> it = collector.iterator(toColumn);
+		for (int i = 0; i < N; i += 10) {
+			assertTrue(it.hasNext());
+			final Map.Entry<CyIdentifiable, CyColumn> entry = it.next();
+			assertEquals(tos.get(i).getSUID(), entry.getKey().getSUID());
+			assertSame(toColumn, entry.getValue());
+
+			final List<Long> fromSUIDs = new ArrayList<Long>();
+			for (CyIdentifiable from : collector.getConflicts(tos.get(i), toColumn).keySet())
+				fromSUIDs.add(from.getSUID());
+			final List<Long> expected = new ArrayList<Long>();
+			if (!removedFirst.contains(i))
+				expected.add(froms.get(2 * i).getSUID());
+			expected.add(froms.get(2 * i + 1).getSUID());
+			assertEquals(expected, fromSUIDs);
+		}
+		assertFalse(it.hasNext());
+		assertNull(collector.getConflicts(tos.get(1), toColumn));
+	}
+}
@@ -0,0 +1,176 @@
+package org.cytoscape.network.merge.internal.conflict;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+
+public class AttributeConflictManagerTest {
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+
+	@Test
+	public void testGraphObjectsOfHandlers() {
+		final CyNetwork source = support.getNetwork();
+		final CyNetwork merged = support.getNetwork();
+		source.getDefaultNodeTable().createColumn("label", String.class, false);
+		merged.getDefaultNodeTable().createColumn("label", String.class, false);
+		final CyColumn fromColumn = source.getDefaultNodeTable().getColumn("label");
+		final CyColumn toColumn = merged.getDefaultNodeTable().getColumn("label");
+
+		final CyNode from1 = source.addNode();
+		final CyNode from2 = source.addNode();
+		final CyNode to = merged.addNode();
+		source.getRow(from1).set("label", "a");
+		source.getRow(from2).set("label", "b");
+		merged.getRow(to).set("label", "a");
+
+		final AttributeConflictCollector collector = new AttributeConflictCollectorImpl();
+		collector.addConflict(from1, fromColumn, to, toColumn);
+		collector.addConflict(from2, fromColumn, to, toColumn);
+
+		final List<CyIdentifiable> handled = new ArrayList<CyIdentifiable>();
+		final AttributeConflictHandler handler = new DefaultAttributeConflictHandler() {
+			@Override
+			public Object resolve(final CyIdentifiable to, final CyColumn toAttr, final Object toValue,
+					final Map<CyIdentifiable, Object> mapFromGOValue) {
+				handled.add(to);
+				handled.addAll(mapFromGOValue.keySet());
+				return super.resolve(to, toAttr, toValue, mapFromGOValue);
+			}
+		};
+		new AttributeConflictManager(collector, Arrays.asList(handler), Arrays.asList(merged, source))
+				.handleConflicts();
+
+		assertEquals(3, handled.size());
+		assertSame(to, handled.get(0));
+		assertSame(from1, handled.get(1));
+		assertSame(from2, handled.get(2));
+		assertTrue(collector.isEmpty());
+		assertEquals("a;b", merged.getRow(to).get("label", String.class));
+	}
+
+	@Test
+	public void testBatches() {
+		final CyNetwork source = support.getNetwork();
+		final CyNetwork merged = support.getNetwork();
+		source.getDefaultNodeTable().createColumn("label", String.class, false);
+		merged.getDefaultNodeTable().createColumn("label", String.class, false);
+		final CyColumn fromColumn = source.getDefaultNodeTable().getColumn("label");
+		final CyColumn toColumn = merged.getDefaultNodeTable().getColumn("label");
+
+		final AttributeConflictCollector collector = new AttributeConflictCollectorImpl();
+		final List<CyNode> tos = new ArrayList<CyNode>();
+		for (int i = 0; i < 100; i++) {
+			final CyNode from = source.addNode();
+			final CyNode to = merged.addNode();
+			source.getRow(from).set("label", "b" + i);
+			merged.getRow(to).set("label", "a" + i);
+			collector.addConflict(from, fromColumn, to, toColumn);
+			tos.add(to);
+		}
+
+		final AttributeConflictManager manager = new AttributeConflictManager(collector,
+				Arrays.<AttributeConflictHandler>asList(new DefaultAttributeConflictHandler()),
+				Arrays.asList(merged, source));
+		final List<CyIdentifiable> targets = manager.getConflictTargets(toColumn);
+		assertEquals(100, targets.size());
+
+		// the first batch is written, as if the merge was cancelled after it
+		final AttributeConflictManager.ConflictBatch batch = manager.readConflicts(toColumn, targets, 0, 60);
+		manager.resolveConflicts(batch);
+		manager.setResolvedValues(batch);
+		manager.removeResolvedConflicts(batch);
+
+		assertEquals(40, collector.getSize());
+		for (int i = 0; i < 100; i++) {
+			final boolean written = i < 60;
+			assertEquals(written ? "a" + i + ";b" + i : "a" + i, merged.getRow(tos.get(i)).get("label", String.class));
+			assertEquals(!written, collector.getConflicts(tos.get(i), toColumn) != null);
+		}
+	}
+
+	@Test
+	public void testAggregatedWhileRead() {
+		final CyNetwork source = support.getNetwork();
+		final CyNetwork merged = support.getNetwork();
+		source.getDefaultNodeTable().createColumn("score", Integer.class, false);
+		merged.getDefaultNodeTable().createColumn("score", Double.class, false);
+		final CyColumn fromColumn = source.getDefaultNodeTable().getColumn("score");
+		final CyColumn toColumn = merged.getDefaultNodeTable().getColumn("score");
+
+		final AttributeConflictCollector collector = new AttributeConflictCollectorImpl();
+		final List<CyNode> tos = new ArrayList<CyNode>();
+		for (int i = 0; i < 10; i++) {
+			final CyNode from1 = source.addNode();
+			final CyNode from2 = source.addNode();
+			final CyNode to = merged.addNode();
+			source.getRow(from1).set("score", i);
+			source.getRow(from2).set("score", 2 * i);
+			merged.getRow(to).set("score", 1.0);
+			collector.addConflict(from1, fromColumn, to, toColumn);
+			collector.addConflict(from2, fromColumn, to, toColumn);
+			tos.add(to);
+		}
+
+		// the values are summed as they are read, the next handler is never asked
+		final AttributeConflictHandler next = new DefaultAttributeConflictHandler() {
+			@Override
+			public Object resolve(final CyIdentifiable to, final CyColumn toAttr, final Object toValue,
+					final Map<CyIdentifiable, Object> mapFromGOValue) {
+				throw new AssertionError("resolved by the next handler");
+			}
+		};
+		final AttributeConflictManager manager = new AttributeConflictManager(collector,
+				Arrays.<AttributeConflictHandler>asList(new AggregateAttributeConflictHandler(
+						Collections.singletonMap(toColumn, ConflictStrategy.SUM)), next),
+				Arrays.asList(merged, source));
+		final AttributeConflictManager.ConflictBatch batch = manager.readConflicts(toColumn,
+				manager.getConflictTargets(toColumn), 0, 10);
+		assertEquals(10, batch.getResolvedCount());
+		manager.resolveConflicts(batch);
+		manager.setResolvedValues(batch);
+		manager.removeResolvedConflicts(batch);
+
+		assertTrue(collector.isEmpty());
+		for (int i = 0; i < 10; i++)
+			assertEquals(Double.valueOf(1.0 + 3 * i), merged.getRow(tos.get(i)).get("score", Double.class));
+	}
+}
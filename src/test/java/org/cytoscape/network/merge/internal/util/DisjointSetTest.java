@@ -0,0 +1,99 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DisjointSetTest {
+
+	@Test
+	public void testSingletons() {
+		final DisjointSet set = new DisjointSet(5);
+		assertEquals(5, set.size());
+		for (int i = 0; i < set.size(); i++)
+			assertEquals(i, set.find(i));
+	}
+
+	@Test
+	public void testUnion() {
+		final DisjointSet set = new DisjointSet(6);
+		assertTrue(set.union(4, 2));
+		assertTrue(set.union(5, 4));
+		assertFalse(set.union(2, 5));
+		assertEquals(2, set.find(5));
+		assertEquals(2, set.find(4));
+		assertEquals(2, set.find(2));
+
+		// joining the bigger set into a smaller one keeps the smallest element
+		assertTrue(set.union(0, 5));
+		for (int i : new int[] { 0, 2, 4, 5 })
+			assertEquals(0, set.find(i));
+		assertEquals(1, set.find(1));
+		assertEquals(3, set.find(3));
+	}
+
+	@Test
+	public void testChain() {
+		final int n = 10000;
+		final DisjointSet set = new DisjointSet(n);
+		for (int i = n - 1; i > 0; i--)
+			assertTrue(set.union(i, i - 1));
+		for (int i = 0; i < n; i++)
+			assertEquals(0, set.find(i));
+		assertFalse(set.union(0, n - 1));
+	}
+
+	@Test
+	public void testRandomUnions() {
+		final int n = 500;
+		final DisjointSet set = new DisjointSet(n);
+		// the smallest element of the set of each element, kept naively
+		final int[] expected = new int[n];
+		for (int i = 0; i < n; i++)
+			expected[i] = i;
+
+		final Random random = new Random(7);
+		for (int k = 0; k < 400; k++) {
+			final int i = random.nextInt(n);
+			final int j = random.nextInt(n);
+			final int si = expected[i];
+			final int sj = expected[j];
+			assertEquals(si != sj, set.union(i, j));
+			final int min = Math.min(si, sj);
+			for (int e = 0; e < n; e++) {
+				if (expected[e] == si || expected[e] == sj)
+					expected[e] = min;
+			}
+			for (int e = 0; e < n; e++)
+				assertEquals(expected[e], set.find(e));
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	// capacity of a map created for 4 entries
+	private static final int CAPACITY = 8;
+
+	@Test
+	public void testPutGetRemove() {
+		final LongIntHashMap map = new LongIntHashMap(4);
+		assertEquals(-1, map.getNoEntryValue());
+		assertTrue(map.isEmpty());
+
+		assertEquals(-1, map.put(7, 1));
+		assertEquals(1, map.put(7, 2));
+		assertEquals(2, map.get(7));
+		assertEquals(-1, map.get(8));
+		assertEquals(1, map.size());
+
+		assertEquals(2, map.remove(7));
+		assertEquals(-1, map.remove(7));
+		assertFalse(map.containsKey(7));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testZeroKey() {
+		final LongIntHashMap map = new LongIntHashMap(4, Integer.MIN_VALUE);
+		assertFalse(map.containsKey(0));
+		assertEquals(Integer.MIN_VALUE, map.putIfAbsent(0, 3));
+		assertEquals(3, map.putIfAbsent(0, 4));
+		assertEquals(3, map.get(0));
+		assertEquals(1, map.size());
+		assertEquals(3, map.remove(0));
+		assertEquals(Integer.MIN_VALUE, map.get(0));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testPutIfAbsent() {
+		final LongIntHashMap map = new LongIntHashMap(4);
+		assertEquals(-1, map.putIfAbsent(5, 1));
+		assertEquals(1, map.putIfAbsent(5, 2));
+		assertEquals(1, map.get(5));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testCollisionChain() {
+		final List<Long> chain = getKeysWithSlot(3, 4);
+		final LongIntHashMap map = new LongIntHashMap(4);
+		for (int i = 0; i < chain.size(); i++)
+			assertEquals(-1, map.putIfAbsent(chain.get(i), i));
+		for (int i = 0; i < chain.size(); i++) {
+			assertEquals(i, map.get(chain.get(i)));
+			assertEquals(i, map.putIfAbsent(chain.get(i), -5));
+		}
+		assertEquals(chain.size(), map.size());
+	}
+
+	@Test
+	public void testWraparound() {
+		// the chain starts in the last slot and continues at the start of the table
+		final List<Long> chain = getKeysWithSlot(CAPACITY - 1, 3);
+		final LongIntHashMap map = new LongIntHashMap(4);
+		for (int i = 0; i < chain.size(); i++)
+			map.put(chain.get(i), i);
+		for (int i = 0; i < chain.size(); i++)
+			assertEquals(i, map.get(chain.get(i)));
+
+		// a key whose home is the first slot is found after the wrapped keys
+		final long first = getKeysWithSlot(0, 1).get(0);
+		assertEquals(-1, map.putIfAbsent(first, 10));
+		assertEquals(10, map.get(first));
+
+		assertEquals(0, map.remove(chain.get(0)));
+		for (int i = 1; i < chain.size(); i++)
+			assertEquals(i, map.get(chain.get(i)));
+		assertEquals(10, map.get(first));
+	}
+
+	@Test
+	public void testRemoveShiftsKeys() {
+		final List<Long> chain = getKeysWithSlot(2, 3);
+		final long next = getKeysWithSlot(3, 1).get(0);
+		final LongIntHashMap map = new LongIntHashMap(4);
+		for (int i = 0; i < chain.size(); i++)
+			map.put(chain.get(i), i);
+		// its home slot is taken by the chain, so it is stored after it
+		map.put(next, 10);
+
+		// remove the head of the chain, then a key in its middle
+		assertEquals(0, map.remove(chain.get(0)));
+		assertEquals(1, map.get(chain.get(1)));
+		assertEquals(2, map.get(chain.get(2)));
+		assertEquals(10, map.get(next));
+
+		assertEquals(2, map.remove(chain.get(2)));
+		assertEquals(1, map.get(chain.get(1)));
+		assertEquals(10, map.get(next));
+		assertFalse(map.containsKey(chain.get(0)));
+		assertFalse(map.containsKey(chain.get(2)));
+		assertEquals(2, map.size());
+
+		// the freed slots are reused
+		assertEquals(-1, map.putIfAbsent(chain.get(0), 20));
+		assertEquals(20, map.get(chain.get(0)));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void testResize() {
+		final LongIntHashMap map = new LongIntHashMap(4);
+		final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		final Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			final long key = random.nextInt(5000) | ((long) random.nextInt(4) << 32);
+			final Integer previous = expected.putIfAbsent(key, i);
+			assertEquals(previous == null ? -1 : previous.intValue(), map.putIfAbsent(key, i));
+			if (random.nextInt(4) == 0) {
+				final long removed = random.nextInt(5000);
+				final Integer value = expected.remove(removed);
+				assertEquals(value == null ? -1 : value.intValue(), map.remove(removed));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> e : expected.entrySet())
+			assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+
+		map.ensureCapacity(100000);
+		for (Map.Entry<Long, Integer> e : expected.entrySet())
+			assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(expected.keySet().iterator().next()));
+	}
+
+	/**
+	 * @return the first non zero keys whose home slot is the given one in a
+	 *         map of the initial capacity
+	 */
+	private static List<Long> getKeysWithSlot(final int slot, final int count) {
+		final List<Long> keys = new ArrayList<Long>(count);
+		for (long key = 1; keys.size() < count; key++) {
+			if (slot(key) == slot)
+				keys.add(key);
+		}
+		return keys;
+	}
+
+	// same hash as LongIntHashMap
+	private static int slot(final long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & (CAPACITY - 1);
+	}
+}
@@ -0,0 +1,221 @@
+package org.cytoscape.network.merge.internal.util;
+
+/*
+ * #%L
+ * Cytoscape Merge Impl (network-merge-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MatchedGroupsTest {
+
+	private final NetworkTestSupport support = new NetworkTestSupport();
+	private List<CyNetwork> networks;
+	private List<CyNode> nodes1;
+	private List<CyNode> nodes2;
+
+	@Before
+	public void setUp() {
+		final CyNetwork net1 = support.getNetwork();
+		final CyNetwork net2 = support.getNetwork();
+		networks = Arrays.asList(net1, net2);
+		nodes1 = net1.addNodes(4);
+		nodes2 = net2.addNodes(4);
+	}
+
+	@Test
+	public void testBuild() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks, 1);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		final int g1 = builder.add(-1, 0, nodes1.get(1));
+		final int g2 = builder.newGroup();
+		builder.add(g0, 0, nodes1.get(2));
+		builder.add(g1, 1, nodes2.get(0));
+		builder.add(g0, 1, nodes2.get(1));
+		builder.add(g0, 1, nodes2.get(2));
+		assertEquals(3, builder.size());
+		assertEquals(-1, builder.getFirstMember(g2));
+		assertFalse(builder.hasOnlyNetwork(g0, 0));
+		assertFalse(builder.hasOnlyNetwork(g2, 0));
+
+		final MatchedGroups<CyNode> groups = builder.build();
+		assertSame(networks, groups.getNetworks());
+		assertEquals(3, groups.size());
+
+		// the members of a group are in the order they were added
+		assertMembers(groups, g0, nodes1.get(0), nodes1.get(2), nodes2.get(1), nodes2.get(2));
+		assertMembers(groups, g1, nodes1.get(1), nodes2.get(0));
+		assertMembers(groups, g2);
+
+		final int m = groups.getMemberStart(g0) + 2;
+		assertEquals(1, groups.getNetworkIndex(m));
+		assertSame(networks.get(1), groups.getNetwork(m));
+	}
+
+	@Test
+	public void testBuilderChains() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		final int g1 = builder.add(-1, 1, nodes2.get(0));
+		builder.add(g0, 0, nodes1.get(1));
+		builder.add(g1, 1, nodes2.get(1));
+		assertTrue(builder.hasOnlyNetwork(g0, 0));
+		assertTrue(builder.hasOnlyNetwork(g1, 1));
+		assertFalse(builder.hasOnlyNetwork(g1, 0));
+
+		final List<CyNode> members = new ArrayList<CyNode>();
+		for (int m = builder.getFirstMember(g0); m != -1; m = builder.getNextMember(m)) {
+			assertEquals(0, builder.getNetworkIndex(m));
+			members.add(builder.getMember(m));
+		}
+		assertEquals(Arrays.asList(nodes1.get(0), nodes1.get(1)), members);
+
+		builder.add(g1, 0, nodes1.get(2));
+		assertFalse(builder.hasOnlyNetwork(g1, 1));
+	}
+
+	@Test
+	public void testNetworks() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		builder.add(g0, 1, nodes2.get(0));
+		final int g1 = builder.add(-1, 1, nodes2.get(1));
+		builder.add(g1, 1, nodes2.get(2));
+		final int g2 = builder.newGroup();
+		final MatchedGroups<CyNode> groups = builder.build();
+
+		assertTrue(groups.containsNetwork(g0, 0));
+		assertTrue(groups.containsNetwork(g0, 1));
+		assertEquals(2, groups.getNetworkCount(g0));
+		assertFalse(groups.containsNetwork(g1, 0));
+		assertTrue(groups.containsNetwork(g1, 1));
+		assertEquals(1, groups.getNetworkCount(g1));
+		assertEquals(0, groups.getNetworkCount(g2));
+	}
+
+	@Test
+	public void testManyNetworks() {
+		// the network masks take more than one word
+		final CyNetwork net = networks.get(0);
+		final List<CyNetwork> many = Collections.nCopies(130, net);
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(many);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		builder.add(g0, 64, nodes1.get(0));
+		builder.add(g0, 129, nodes1.get(0));
+		final int g1 = builder.add(-1, 63, nodes1.get(1));
+		final MatchedGroups<CyNode> groups = builder.build();
+
+		assertEquals(3, groups.getNetworkCount(g0));
+		assertTrue(groups.containsNetwork(g0, 64));
+		assertTrue(groups.containsNetwork(g0, 129));
+		assertFalse(groups.containsNetwork(g0, 63));
+		assertFalse(groups.containsNetwork(g0, 128));
+		assertEquals(1, groups.getNetworkCount(g1));
+		assertTrue(groups.containsNetwork(g1, 63));
+		assertFalse(groups.containsNetwork(g1, 127));
+	}
+
+	@Test
+	public void testSingleMember() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		// a node shared by the two networks
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		builder.add(g0, 1, nodes1.get(0));
+		final int g1 = builder.add(-1, 0, nodes1.get(1));
+		builder.add(g1, 1, nodes2.get(1));
+		final int g2 = builder.newGroup();
+		final MatchedGroups<CyNode> groups = builder.build();
+
+		assertSame(nodes1.get(0), groups.getSingleMember(g0));
+		assertNull(groups.getSingleMember(g1));
+		assertNull(groups.getSingleMember(g2));
+	}
+
+	@Test
+	public void testNetworkGroups() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		builder.add(g0, 0, nodes1.get(1));
+		builder.add(g0, 1, nodes2.get(0));
+		final int g1 = builder.add(-1, 1, nodes2.get(1));
+		final MatchedGroups<CyNode> groups = builder.build();
+
+		final MatchedGroups<CyNode> first = groups.getNetworkGroups(0);
+		assertEquals(groups.size(), first.size());
+		assertMembers(first, g0, nodes1.get(0), nodes1.get(1));
+		assertMembers(first, g1);
+		assertEquals(1, first.getNetworkCount(g0));
+		assertFalse(first.containsNetwork(g0, 1));
+
+		final MatchedGroups<CyNode> second = groups.getNetworkGroups(1);
+		assertMembers(second, g0, nodes2.get(0));
+		assertMembers(second, g1, nodes2.get(1));
+		// the members are shared with the groups
+		assertEquals(groups.getMemberStart(g0) + 2, second.getMemberStart(g0));
+	}
+
+	@Test
+	public void testGrowth() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks, 1);
+		final int n = 1000;
+		for (int i = 0; i < n; i++)
+			builder.add(i % 2 == 0 ? -1 : i / 2, 0, nodes1.get(i % nodes1.size()));
+		final MatchedGroups<CyNode> groups = builder.build();
+		assertEquals(n / 2, groups.size());
+		for (int g = 0; g < groups.size(); g++) {
+			assertEquals(2 * g, groups.getMemberStart(g));
+			assertEquals(2 * g + 2, groups.getMemberEnd(g));
+			assertSame(nodes1.get((2 * g + 1) % nodes1.size()), groups.getMember(2 * g + 1));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInterleavedNetworks() {
+		final MatchedGroups.Builder<CyNode> builder = new MatchedGroups.Builder<CyNode>(networks);
+		final int g0 = builder.add(-1, 0, nodes1.get(0));
+		builder.add(g0, 1, nodes2.get(0));
+		builder.add(g0, 0, nodes1.get(1));
+		builder.build();
+	}
+
+	private static void assertMembers(final MatchedGroups<CyNode> groups, final int group, final CyNode... expected) {
+		final List<CyNode> members = new ArrayList<CyNode>();
+		for (int m = groups.getMemberStart(group); m < groups.getMemberEnd(group); m++)
+			members.add(groups.getMember(m));
+		assertEquals(Arrays.asList(expected), members);
+	}
+}